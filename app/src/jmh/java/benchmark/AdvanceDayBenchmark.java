@@ -0,0 +1,57 @@
+package benchmark;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Cost of advancing time one day at a time through the first month of contracts,
+ * and of one jump past all of them.
+ * Time only moves forward, so every iteration starts from a freshly populated system.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+public class AdvanceDayBenchmark {
+  private static final int DAYS = 30;
+
+  @Param({"1000", "10000", "100000", "1000000"})
+  public int size;
+
+  private Fixtures fixtures;
+
+  @Setup(Level.Iteration)
+  public void setUp() {
+    fixtures = Fixtures.populate(size);
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(DAYS)
+  public int advanceDay() {
+    for (int d = 0; d < DAYS; d++) {
+      fixtures.controller.advanceDay(1);
+    }
+    return fixtures.controller.getCurrentDay();
+  }
+
+  /**
+   * Costs what the status changes in between cost, however many days it skips.
+   */
+  @Benchmark
+  public int advanceTenThousandDays() {
+    fixtures.controller.advanceDay(10_000);
+    return fixtures.controller.getCurrentDay();
+  }
+}
@@ -0,0 +1,67 @@
+package benchmark;
+
+import controller.ControllerManager;
+import java.util.concurrent.TimeUnit;
+import model.Item;
+import model.ItemCatagory;
+import model.Member;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Item.isAvailable and booking latency against an item with a long contract history.
+ * Both should stay flat as the history grows.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class AvailabilityBenchmark {
+  @Param({"10", "100", "1000", "10000", "100000"})
+  public int history;
+
+  private ControllerManager controller;
+  private Item item;
+  private String borrowerId;
+  private int probe;
+  private int nextStart;
+
+  @Setup(Level.Iteration)
+  public void setUp() {
+    controller = ControllerManager.createEmpty();
+    Member owner = controller.createMember("Owner", "owner@example.com", "0700");
+    Member borrower = controller.createMember("Borrower", "borrower@example.com", "0701");
+    controller.setCredits(borrower.getMemberId(), Integer.MAX_VALUE / 2);
+    borrowerId = borrower.getMemberId();
+    item = controller.createItem(owner.getMemberId(), ItemCatagory.Tool, "Drill", "Busy drill", 1);
+    // Two-day contracts with a free day between each.
+    for (int i = 0; i < history; i++) {
+      controller.createContract(borrowerId, item.getId(), i * 3, i * 3 + 2);
+    }
+    nextStart = history * 3;
+  }
+
+  @Benchmark
+  public boolean isAvailableFree() {
+    probe = (probe + 1) % history;
+    return item.isAvailable(probe * 3 + 2, probe * 3 + 3);
+  }
+
+  @Benchmark
+  public boolean isAvailableTaken() {
+    probe = (probe + 1) % history;
+    return item.isAvailable(probe * 3 + 1, probe * 3 + 2);
+  }
+
+  @Benchmark
+  public Object createContract() {
+    int start = nextStart++;
+    return controller.createContract(borrowerId, item.getId(), start, start + 1);
+  }
+}
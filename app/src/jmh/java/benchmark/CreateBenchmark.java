@@ -0,0 +1,66 @@
+package benchmark;
+
+import java.util.concurrent.TimeUnit;
+import model.ItemCatagory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Cost of adding members, items and contracts to an already populated system.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class CreateBenchmark {
+  @Param({"1000", "10000", "100000", "1000000"})
+  public int size;
+
+  // Enough that no borrower runs dry within an iteration, a lap costs a member at most 49 credits.
+  private static final int BOOKING_CREDITS = Integer.MAX_VALUE / 2;
+
+  private Fixtures fixtures;
+  private long sequence;
+
+  @Setup(Level.Iteration)
+  public void setUp() {
+    fixtures = Fixtures.populate(size);
+    for (String memberId : fixtures.memberIds) {
+      fixtures.controller.setCredits(memberId, BOOKING_CREDITS);
+    }
+    sequence = 0;
+  }
+
+  @Benchmark
+  public Object createMember() {
+    long n = sequence++;
+    return fixtures.controller.createMember("New " + n, "new" + n + "@example.com", "08" + n);
+  }
+
+  @Benchmark
+  public Object createItem() {
+    long n = sequence++;
+    String owner = fixtures.memberIds[(int) (n % size)];
+    return fixtures.controller.createItem(owner, ItemCatagory.Tool, "New " + n, "Added item", 5);
+  }
+
+  /**
+   * Books every item round-robin, one day further into the future each lap,
+   * so each booking succeeds and histories grow evenly. The credits given in
+   * setUp keep every borrower able to pay, so the error path is never measured.
+   */
+  @Benchmark
+  public Object createContract() {
+    long n = sequence++;
+    int index = (int) (n % size);
+    int start = 400 + (int) (n / size);
+    return fixtures.controller.createContract(
+        fixtures.memberIds[(index + 1) % size], fixtures.itemIds[index], start, start + 1);
+  }
+}
@@ -0,0 +1,59 @@
+package benchmark;
+
+import controller.ControllerManager;
+import model.ItemCatagory;
+import model.Member;
+
+/**
+ * Builds controllers pre-filled with a given number of members, items and contracts.
+ */
+final class Fixtures {
+  static final int STARTING_CREDITS = 1_000_000;
+  private static final ItemCatagory[] CATEGORIES = ItemCatagory.values();
+
+  final ControllerManager controller;
+  final String[] memberIds;
+  final String[] itemIds;
+
+  private Fixtures(ControllerManager controller, String[] memberIds, String[] itemIds) {
+    this.controller = controller;
+    this.memberIds = memberIds;
+    this.itemIds = itemIds;
+  }
+
+  /**
+   * One item per member, and one contract per item within the first year.
+   *
+   * @param size    --> Number of members, items and contracts.
+   * @return        --> The filled controller and its ids.
+   */
+  static Fixtures populate(int size) {
+    return populate(ControllerManager.createEmpty(), size);
+  }
+
+  /**
+   * Fill an existing controller, e.g. one recording to storage.
+   *
+   * @param controller  --> Empty controller to fill.
+   * @param size        --> Number of members, items and contracts.
+   * @return            --> The filled controller and its ids.
+   */
+  static Fixtures populate(ControllerManager controller, int size) {
+    String[] memberIds = new String[size];
+    String[] itemIds = new String[size];
+    for (int i = 0; i < size; i++) {
+      Member m = controller.createMember("Member " + i, "member" + i + "@example.com", "07" + i);
+      controller.setCredits(m.getMemberId(), STARTING_CREDITS);
+      memberIds[i] = m.getMemberId();
+    }
+    for (int i = 0; i < size; i++) {
+      itemIds[i] = controller.createItem(memberIds[i], CATEGORIES[i % CATEGORIES.length],
+          "Item " + i, "Benchmark item number " + i, 1 + i % 50).getId();
+    }
+    for (int i = 0; i < size; i++) {
+      int start = 1 + i % 365;
+      controller.createContract(memberIds[(i + 1) % size], itemIds[i], start, start + 1 + i % 7);
+    }
+    return new Fixtures(controller, memberIds, itemIds);
+  }
+}
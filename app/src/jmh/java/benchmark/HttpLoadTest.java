@@ -0,0 +1,128 @@
+package benchmark;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import view.HttpView;
+
+/**
+ * Load test for HttpView: keeps a fixed number of requests in flight and
+ * reports throughput and latency percentiles.
+ *
+ * <p>Not a JMH benchmark, the interesting numbers are tail latencies under
+ * many concurrent connections. Run it with
+ * <pre>
+ *   gradlew :app:httpLoadTest --args="[concurrency] [requests] [size]"
+ * </pre>
+ * It serves a controller filled by Fixtures on a free local port. Nine in ten
+ * requests are reads (a member, an item, a page of items or a search), the
+ * rest book a one day contract.
+ */
+public final class HttpLoadTest {
+  private HttpLoadTest() {}
+
+  /**
+   * Run the load test.
+   *
+   * @param args  --> Optional concurrency (default 2000), number of requests (default 200000)
+   *                  and number of members and items to serve (default 10000).
+   * @throws Exception  --> If the server cannot start.
+   */
+  public static void main(String[] args) throws Exception {
+    int concurrency = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+    int requests = args.length > 1 ? Integer.parseInt(args[1]) : 200_000;
+    int size = args.length > 2 ? Integer.parseInt(args[2]) : 10_000;
+
+    Fixtures fixtures = Fixtures.populate(size);
+    HttpView server = new HttpView(fixtures.controller, 0);
+    server.start();
+    String base = "http://localhost:" + server.getPort();
+    HttpClient client = HttpClient.newBuilder()
+        .executor(HttpView.newRequestExecutor())
+        .version(HttpClient.Version.HTTP_1_1)
+        .connectTimeout(Duration.ofSeconds(10))
+        .build();
+    try {
+      // warm up the server and the client's connection pool
+      run(client, base, fixtures, concurrency, Math.min(requests, 20_000));
+      run(client, base, fixtures, concurrency, requests);
+    } finally {
+      server.stop();
+    }
+    System.exit(0);
+  }
+
+  private static void run(HttpClient client, String base, Fixtures fixtures, int concurrency, int requests)
+      throws InterruptedException {
+    long[] latencies = new long[requests];
+    AtomicInteger failures = new AtomicInteger();
+    Semaphore inFlight = new Semaphore(concurrency);
+    CompletableFuture<?>[] pending = new CompletableFuture<?>[requests];
+
+    long begin = System.nanoTime();
+    for (int i = 0; i < requests; i++) {
+      inFlight.acquire();
+      int n = i;
+      long sent = System.nanoTime();
+      pending[i] = client.sendAsync(request(base, fixtures, i), HttpResponse.BodyHandlers.discarding())
+          .handle((response, error) -> {
+            latencies[n] = System.nanoTime() - sent;
+            // booking a day that is already taken answers 409, that is expected
+            if (error != null || response.statusCode() >= 500) {
+              failures.incrementAndGet();
+            }
+            inFlight.release();
+            return null;
+          });
+    }
+    CompletableFuture.allOf(pending).join();
+    long elapsed = System.nanoTime() - begin;
+
+    Arrays.sort(latencies);
+    System.out.printf("%d requests, %d in flight: %.0f req/s, p50 %.2f ms, p99 %.2f ms, max %.2f ms, "
+            + "%d failed%n", requests, concurrency, requests * 1e9 / elapsed, millis(latencies, 0.50),
+        millis(latencies, 0.99), latencies[requests - 1] / 1e6, failures.get());
+  }
+
+  private static HttpRequest request(String base, Fixtures fixtures, int n) {
+    ThreadLocalRandom random = ThreadLocalRandom.current();
+    int i = random.nextInt(fixtures.memberIds.length);
+    String path;
+    switch (n % 10) {
+      case 0:
+        int day = 400 + random.nextInt(10_000);
+        String body = "{\"borrowerId\":\"" + fixtures.memberIds[(i + 1) % fixtures.memberIds.length]
+            + "\",\"itemId\":\"" + fixtures.itemIds[i] + "\",\"startDay\":" + day + ",\"endDay\":" + day + "}";
+        return HttpRequest.newBuilder(URI.create(base + "/contracts"))
+            .header("Content-Type", "application/json")
+            .POST(HttpRequest.BodyPublishers.ofString(body))
+            .build();
+      case 1:
+      case 2:
+        path = "/items?limit=20&cursor=" + fixtures.itemIds[i];
+        break;
+      case 3:
+        path = "/items/search?category=Tool&maxCost=25&from=400&to=407&limit=20";
+        break;
+      case 4:
+      case 5:
+      case 6:
+        path = "/members/" + fixtures.memberIds[i];
+        break;
+      default:
+        path = "/items/" + fixtures.itemIds[i];
+    }
+    return HttpRequest.newBuilder(URI.create(base + path)).GET().build();
+  }
+
+  private static double millis(long[] sorted, double percentile) {
+    return sorted[(int) Math.min(sorted.length - 1, Math.round(percentile * sorted.length))] / 1e6;
+  }
+}
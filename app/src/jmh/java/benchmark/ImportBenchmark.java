@@ -0,0 +1,61 @@
+package benchmark;
+
+import controller.BulkImporter;
+import controller.ControllerManager;
+import controller.dto.ImportResult;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Time to bulk import a community from CSV, about one member, item and contract per size.
+ * The goal is at least a million rows a minute.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class ImportBenchmark {
+  @Param({"10000", "100000", "1000000"})
+  public int size;
+
+  private String csv;
+  private ControllerManager controller;
+
+  @Setup(Level.Trial)
+  public void buildCsv() {
+    StringBuilder sb = new StringBuilder(size * 120);
+    for (int i = 0; i < size; i++) {
+      sb.append("member,m").append(i).append(",Member ").append(i).append(",m").append(i)
+          .append("@example.com,07").append(i).append(",1000\n");
+      sb.append("item,i").append(i).append(",m").append(i).append(",Tool,Tool ").append(i)
+          .append(",Imported item,5\n");
+      if (i > 0) {
+        sb.append("contract,m").append(i).append(",i").append(i - 1).append(",1,3\n");
+      }
+    }
+    csv = sb.toString();
+  }
+
+  @Setup(Level.Iteration)
+  public void setUp() {
+    controller = ControllerManager.createEmpty();
+  }
+
+  @Benchmark
+  public ImportResult importCsv() throws IOException {
+    return new BulkImporter(controller).importCsv(new StringReader(csv));
+  }
+}
@@ -0,0 +1,72 @@
+package benchmark;
+
+import java.util.concurrent.TimeUnit;
+import model.ContractStatus;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Cost of the listing and lookup operations the views use.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ReadBenchmark {
+  @Param({"1000", "10000", "100000", "1000000"})
+  public int size;
+
+  private Fixtures fixtures;
+  private int cursor;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    fixtures = Fixtures.populate(size);
+  }
+
+  private String nextItemId() {
+    cursor = (cursor + 1) % size;
+    return fixtures.itemIds[cursor];
+  }
+
+  @Benchmark
+  public Object listMembers() {
+    return fixtures.controller.listMembers();
+  }
+
+  @Benchmark
+  public Object listItems() {
+    return fixtures.controller.listItems();
+  }
+
+  @Benchmark
+  public Object listContracts() {
+    return fixtures.controller.listContracts();
+  }
+
+  @Benchmark
+  public Object listItemsPage() {
+    return fixtures.controller.listItems(fixtures.itemIds[size / 2], 20);
+  }
+
+  @Benchmark
+  public Object listActiveContractsPage() {
+    return fixtures.controller.listContracts(ContractStatus.ACTIVE, null, 20);
+  }
+
+  @Benchmark
+  public int countScheduledContracts() {
+    return fixtures.controller.countContracts(ContractStatus.SCHEDULED);
+  }
+
+  @Benchmark
+  public Object getContractsForItem() {
+    return fixtures.controller.getContractsForItem(nextItemId());
+  }
+}
@@ -0,0 +1,79 @@
+package benchmark;
+
+import controller.ReadView;
+import controller.dto.MemberDto;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Bookings while a report walks every member through one read view.
+ *
+ * <p>Compare the book timings of the "withReport" group against "bookOnly":
+ * the report never holds a lock, so bookings should not slow down beyond
+ * sharing the CPU, however long one report takes.
+ */
+@State(Scope.Group)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ReadViewBenchmark {
+  @Param({"10000", "100000"})
+  public int size;
+
+  private Fixtures fixtures;
+  private final AtomicLong sequence = new AtomicLong();
+
+  @Setup(Level.Iteration)
+  public void setUp() {
+    fixtures = Fixtures.populate(size);
+    sequence.set(0);
+  }
+
+  private Object book() {
+    long n = sequence.getAndIncrement();
+    int index = (int) (n % size);
+    int start = 400 + (int) (n / size);
+    return fixtures.controller.createContract(
+        fixtures.memberIds[(index + 1) % size], fixtures.itemIds[index], start, start + 1);
+  }
+
+  @Benchmark
+  @Group("bookOnly")
+  @GroupThreads(3)
+  public Object bookAlone() {
+    return book();
+  }
+
+  @Benchmark
+  @Group("withReport")
+  @GroupThreads(3)
+  public Object bookDuringReport() {
+    return book();
+  }
+
+  /**
+   * Sum of all credits, which bookings only move around, so it is the same in every view.
+   */
+  @Benchmark
+  @Group("withReport")
+  @GroupThreads(1)
+  public long report() {
+    try (ReadView view = fixtures.controller.openReadView()) {
+      long total = 0;
+      for (MemberDto m : view.listMembers(null)) {
+        total += m.getCredits();
+      }
+      return total;
+    }
+  }
+}
@@ -0,0 +1,56 @@
+package benchmark;
+
+import controller.dto.ItemDto;
+import controller.dto.Page;
+import java.util.concurrent.TimeUnit;
+import model.ItemCatagory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Cost of "which Tools are free from day 10 to 14 for at most 20 credits per day?".
+ * The goal is below 5 ms with 100k items, even when every page is fetched.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SearchBenchmark {
+  private static final int PAGE_SIZE = 20;
+
+  @Param({"1000", "10000", "100000"})
+  public int size;
+
+  private Fixtures fixtures;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    fixtures = Fixtures.populate(size);
+  }
+
+  private Page<ItemDto> search(String cursor) {
+    return fixtures.controller.searchAvailableItems(ItemCatagory.Tool, 0, 20, 10, 14, cursor, PAGE_SIZE);
+  }
+
+  @Benchmark
+  public Object firstPage() {
+    return search(null);
+  }
+
+  @Benchmark
+  public int allPages() {
+    Page<ItemDto> page = search(null);
+    int found = page.getItems().size();
+    while (page.hasNext()) {
+      page = search(page.getNextCursor());
+      found += page.getItems().size();
+    }
+    return found;
+  }
+}
@@ -0,0 +1,110 @@
+package benchmark;
+
+import controller.ShardedController;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import model.Contract;
+import model.ItemCatagory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Booking throughput of eight threads against 1, 2, 4 and 8 shards.
+ *
+ * <p>Every thread books one-day periods from its own range of days, so no
+ * booking fails and every one is a write. book picks borrower and item at
+ * random, so (n - 1) / n of the bookings take the two-phase path; bookLocal
+ * keeps both on one shard. With a core per shard both should grow close to
+ * linearly with the shard count, bookLocal the closer of the two.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(8)
+public class ShardingBenchmark {
+  private static final int MEMBERS = 4096;
+  // Days per thread, far more than one iteration books.
+  private static final int DAYS_PER_THREAD = 1 << 24;
+
+  @Param({"1", "2", "4", "8"})
+  public int shards;
+
+  private ShardedController sharded;
+  // Per shard, its members and the item each of them owns, at the same index.
+  private List<List<String>> members;
+  private List<List<String>> items;
+  private final AtomicInteger threads = new AtomicInteger();
+
+  @Setup(Level.Iteration)
+  public void setUp() {
+    sharded = new ShardedController(shards);
+    members = new ArrayList<>();
+    items = new ArrayList<>();
+    for (int s = 0; s < shards; s++) {
+      members.add(new ArrayList<>());
+      items.add(new ArrayList<>());
+    }
+    for (int m = 0; m < MEMBERS; m++) {
+      String id = sharded.createMember("Member " + m, "m" + m + "@example.com", "07" + m).getMemberId();
+      sharded.setCredits(id, Integer.MAX_VALUE / 2);
+      int s = sharded.shardOfMember(id);
+      members.get(s).add(id);
+      items.get(s).add(sharded.createItem(id, ItemCatagory.Tool, "Tool " + m, "Benchmark item", 1).getId());
+    }
+    threads.set(0);
+  }
+
+  @TearDown(Level.Iteration)
+  public void tearDown() {
+    sharded.close();
+  }
+
+  /**
+   * A booking thread's random source and its own days.
+   */
+  @State(Scope.Thread)
+  public static class Booker {
+    private Random rnd;
+    private int day;
+
+    @Setup(Level.Iteration)
+    public void setUp(ShardingBenchmark b) {
+      int thread = b.threads.getAndIncrement();
+      rnd = new Random(thread);
+      day = thread * DAYS_PER_THREAD;
+    }
+  }
+
+  @Benchmark
+  public Contract book(Booker t) {
+    List<String> from = members.get(t.rnd.nextInt(shards));
+    List<String> of = items.get(t.rnd.nextInt(shards));
+    return sharded.createContract(from.get(t.rnd.nextInt(from.size())), of.get(t.rnd.nextInt(of.size())),
+        t.day, ++t.day);
+  }
+
+  @Benchmark
+  public Contract bookLocal(Booker t) {
+    int s = t.rnd.nextInt(shards);
+    List<String> from = members.get(s);
+    List<String> of = items.get(s);
+    return sharded.createContract(from.get(t.rnd.nextInt(from.size())), of.get(t.rnd.nextInt(of.size())),
+        t.day, ++t.day);
+  }
+}
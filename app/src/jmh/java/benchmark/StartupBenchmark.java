@@ -0,0 +1,90 @@
+package benchmark;
+
+import controller.ControllerManager;
+import controller.FilePersistenceManager;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Startup time of a FilePersistenceManager directory, loaded from the binary
+ * snapshot versus replayed from the journal alone.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+public class StartupBenchmark {
+  @Param({"10000", "100000", "1000000"})
+  public int size;
+
+  private Path journalOnly;
+  private Path withSnapshot;
+
+  @Setup(Level.Trial)
+  public void setUp() throws IOException {
+    journalOnly = record(size, false);
+    withSnapshot = record(size, true);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws IOException {
+    delete(journalOnly);
+    delete(withSnapshot);
+  }
+
+  private static Path record(int size, boolean checkpoint) throws IOException {
+    Path dir = Files.createTempDirectory("lending-startup");
+    ControllerManager controller = ControllerManager.createEmpty();
+    try (FilePersistenceManager storage = new FilePersistenceManager(controller, dir, Integer.MAX_VALUE, false)) {
+      storage.open();
+      Fixtures.populate(controller, size);
+      if (checkpoint) {
+        storage.checkpoint();
+      }
+    }
+    return dir;
+  }
+
+  private static void delete(Path dir) throws IOException {
+    try (Stream<Path> files = Files.walk(dir)) {
+      for (Path p : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+        Files.delete(p);
+      }
+    }
+  }
+
+  private static ControllerManager start(Path dir) throws IOException {
+    ControllerManager controller = ControllerManager.createEmpty();
+    try (FilePersistenceManager storage = new FilePersistenceManager(controller, dir, Integer.MAX_VALUE, false)) {
+      storage.open();
+    }
+    return controller;
+  }
+
+  @Benchmark
+  public Object replayJournal() throws IOException {
+    return start(journalOnly);
+  }
+
+  @Benchmark
+  public Object loadSnapshot() throws IOException {
+    return start(withSnapshot);
+  }
+}
@@ -1,7 +1,15 @@
 package controller;
 
 import controller.ControllerManager;
+import controller.dto.ImportResult;
+import java.io.IOException;
+import java.io.Reader;
+import java.net.InetAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 import view.ConsoleView;
+import view.HttpView;
 
 /**
  * The App class serves as the entry point for the application.
@@ -10,11 +18,87 @@ public class App {
   /**
    * The main method serves as the application starting point.
    *
+   * <p>With "--data DIR" the system is kept in DIR between runs, otherwise
+   * it starts from the hard coded sample data every time. With
+   * "--import FILE" the rows of a CSV file, or of an NDJSON file if its name
+   * ends in .ndjson or .jsonl, are added before the menu opens, see
+   * BulkImporter for the formats. With "--http PORT" the system is also
+   * served as JSON over HTTP while the menu is open, see HttpView. The server
+   * only listens on the loopback address unless "--http-host ADDRESS" names
+   * another one, it has no authentication. Call
+   * counts and latencies are registered over JMX and shown by the Metrics
+   * menu entry, see Metrics.
+   *
    * @param args command line arguments passed to the application
    */
   public static void main(String[] args) {
+    String dataDir = null;
+    String importFile = null;
+    int httpPort = -1;
+    String httpHost = null;
+    for (int i = 0; i + 1 < args.length; i += 2) {
+      if (args[i].equals("--data")) {
+        dataDir = args[i + 1];
+      } else if (args[i].equals("--import")) {
+        importFile = args[i + 1];
+      } else if (args[i].equals("--http")) {
+        httpPort = Integer.parseInt(args[i + 1]);
+      } else if (args[i].equals("--http-host")) {
+        httpHost = args[i + 1];
+      }
+    }
+
+    if (dataDir != null) {
+      ControllerManager controller = ControllerManager.createEmpty();
+      try (FilePersistenceManager storage = new FilePersistenceManager(controller, Paths.get(dataDir))) {
+        storage.loadSampleData();
+        importRows(controller, importFile);
+        run(controller, httpHost, httpPort);
+      } catch (IOException e) {
+        System.out.println("Could not close data directory: " + e.getMessage());
+      }
+      return;
+    }
     ControllerManager controller = ControllerManager.createWithHardCodedData();
-    ConsoleView view = new ConsoleView(controller);
-    view.start();
+    importRows(controller, importFile);
+    run(controller, httpHost, httpPort);
+  }
+
+  private static void run(ControllerManager controller, String httpHost, int httpPort) {
+    controller.getMetrics().registerBeans();
+    HttpView http = null;
+    if (httpPort >= 0) {
+      try {
+        http = httpHost == null ? new HttpView(controller, httpPort)
+            : new HttpView(controller, InetAddress.getByName(httpHost), httpPort);
+        http.start();
+        System.out.println("Serving HTTP on port " + http.getPort());
+      } catch (IOException e) {
+        System.out.println("Could not serve HTTP on port " + httpPort + ": " + e.getMessage());
+      }
+    }
+    try {
+      new ConsoleView(controller).start();
+    } finally {
+      if (http != null) {
+        http.stop();
+      }
+    }
+  }
+
+  private static void importRows(ControllerManager controller, String file) {
+    if (file == null) {
+      return;
+    }
+    try (Reader in = Files.newBufferedReader(Paths.get(file), StandardCharsets.UTF_8)) {
+      BulkImporter importer = new BulkImporter(controller);
+      ImportResult result = file.endsWith(".ndjson") || file.endsWith(".jsonl") ? importer.importNdjson(in)
+          : importer.importCsv(in);
+      System.out.println("Imported " + result.getMembers() + " members, " + result.getItems() + " items, "
+          + result.getContracts() + " contracts");
+      result.getErrors().forEach(System.out::println);
+    } catch (IOException e) {
+      System.out.println("Could not import " + file + ": " + e.getMessage());
+    }
   }
-}
\ No newline at end of file
+}
@@ -0,0 +1,297 @@
+package controller;
+
+import controller.dto.ContractDto;
+import controller.dto.ItemDto;
+import controller.dto.MemberDto;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import model.Contract;
+import model.Item;
+import model.ItemCatagory;
+import model.Member;
+
+/**
+ * Compact binary snapshot of the whole system, read back through a memory map.
+ *
+ * <p>Layout, all numbers are big-endian ints unless noted:
+ * <pre>
+ *   header     magic (long), version, generation (long), current day,
+ *              member count, item count, contract count, string count
+ *   members    id, name, email, phone, creation day, credits
+ *   items      id, owner (member index), category ordinal, name, description,
+ *              cost per day, creation day
+ *   contracts  id, borrower (member index or -1), borrower id, borrower name,
+ *              lender (member index or -1), lender id, lender name,
+ *              item (item index or -1), item id, item name, start, end, cost
+ *   strings    count + 1 byte offsets, then the UTF-8 bytes of every string
+ * </pre>
+ * Strings in records are indexes into the deduplicated string table, so every
+ * record has a fixed width and the file is loaded in one sequential pass.
+ * References of -1 point at members or items that were deleted while a
+ * contract for them was still running, their id and name are kept instead.
+ * The whole file is mapped at once, which limits it to 2 GB.
+ */
+final class BinarySnapshot {
+  private static final long MAGIC = 0x4C454E44534E4150L; // "LENDSNAP"
+  private static final int VERSION = 1;
+  private static final int HEADER_BYTES = 8 + 4 + 8 + 4 * 5;
+  private static final int MEMBER_BYTES = 6 * 4;
+  private static final int ITEM_BYTES = 7 * 4;
+  private static final int CONTRACT_BYTES = 13 * 4;
+
+  private BinarySnapshot() {}
+
+  /**
+   * Encode the state a read view sees into memory.
+   *
+   * <p>The view stays consistent while changes go on, so this does not hold
+   * them back. Open it while no change is in progress to match a journal.
+   *
+   * @param view          --> The view to capture.
+   * @param generation    --> First journal generation not covered by the snapshot.
+   * @return              --> The encoded snapshot, ready to be written from position 0.
+   */
+  static ByteBuffer capture(ReadView view, long generation) {
+    List<MemberDto> members = new ArrayList<>(view.listMembers(null));
+    List<ItemDto> items = new ArrayList<>(view.listItems(null));
+    List<ContractDto> contracts = new ArrayList<>(view.listContracts(null));
+
+    Map<String, Integer> memberIndex = new HashMap<>(members.size() * 2);
+    for (int i = 0; i < members.size(); i++) {
+      memberIndex.put(members.get(i).getMemberId(), i);
+    }
+    Map<String, Integer> itemIdIndex = new HashMap<>(items.size() * 2);
+    for (int i = 0; i < items.size(); i++) {
+      itemIdIndex.put(items.get(i).getId(), i);
+    }
+
+    StringTable strings = new StringTable();
+    long recordBytes = (long) members.size() * MEMBER_BYTES + (long) items.size() * ITEM_BYTES
+        + (long) contracts.size() * CONTRACT_BYTES;
+    if (HEADER_BYTES + recordBytes > Integer.MAX_VALUE) {
+      throw new IllegalStateException("Snapshot larger than 2 GB");
+    }
+    ByteBuffer records = ByteBuffer.allocate((int) recordBytes);
+    for (MemberDto m : members) {
+      records.putInt(strings.add(m.getMemberId()));
+      records.putInt(strings.add(m.getName()));
+      records.putInt(strings.add(m.getEmail()));
+      records.putInt(strings.add(m.getPhone()));
+      records.putInt(m.getCreationDate());
+      records.putInt(m.getCredits());
+    }
+    for (ItemDto i : items) {
+      records.putInt(strings.add(i.getId()));
+      records.putInt(memberIndex.get(i.getOwner().getMemberId()));
+      records.putInt(i.getCategory().ordinal());
+      records.putInt(strings.add(i.getName()));
+      records.putInt(strings.add(i.getDescription()));
+      records.putInt(i.getCostPerDay());
+      records.putInt(i.getCreationdate());
+    }
+    for (ContractDto c : contracts) {
+      records.putInt(strings.add(c.id));
+      records.putInt(memberIndex.getOrDefault(c.borrowerId, -1));
+      records.putInt(strings.add(c.borrowerId));
+      records.putInt(strings.add(c.borrowerName));
+      records.putInt(memberIndex.getOrDefault(c.lenderId, -1));
+      records.putInt(strings.add(c.lenderId));
+      records.putInt(strings.add(c.lenderName));
+      records.putInt(itemIdIndex.getOrDefault(c.itemId, -1));
+      records.putInt(strings.add(c.itemId));
+      records.putInt(strings.add(c.itemName));
+      records.putInt(c.startDay);
+      records.putInt(c.endDay);
+      records.putInt(c.totalCost);
+    }
+
+    long total = HEADER_BYTES + recordBytes + 4L * (strings.size() + 1) + strings.bytes();
+    if (total > Integer.MAX_VALUE) {
+      throw new IllegalStateException("Snapshot larger than 2 GB");
+    }
+    ByteBuffer out = ByteBuffer.allocate((int) total);
+    out.putLong(MAGIC);
+    out.putInt(VERSION);
+    out.putLong(generation);
+    out.putInt(view.getCurrentDay());
+    out.putInt(members.size());
+    out.putInt(items.size());
+    out.putInt(contracts.size());
+    out.putInt(strings.size());
+    out.put(records.flip());
+    strings.writeTo(out);
+    return out.flip();
+  }
+
+  /**
+   * Write an encoded snapshot to a file and force it to disk.
+   *
+   * @param snapshot    --> As returned by capture().
+   * @param file        --> The file, replaced if it exists.
+   * @throws IOException  --> If writing failed.
+   */
+  static void write(ByteBuffer snapshot, Path file) throws IOException {
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+        StandardOpenOption.TRUNCATE_EXISTING)) {
+      while (snapshot.hasRemaining()) {
+        channel.write(snapshot);
+      }
+      channel.force(true);
+    }
+  }
+
+  /**
+   * Load a snapshot into an empty controller.
+   *
+   * @param file          --> The snapshot file.
+   * @param controller    --> Empty controller to fill.
+   * @return              --> The journal generation to replay from.
+   * @throws IOException  --> If the file could not be read.
+   */
+  static long load(Path file, ControllerManager controller) throws IOException {
+    MappedByteBuffer in;
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      in = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+    }
+    if (in.getLong() != MAGIC || in.getInt() != VERSION) {
+      throw new IOException("Not a snapshot: " + file);
+    }
+    final long generation = in.getLong();
+    final int day = in.getInt();
+    final int memberCount = in.getInt();
+    final int itemCount = in.getInt();
+    final int contractCount = in.getInt();
+    final int stringCount = in.getInt();
+    int stringsStart = HEADER_BYTES + memberCount * MEMBER_BYTES + itemCount * ITEM_BYTES
+        + contractCount * CONTRACT_BYTES;
+    StringReader strings = new StringReader(in, stringsStart, stringCount);
+
+    if (day > controller.getTimeManager().getCurrentDay()) {
+      controller.getTimeManager().advanceDay(day - controller.getTimeManager().getCurrentDay());
+      // No contracts yet, this only publishes the day.
+      controller.getContractManager().runTransitions(day);
+    }
+    MemberManager memberManager = controller.getMemberManager();
+    Member[] members = new Member[memberCount];
+    for (int i = 0; i < memberCount; i++) {
+      Member m = new Member(strings.get(in.getInt()), strings.get(in.getInt()), strings.get(in.getInt()),
+          strings.get(in.getInt()), in.getInt(), in.getInt());
+      memberManager.restoreMember(m);
+      members[i] = m;
+    }
+
+    ItemManager itemManager = controller.getItemManager();
+    ItemCatagory[] categories = ItemCatagory.values();
+    Item[] items = new Item[itemCount];
+    for (int i = 0; i < itemCount; i++) {
+      String id = strings.get(in.getInt());
+      Member owner = members[in.getInt()];
+      ItemCatagory category = categories[in.getInt()];
+      String name = strings.get(in.getInt());
+      String description = strings.get(in.getInt());
+      int cost = in.getInt();
+      Item item = new Item(id, owner, in.getInt(), category, name, description, cost);
+      itemManager.restoreItem(item, 0);
+      items[i] = item;
+    }
+
+    ContractManager contractManager = controller.getContractManager();
+    for (int i = 0; i < contractCount; i++) {
+      String id = strings.get(in.getInt());
+      Member borrower = memberOrStandIn(members, in.getInt(), strings.get(in.getInt()), strings.get(in.getInt()));
+      Member lender = memberOrStandIn(members, in.getInt(), strings.get(in.getInt()), strings.get(in.getInt()));
+      int itemRef = in.getInt();
+      String itemId = strings.get(in.getInt());
+      String itemName = strings.get(in.getInt());
+      Item live = itemRef >= 0 ? items[itemRef] : null;
+      Item item = live != null ? live : new Item(itemId, lender, 0, ItemCatagory.Other, itemName, "", 0);
+      Contract c = new Contract(id, borrower, lender, item, in.getInt(), in.getInt(), in.getInt());
+      contractManager.restoreContract(c, live, false);
+    }
+    return generation;
+  }
+
+  private static Member memberOrStandIn(Member[] members, int ref, String id, String name) {
+    return ref >= 0 ? members[ref] : new Member(id, name, "", "", 0);
+  }
+
+  /**
+   * Deduplicating string table, built while records are written.
+   */
+  private static final class StringTable {
+    private final Map<String, Integer> index = new HashMap<>();
+    private final List<byte[]> encoded = new ArrayList<>();
+    private long bytes;
+
+    int add(String s) {
+      Integer existing = index.get(s);
+      if (existing != null) {
+        return existing;
+      }
+      byte[] utf8 = s.getBytes(StandardCharsets.UTF_8);
+      encoded.add(utf8);
+      bytes += utf8.length;
+      index.put(s, encoded.size() - 1);
+      return encoded.size() - 1;
+    }
+
+    int size() {
+      return encoded.size();
+    }
+
+    long bytes() {
+      return bytes;
+    }
+
+    void writeTo(ByteBuffer out) {
+      int offset = 0;
+      for (byte[] s : encoded) {
+        out.putInt(offset);
+        offset += s.length;
+      }
+      out.putInt(offset);
+      for (byte[] s : encoded) {
+        out.put(s);
+      }
+    }
+  }
+
+  /**
+   * Decodes strings straight from the mapped table, each one at most once.
+   */
+  private static final class StringReader {
+    private final ByteBuffer buffer;
+    private final int offsetsStart;
+    private final int dataStart;
+    private final String[] decoded;
+
+    StringReader(ByteBuffer buffer, int start, int count) {
+      this.buffer = buffer;
+      this.offsetsStart = start;
+      this.dataStart = start + 4 * (count + 1);
+      this.decoded = new String[count];
+    }
+
+    String get(int index) {
+      String s = decoded[index];
+      if (s == null) {
+        int from = buffer.getInt(offsetsStart + 4 * index);
+        int to = buffer.getInt(offsetsStart + 4 * (index + 1));
+        byte[] utf8 = new byte[to - from];
+        buffer.get(dataStart + from, utf8);
+        s = new String(utf8, StandardCharsets.UTF_8);
+        decoded[index] = s;
+      }
+      return s;
+    }
+  }
+}
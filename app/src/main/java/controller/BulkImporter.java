@@ -0,0 +1,527 @@
+package controller;
+
+import controller.dto.ImportResult;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import model.Contract;
+import model.Item;
+import model.ItemCatagory;
+import model.Member;
+
+/**
+ * Adds many members, items and contracts at once, e.g. to onboard a new community.
+ *
+ * <p>Rows are collected into batches. A batch allocates all its ids up front
+ * and is applied as three changes, members then items then contracts, so a
+ * journal is synced three times per batch instead of once per row. Contracts
+ * are sorted by start day per item, which finds overlaps inside the batch
+ * without asking the item. A rejected row is reported with its line number
+ * and the rest of the batch goes ahead.
+ *
+ * <p>Rows refer to members and items by a reference of the import's own
+ * choosing, defined by the member or item row. A reference that the import
+ * does not define is taken as the id of an existing member or item. A
+ * reference whose own row was rejected is unknown, rows using it are
+ * rejected too rather than matched to an existing id.
+ *
+ * <p>In CSV, each line is one row and its first field says what it is:
+ * <pre>
+ *   member,REF,NAME,EMAIL,PHONE,CREDITS
+ *   item,REF,OWNER_REF,CATEGORY,NAME,DESCRIPTION,COST_PER_DAY
+ *   contract,BORROWER_REF,ITEM_REF,START_DAY,END_DAY
+ * </pre>
+ * Fields may be put in double quotes, a quote inside them is doubled. Empty
+ * lines and lines starting with # are skipped.
+ *
+ * <p>In NDJSON, each line is one flat object with the same fields by name:
+ * <pre>
+ *   {"type": "member", "ref": REF, "name": NAME, "email": EMAIL, "phone": PHONE, "credits": CREDITS}
+ *   {"type": "item", "ref": REF, "owner": OWNER_REF, "category": CATEGORY, "name": NAME,
+ *       "description": DESCRIPTION, "costPerDay": COST_PER_DAY}
+ *   {"type": "contract", "borrower": BORROWER_REF, "item": ITEM_REF, "startDay": START_DAY, "endDay": END_DAY}
+ * </pre>
+ * Empty lines are skipped.
+ *
+ * <p>An importer is used by one thread and for one import.
+ */
+public class BulkImporter {
+  public static final int DEFAULT_BATCH_SIZE = 10_000;
+  // Names of the NDJSON fields in the order of the CSV fields, after the type.
+  private static final Map<String, String[]> NDJSON_FIELDS = Map.of(
+      "member", new String[] {"ref", "name", "email", "phone", "credits"},
+      "item", new String[] {"ref", "owner", "category", "name", "description", "costPerDay"},
+      "contract", new String[] {"borrower", "item", "startDay", "endDay"});
+
+  private final ControllerManager controller;
+  private final int batchSize;
+  // Import reference to the id it was given.
+  private final Map<String, String> memberRefs = new HashMap<>();
+  private final Map<String, String> itemRefs = new HashMap<>();
+  // References defined by rows that were rejected.
+  private final Set<String> rejectedMemberRefs = new HashSet<>();
+  private final Set<String> rejectedItemRefs = new HashSet<>();
+  private final List<MemberRow> memberRows;
+  private final List<ItemRow> itemRows;
+  private final List<ContractRow> contractRows;
+  private final List<String> errors = new ArrayList<>();
+  private int members;
+  private int items;
+  private int contracts;
+
+  public BulkImporter(ControllerManager controller) {
+    this(controller, DEFAULT_BATCH_SIZE);
+  }
+
+  /**
+   * Constructor.
+   *
+   * @param controller    --> Where to add the rows.
+   * @param batchSize     --> Rows to collect before they are applied.
+   */
+  public BulkImporter(ControllerManager controller, int batchSize) {
+    if (batchSize <= 0) {
+      throw new IllegalArgumentException("Batch size must be positive");
+    }
+    this.controller = controller;
+    this.batchSize = batchSize;
+    this.memberRows = new ArrayList<>(batchSize);
+    this.itemRows = new ArrayList<>(batchSize);
+    this.contractRows = new ArrayList<>(batchSize);
+  }
+
+  /**
+   * Import every row of a CSV stream, see the class comment for the format.
+   *
+   * @param in    --> The CSV text, read to the end but not closed.
+   * @return      --> What was added and which rows were rejected.
+   * @throws IOException  --> If reading failed, rows before the failure may have been added.
+   */
+  public ImportResult importCsv(Reader in) throws IOException {
+    return importLines(in, "#", BulkImporter::splitCsv);
+  }
+
+  /**
+   * Import every object of an NDJSON stream, see the class comment for the fields.
+   *
+   * @param in    --> The NDJSON text, read to the end but not closed.
+   * @return      --> What was added and which rows were rejected.
+   * @throws IOException  --> If reading failed, rows before the failure may have been added.
+   */
+  public ImportResult importNdjson(Reader in) throws IOException {
+    return importLines(in, null, this::splitNdjson);
+  }
+
+  private ImportResult importLines(Reader in, String comment, Function<String, String[]> split) throws IOException {
+    BufferedReader reader = in instanceof BufferedReader ? (BufferedReader) in : new BufferedReader(in, 1 << 16);
+    long lineNumber = 0;
+    String line;
+    while ((line = reader.readLine()) != null) {
+      lineNumber++;
+      if (line.isBlank() || comment != null && line.startsWith(comment)) {
+        continue;
+      }
+      String[] fields = null;
+      try {
+        fields = split.apply(line);
+        addRow(lineNumber, fields);
+      } catch (IllegalArgumentException e) {
+        error(lineNumber, e.getMessage());
+        if (fields != null && fields.length > 1) {
+          rejectRef(fields[0], fields[1]);
+        }
+      }
+    }
+    return finish();
+  }
+
+  private void addRow(long line, String[] f) {
+    switch (f[0]) {
+      case "member":
+        expectFields(f, 6);
+        addMember(line, f[1], f[2], f[3], f[4], Integer.parseInt(f[5].trim()));
+        break;
+      case "item":
+        expectFields(f, 7);
+        addItem(line, f[1], f[2], category(f[3]), f[4], f[5], Integer.parseInt(f[6].trim()));
+        break;
+      case "contract":
+        expectFields(f, 5);
+        addContract(line, f[1], f[2], Integer.parseInt(f[3].trim()), Integer.parseInt(f[4].trim()));
+        break;
+      default:
+        throw new IllegalArgumentException("Unknown row type: " + f[0]);
+    }
+  }
+
+  // A member or item row that was rejected before it was queued.
+  private void rejectRef(String type, String ref) {
+    if (ref == null) {
+      return;
+    } else if (type.equals("member")) {
+      rejectedMemberRefs.add(ref);
+    } else if (type.equals("item")) {
+      rejectedItemRefs.add(ref);
+    }
+  }
+
+  private static void expectFields(String[] f, int count) {
+    if (f.length != count) {
+      throw new IllegalArgumentException("Expected " + count + " fields for " + f[0] + ", got " + f.length);
+    }
+  }
+
+  private static ItemCatagory category(String name) {
+    for (ItemCatagory c : ItemCatagory.values()) {
+      if (c.name().equalsIgnoreCase(name.trim())) {
+        return c;
+      }
+    }
+    throw new IllegalArgumentException("Unknown category: " + name);
+  }
+
+  /**
+   * Split one CSV line into its fields.
+   *
+   * @param line    --> The line, without line break.
+   * @return        --> The unquoted fields.
+   */
+  static String[] splitCsv(String line) {
+    List<String> fields = new ArrayList<>();
+    StringBuilder field = new StringBuilder();
+    boolean quoted = false;
+    int i = 0;
+    while (i < line.length()) {
+      char ch = line.charAt(i++);
+      if (quoted && ch == '"' && i < line.length() && line.charAt(i) == '"') {
+        field.append('"');
+        i++;
+      } else if (ch == '"') {
+        quoted = !quoted;
+      } else if (ch == ',' && !quoted) {
+        fields.add(field.toString());
+        field.setLength(0);
+      } else {
+        field.append(ch);
+      }
+    }
+    if (quoted) {
+      throw new IllegalArgumentException("Unterminated quote");
+    }
+    fields.add(field.toString());
+    return fields.toArray(new String[0]);
+  }
+
+  /**
+   * Read one NDJSON object into the fields of the matching CSV row.
+   *
+   * @param line    --> The line, one JSON object.
+   * @return        --> The type, then the values in CSV order.
+   */
+  private String[] splitNdjson(String line) {
+    Map<String, String> object = FlatJson.parseObject(line);
+    String type = object.get("type");
+    String[] names = type == null ? null : NDJSON_FIELDS.get(type);
+    if (names == null) {
+      throw new IllegalArgumentException("Unknown row type: " + type);
+    }
+    String[] fields = new String[names.length + 1];
+    fields[0] = type;
+    for (int i = 0; i < names.length; i++) {
+      fields[i + 1] = object.get(names[i]);
+      if (fields[i + 1] == null) {
+        // Rows referring to it must not be matched to an existing id.
+        rejectRef(type, object.get("ref"));
+        throw new IllegalArgumentException("Missing field for " + type + ": " + names[i]);
+      }
+    }
+    return fields;
+  }
+
+  /**
+   * Queue a new member.
+   *
+   * @param line      --> Line number to report errors with.
+   * @param ref       --> Reference later rows use for the member.
+   * @param name      --> of the member.
+   * @param email     --> of the member, must be unused.
+   * @param phone     --> of the member, must be unused.
+   * @param credits   --> Starting balance.
+   */
+  public void addMember(long line, String ref, String name, String email, String phone, int credits) {
+    if (credits < 0) {
+      error(line, "Credits cannot be negative");
+      rejectedMemberRefs.add(ref);
+      return;
+    }
+    memberRows.add(new MemberRow(line, ref, name, email, phone, credits));
+    flushIfFull();
+  }
+
+  /**
+   * Queue a new item, its owner gets the usual creation bonus.
+   *
+   * @param line          --> Line number to report errors with.
+   * @param ref           --> Reference later rows use for the item.
+   * @param ownerRef      --> Reference or id of the owner.
+   * @param category      --> of the item.
+   * @param name          --> of the item.
+   * @param description   --> of the item.
+   * @param costPerDay    --> of the item.
+   */
+  public void addItem(long line, String ref, String ownerRef, ItemCatagory category, String name,
+      String description, int costPerDay) {
+    itemRows.add(new ItemRow(line, ref, ownerRef, category, name, description, costPerDay));
+    flushIfFull();
+  }
+
+  /**
+   * Queue a new contract, booked and paid as with createContract().
+   *
+   * @param line          --> Line number to report errors with.
+   * @param borrowerRef   --> Reference or id of the borrower.
+   * @param itemRef       --> Reference or id of the item.
+   * @param startDay      --> Start day of contract.
+   * @param endDay        --> End day of contract.
+   */
+  public void addContract(long line, String borrowerRef, String itemRef, int startDay, int endDay) {
+    if (endDay <= startDay) {
+      error(line, "End day must be after start day");
+      return;
+    }
+    contractRows.add(new ContractRow(line, borrowerRef, itemRef, startDay, endDay));
+    flushIfFull();
+  }
+
+  private void flushIfFull() {
+    if (memberRows.size() + itemRows.size() + contractRows.size() >= batchSize) {
+      flush();
+    }
+  }
+
+  /**
+   * Apply the rows queued so far.
+   */
+  public void flush() {
+    applyMembers();
+    applyItems();
+    applyContracts();
+  }
+
+  /**
+   * Apply the rows still queued and sum up the import.
+   *
+   * @return    --> What was added and which rows were rejected.
+   */
+  public ImportResult finish() {
+    flush();
+    return new ImportResult(members, items, contracts, new ArrayList<>(errors));
+  }
+
+  private void applyMembers() {
+    if (memberRows.isEmpty()) {
+      return;
+    }
+    MemberManager memberManager = controller.getMemberManager();
+    String[] ids = memberManager.generateIds(memberRows.size());
+    int day = controller.getCurrentDay();
+    List<Member> batch = new ArrayList<>(memberRows.size());
+    for (int i = 0; i < ids.length; i++) {
+      MemberRow r = memberRows.get(i);
+      batch.add(new Member(ids[i], r.name, r.email, r.phone, day, r.credits));
+    }
+
+    List<Member> added = controller.change(() -> {
+      String[] rejected = memberManager.createMembers(batch);
+      List<Member> ok = new ArrayList<>(batch.size());
+      for (int i = 0; i < rejected.length; i++) {
+        if (rejected[i] != null) {
+          error(memberRows.get(i).line, rejected[i]);
+          rejectedMemberRefs.add(memberRows.get(i).ref);
+        } else {
+          ok.add(batch.get(i));
+          memberRefs.put(memberRows.get(i).ref, batch.get(i).getMemberId());
+        }
+      }
+      return ok;
+    });
+    members += added.size();
+    memberRows.clear();
+  }
+
+  private void applyItems() {
+    if (itemRows.isEmpty()) {
+      return;
+    }
+    ItemManager itemManager = controller.getItemManager();
+    MemberManager memberManager = controller.getMemberManager();
+    String[] ids = itemManager.generateIds(itemRows.size());
+    int day = controller.getCurrentDay();
+    List<Item> batch = new ArrayList<>(itemRows.size());
+    List<ItemRow> rows = new ArrayList<>(itemRows.size());
+    for (int i = 0; i < ids.length; i++) {
+      ItemRow r = itemRows.get(i);
+      String ownerId = resolve(r.line, r.ownerRef, memberRefs, rejectedMemberRefs, "member");
+      Member owner = ownerId == null ? null : memberManager.getMemberById(ownerId);
+      if (owner == null) {
+        if (ownerId != null) {
+          error(r.line, "Owner not found");
+        }
+        rejectedItemRefs.add(r.ref);
+        continue;
+      }
+      batch.add(new Item(ids[i], owner, day, r.category, r.name, r.description, r.costPerDay));
+      rows.add(r);
+    }
+
+    int added = controller.change(() -> {
+      String[] rejected = itemManager.createItems(batch);
+      int ok = 0;
+      for (int i = 0; i < rejected.length; i++) {
+        if (rejected[i] != null) {
+          error(rows.get(i).line, rejected[i]);
+          rejectedItemRefs.add(rows.get(i).ref);
+        } else {
+          itemRefs.put(rows.get(i).ref, batch.get(i).getId());
+          ok++;
+        }
+      }
+      return ok;
+    });
+    items += added;
+    itemRows.clear();
+  }
+
+  /**
+   * Id of a member or item a row refers to.
+   *
+   * @param line      --> Line number to report errors with.
+   * @param ref       --> Reference defined by the import, or else an existing id.
+   * @param refs      --> References defined so far.
+   * @param rejected  --> References whose row was rejected.
+   * @param kind      --> "member" or "item", for the error.
+   * @return          --> The id, null if the reference is unknown.
+   */
+  private String resolve(long line, String ref, Map<String, String> refs, Set<String> rejected, String kind) {
+    String id = refs.get(ref);
+    if (id != null) {
+      return id;
+    } else if (rejected.contains(ref)) {
+      error(line, "Unknown " + kind + " reference: " + ref);
+      return null;
+    }
+    return ref;
+  }
+
+  private void applyContracts() {
+    if (contractRows.isEmpty()) {
+      return;
+    }
+    ContractManager contractManager = controller.getContractManager();
+    String[] ids = contractManager.generateIds(contractRows.size());
+    Map<String, List<Integer>> rowsByItem = new LinkedHashMap<>();
+    String[] borrowerIds = new String[ids.length];
+    for (int i = 0; i < ids.length; i++) {
+      ContractRow r = contractRows.get(i);
+      String itemId = resolve(r.line, r.itemRef, itemRefs, rejectedItemRefs, "item");
+      borrowerIds[i] = itemId == null ? null : resolve(r.line, r.borrowerRef, memberRefs, rejectedMemberRefs, "member");
+      if (borrowerIds[i] != null) {
+        rowsByItem.computeIfAbsent(itemId, id -> new ArrayList<>()).add(i);
+      }
+    }
+
+    List<Contract> added = controller.change(() -> {
+      List<Contract> ok = new ArrayList<>(ids.length);
+      for (Map.Entry<String, List<Integer>> e : rowsByItem.entrySet()) {
+        List<Integer> rows = e.getValue();
+        rows.sort(Comparator.comparingInt(i -> contractRows.get(i).startDay));
+        // Accepted rows do not overlap, so the latest one also ends last.
+        ContractRow last = null;
+        for (int i : rows) {
+          ContractRow r = contractRows.get(i);
+          if (last != null && r.startDay < last.endDay) {
+            error(r.line, "Overlaps the contract on line " + last.line);
+            continue;
+          }
+          try {
+            ok.add(contractManager.createContract(ids[i], borrowerIds[i], e.getKey(), r.startDay, r.endDay));
+            last = r;
+          } catch (IllegalArgumentException | IllegalStateException ex) {
+            error(r.line, ex.getMessage());
+          }
+        }
+      }
+      return ok;
+    });
+    contracts += added.size();
+    contractRows.clear();
+  }
+
+  private void error(long line, String message) {
+    errors.add("line " + line + ": " + message);
+  }
+
+  private static final class MemberRow {
+    final long line;
+    final String ref;
+    final String name;
+    final String email;
+    final String phone;
+    final int credits;
+
+    MemberRow(long line, String ref, String name, String email, String phone, int credits) {
+      this.line = line;
+      this.ref = ref;
+      this.name = name;
+      this.email = email;
+      this.phone = phone;
+      this.credits = credits;
+    }
+  }
+
+  private static final class ItemRow {
+    final long line;
+    final String ref;
+    final String ownerRef;
+    final ItemCatagory category;
+    final String name;
+    final String description;
+    final int costPerDay;
+
+    ItemRow(long line, String ref, String ownerRef, ItemCatagory category, String name, String description,
+        int costPerDay) {
+      this.line = line;
+      this.ref = ref;
+      this.ownerRef = ownerRef;
+      this.category = category;
+      this.name = name;
+      this.description = description;
+      this.costPerDay = costPerDay;
+    }
+  }
+
+  private static final class ContractRow {
+    final long line;
+    final String borrowerRef;
+    final String itemRef;
+    final int startDay;
+    final int endDay;
+
+    ContractRow(long line, String borrowerRef, String itemRef, int startDay, int endDay) {
+      this.line = line;
+      this.borrowerRef = borrowerRef;
+      this.itemRef = itemRef;
+      this.startDay = startDay;
+      this.endDay = endDay;
+    }
+  }
+}
@@ -0,0 +1,51 @@
+package controller;
+
+import model.Contract;
+import model.ItemCatagory;
+
+/**
+ * Told about every change the managers make, e.g. to write it to storage.
+ *
+ * <p>The change methods are called by the managers while they still hold the
+ * lock stripes of what changed, and get the values as they were changed, so
+ * two changes to the same member or item are reported in the order they were
+ * made. They also run while the change is guarded against checkpoints;
+ * commit() runs once the ControllerManager has released that guard.
+ */
+interface ChangeListener {
+  ChangeListener NONE = new ChangeListener() {};
+
+  default void memberCreated(String memberId, String name, String email, String phone, int creationDay) {}
+
+  default void memberUpdated(String memberId, String name, String email, String phone) {}
+
+  default void memberDeleted(String memberId) {}
+
+  default void creditsSet(String memberId, int credits) {}
+
+  default void itemCreated(String itemId, String ownerId, ItemCatagory category, String name, String description,
+      int costPerDay, int creationDay) {}
+
+  default void itemUpdated(String itemId, String name, String description, int costPerDay) {}
+
+  default void itemDeleted(String itemId) {}
+
+  default void itemTransferred(String itemId, String newOwnerId) {}
+
+  default void contractCreated(Contract c) {}
+
+  /**
+   * A contract whose borrower was charged by another instance, the lender's
+   * new balance is reported with creditsSet() before it.
+   *
+   * @param c   --> The contract, its borrower may not exist here.
+   */
+  default void paidContractCreated(Contract c) {}
+
+  default void dayAdvanced(int days) {}
+
+  /**
+   * Called after each change, may block until the change is durable.
+   */
+  default void commit() {}
+}
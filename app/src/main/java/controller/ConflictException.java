@@ -0,0 +1,16 @@
+package controller;
+
+/**
+ * Thrown when a well-formed call clashes with the current state, e.g. an
+ * email that is taken or a period that is already booked.
+ *
+ * <p>An IllegalArgumentException, so callers that treat every bad argument
+ * alike need not tell it apart.
+ */
+public class ConflictException extends IllegalArgumentException {
+  private static final long serialVersionUID = 1L;
+
+  public ConflictException(String message) {
+    super(message);
+  }
+}
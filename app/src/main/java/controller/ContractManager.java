@@ -1,24 +1,46 @@
 package controller;
 
+import controller.dto.CreditEntry;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.HashMap;
+import java.util.EnumMap;
 import java.util.Map;
-import java.util.Random;
+import java.util.NavigableMap;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicIntegerArray;
 import model.Contract;
+import model.ContractStatus;
+import model.DayTask;
 import model.Item;
 import model.Member;
 import model.TimeManager;
 
 /**
  * Controller that coordinates contract creation by delegating to the models.
+ *
+ * <p>Bookings are safe to run from several threads: each one holds the lock
+ * stripes of its borrower, lender and item while it checks and moves credits.
  */
 public class ContractManager {
-  private final Map<String, Contract> contractsById = new HashMap<>();
+  // Id order, which is creation order for generated ids.
+  private final NavigableMap<String, Contract> contractsById = new ConcurrentSkipListMap<>();
+  // Changed only by Transition tasks, which the TimeManager runs one at a time.
+  private final Map<ContractStatus, NavigableMap<String, Contract>> contractsByStatus = newStatusIndex();
+  private final AtomicIntegerArray statusCounts = new AtomicIntegerArray(ContractStatus.values().length);
+  // Member id to that member's contracts in id order, entries are dropped once empty.
+  private final Map<String, NavigableMap<String, Contract>> contractsByBorrower = new ConcurrentHashMap<>();
+  private final Map<String, NavigableMap<String, Contract>> contractsByLender = new ConcurrentHashMap<>();
+  // Out of the status buckets, to be dropped by the next runTransitions().
+  private final Queue<Contract> expired = new ConcurrentLinkedQueue<>();
   private final MemberManager memberManager;
   private final ItemManager itemManager;
   private final TimeManager timeManager;
-  private final Random rnd = new Random();
+  private final LockStripes locks;
+  private final IdGenerator ids;
+  private final VersionStore versions;
 
   /**
    * Constructor for the contract manager.
@@ -28,11 +50,18 @@ public class ContractManager {
    * @param mm    --> Referance to the memberManager
    * @param im    --> Referance to the itemManager
    * @param tm    --> Referance to the timeManager
+   * @param locks --> Lock stripes shared with the itemManager
+   * @param ids   --> Generator for contract ids
+   * @param versions    --> Where changes publish their copies for readers
    */
-  ContractManager(MemberManager mm, ItemManager im, TimeManager tm) {
+  ContractManager(MemberManager mm, ItemManager im, TimeManager tm, LockStripes locks, IdGenerator ids,
+      VersionStore versions) {
     this.memberManager = mm;
     this.itemManager = im;
     this.timeManager = tm;
+    this.locks = locks;
+    this.ids = ids;
+    this.versions = versions;
   }
 
   // Package-private.
@@ -58,49 +87,284 @@ public class ContractManager {
    * @return              --> Contract.
    */
   public Contract createContract(String borrowerId, String itemId, int startDay, int endDay) {
+    return createContract(null, borrowerId, itemId, startDay, endDay);
+  }
+
+  /**
+   * Book with an id allocated up front, e.g. by generateIds() for a bulk import.
+   *
+   * @param id            --> Id of the new contract, null to generate one once the booking is accepted.
+   * @param borrowerId    --> The id of the user borrowing the item.
+   * @param itemId        --> The id of the item being borrowed.
+   * @param startDay      --> Start day of contract.
+   * @param endDay        --> End day of contract.
+   * @return              --> Contract.
+   */
+  Contract createContract(String id, String borrowerId, String itemId, int startDay, int endDay) {
     Member borrower = memberManager.getMemberById(borrowerId);
     Item item = itemManager.getItemById(itemId);
 
     if (borrower == null) {
-      throw new IllegalArgumentException("Borrower not found.");
+      throw new NotFoundException("Borrower not found.");
     } else if (item == null) {
-      throw new IllegalArgumentException("Item not found");
-    } else if (!item.isAvailable(startDay, endDay)) {
-      throw new IllegalArgumentException("Item not available in that period");
+      throw new NotFoundException("Item not found");
+    }
+
+    int[] held = itemManager.lockWithOwner(item, borrower.getMemberId());
+    Contract contract;
+    try {
+      Member lender = item.getOwnerInternal();
+      // Deletes take the same stripes, so these hold until the booking is done.
+      if (memberManager.getMemberById(borrowerId) != borrower) {
+        throw new NotFoundException("Borrower not found.");
+      } else if (itemManager.getItemById(itemId) != item) {
+        throw new NotFoundException("Item not found");
+      } else if (!item.isAvailable(startDay, endDay)) {
+        throw new ConflictException("Item not available in that period");
+      }
+
+      int days = endDay - startDay;
+      int cost = days * item.getCostPerDay();
+      if (borrower.getCredits() < cost) {
+        throw new ConflictException("Borrower has insufficient credits");
+      }
+
+      contract = new Contract(id != null ? id : generateId(), borrower, lender, item, startDay, endDay);
+      settle(contract, borrower, lender, item);
+    } finally {
+      locks.unlock(held);
     }
+    return contract;
+  }
 
-    int days = endDay - startDay;
-    int cost = days * item.getCostPerDay();
-    if (borrower.getCredits() < cost) {
-      throw new IllegalArgumentException("Borrower has insufficient credits");
+  /**
+   * Take the cost of a booking from a borrower, the first half of a booking
+   * whose item is kept by another instance.
+   *
+   * @param borrowerId    --> The id of the user borrowing the item.
+   * @param cost          --> Credits to take.
+   * @return              --> The borrower.
+   */
+  Member charge(String borrowerId, int cost) {
+    Member borrower = memberManager.getMemberById(borrowerId);
+    if (borrower == null) {
+      throw new NotFoundException("Borrower not found.");
+    }
+    int[] held = locks.lock(borrowerId);
+    try {
+      if (memberManager.getMemberById(borrowerId) != borrower) {
+        throw new NotFoundException("Borrower not found.");
+      } else if (borrower.getCredits() < cost) {
+        throw new ConflictException("Borrower has insufficient credits");
+      }
+      memberManager.debit(borrower, CreditEntry.Kind.PAID, cost);
+      memberManager.getChangeListener().creditsSet(borrowerId, borrower.getCredits());
+      versions.change().member(borrower).commit();
+    } finally {
+      locks.unlock(held);
     }
+    return borrower;
+  }
 
-    borrower.deduceCredits(cost);
-    Member lender = item.getOwnerInternal();
-    lender.addCredits(cost);
-
-    String contractId;
-    do {
-      contractId = generateId();
-    } while (contractsById.containsKey(contractId));
-    Contract contract = new Contract(contractId, borrower, lender, item, startDay, endDay);
-    contractsById.put(contractId, contract);
-    item.addContract(contract);
+  /**
+   * Give back what charge() took when the booking could not be completed.
+   *
+   * @param borrower  --> The borrower returned by charge(), may have been deleted since.
+   * @param cost      --> Credits to give back.
+   */
+  void refund(Member borrower, int cost) {
+    int[] held = locks.lock(borrower.getMemberId());
+    try {
+      memberManager.credit(borrower, CreditEntry.Kind.REFUND, cost);
+      if (memberManager.getMemberById(borrower.getMemberId()) == borrower) {
+        memberManager.getChangeListener().creditsSet(borrower.getMemberId(), borrower.getCredits());
+        versions.change().member(borrower).commit();
+      }
+    } finally {
+      locks.unlock(held);
+    }
+  }
+
+  /**
+   * Book an item for a borrower kept by another instance who already paid,
+   * the second half of the booking.
+   *
+   * @param borrower  --> The borrower, as charged by the other instance.
+   * @param itemId    --> The id of the item being borrowed.
+   * @param startDay  --> Start day of contract.
+   * @param endDay    --> End day of contract.
+   * @param paid      --> Credits charged, must still be the cost of the period.
+   * @return          --> Contract.
+   */
+  Contract createPaidContract(Member borrower, String itemId, int startDay, int endDay, int paid) {
+    Item item = itemManager.getItemById(itemId);
+    if (item == null) {
+      throw new NotFoundException("Item not found");
+    }
+    int[] held = itemManager.lockWithOwner(item);
+    Contract contract;
+    try {
+      Member lender = item.getOwnerInternal();
+      if (itemManager.getItemById(itemId) != item) {
+        throw new NotFoundException("Item not found");
+      } else if (!item.isAvailable(startDay, endDay)) {
+        throw new ConflictException("Item not available in that period");
+      } else if ((endDay - startDay) * item.getCostPerDay() != paid) {
+        throw new IllegalStateException("Item cost changed during the booking");
+      }
+      contract = new Contract(generateId(), borrower, lender, item, startDay, endDay, paid);
+      memberManager.credit(lender, CreditEntry.Kind.RECEIVED, paid);
+      register(contract, item);
+      ChangeListener listener = memberManager.getChangeListener();
+      listener.creditsSet(lender.getMemberId(), lender.getCredits());
+      listener.paidContractCreated(contract);
+      versions.change().member(lender).contract(contract, true).commit();
+    } finally {
+      locks.unlock(held);
+    }
     return contract;
   }
 
   /**
-   * Generate a random ID for the contract.
+   * Add a contract that already has an id, e.g. one loaded from storage.
+   *
+   * @param contract        --> The contract.
+   * @param item            --> The live item the contract is for, null if it was deleted.
+   * @param moveCredits     --> Whether the cost still has to be moved from borrower to lender.
+   */
+  void restoreContract(Contract contract, Item item, boolean moveCredits) {
+    ids.reserve(contract.getContractId());
+    if (!moveCredits) {
+      int[] held = locks.lock(contract.getItem().getId());
+      try {
+        register(contract, item);
+        versions.change().contract(contract, item != null).commit();
+      } finally {
+        locks.unlock(held);
+      }
+      return;
+    }
+
+    Member borrower = memberManager.getMemberById(contract.getBorrower().getMemberId());
+    Member lender = memberManager.getMemberById(contract.getLender().getMemberId());
+    if (borrower == null || lender == null || item == null) {
+      throw new IllegalArgumentException("Contract parties not found");
+    }
+    int[] held = locks.lock(borrower.getMemberId(), lender.getMemberId(), item.getId());
+    try {
+      settle(contract, borrower, lender, item);
+    } finally {
+      locks.unlock(held);
+    }
+  }
+
+  // Caller holds the stripes of borrower, lender and item.
+  private void settle(Contract contract, Member borrower, Member lender, Item item) {
+    memberManager.transfer(borrower, lender, contract.getTotalCost());
+    register(contract, item);
+    memberManager.getChangeListener().contractCreated(contract);
+    versions.change().member(borrower).member(lender).contract(contract, true).commit();
+  }
+
+  // Caller holds the stripe of the item, which may be null if it was deleted.
+  private void register(Contract contract, Item item) {
+    if (item != null) {
+      item.addContract(contract);
+    }
+    contractsById.put(contract.getContractId(), contract);
+    index(contractsByBorrower, contract.getBorrower().getMemberId(), contract);
+    index(contractsByLender, contract.getLender().getMemberId(), contract);
+    // Runs right away unless time is being advanced, then the advancing thread
+    // runs it and the stripes are not held up. The task reads the day itself,
+    // so it does not matter which day it was scheduled for.
+    timeManager.schedule(timeManager.getCurrentDay(), new Transition(contract));
+  }
+
+  /**
+   * Keeps a contract in the status bucket of the current day, then drops it
+   * the day after it ends.
+   *
+   * <p>Runs on the day it is registered and on the start day, the end day and
+   * the day after it, or on the first day time jumps to past them.
+   */
+  private final class Transition implements DayTask {
+    private final Contract contract;
+    private boolean indexed;
+
+    Transition(Contract contract) {
+      this.contract = contract;
+    }
+
+    @Override
+    public int run(int day) {
+      int currentDay = timeManager.getCurrentDay();
+      if (indexed) {
+        ContractStatus from = contract.getStatus();
+        contractsByStatus.get(from).remove(contract.getContractId());
+        statusCounts.decrementAndGet(from.ordinal());
+        if (currentDay > contract.getEndDay()) {
+          expired.add(contract);
+          return DONE;
+        }
+      }
+      ContractStatus to = contract.statusAt(currentDay);
+      contract.setStatus(to);
+      contractsByStatus.get(to).put(contract.getContractId(), contract);
+      statusCounts.incrementAndGet(to.ordinal());
+      indexed = true;
+      int next;
+      switch (to) {
+        case SCHEDULED:
+          next = contract.getStartDay();
+          break;
+        case ACTIVE:
+          next = contract.getEndDay();
+          break;
+        default:
+          next = contract.getEndDay() + 1;
+      }
+      // A contract that ended before it was registered is dropped on the next advance.
+      return Math.max(next, currentDay + 1);
+    }
+  }
+
+  private static Map<ContractStatus, NavigableMap<String, Contract>> newStatusIndex() {
+    Map<ContractStatus, NavigableMap<String, Contract>> index = new EnumMap<>(ContractStatus.class);
+    for (ContractStatus s : ContractStatus.values()) {
+      index.put(s, new ConcurrentSkipListMap<>());
+    }
+    return index;
+  }
+
+  private static void index(Map<String, NavigableMap<String, Contract>> index, String memberId,
+      Contract contract) {
+    index.compute(memberId, (id, contracts) -> {
+      NavigableMap<String, Contract> m = contracts != null ? contracts : new ConcurrentSkipListMap<>();
+      m.put(contract.getContractId(), contract);
+      return m;
+    });
+  }
+
+  private static void unindex(Map<String, NavigableMap<String, Contract>> index, String memberId,
+      Contract contract) {
+    index.computeIfPresent(memberId, (id, contracts) -> {
+      contracts.remove(contract.getContractId());
+      return contracts.isEmpty() ? null : contracts;
+    });
+  }
+
+  /**
+   * Generate an unused ID for the contract.
 
    * @return    --> id.
    */
   private String generateId() {
-    String chars = "ABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789";
-    StringBuilder sb = new StringBuilder(6);
-    for (int i = 0; i < 6; i++) {
-      sb.append(chars.charAt(rnd.nextInt(chars.length())));
-    }
-    return sb.toString();
+    return ids.nextId();
+  }
+
+  // Ids for a batch of new contracts.
+  String[] generateIds(int count) {
+    return ids.nextIds(count);
   }
 
   public Contract getContractById(String id) {
@@ -111,7 +375,92 @@ public class ContractManager {
     return Collections.unmodifiableCollection(contractsById.values());
   }
 
-  public void cleanUpExpiredContracts(int currentDay) {
-    contractsById.values().removeIf(c -> currentDay >= c.getEndDay() + 1);
+  /**
+   * Contracts with a given status, in id order.
+   *
+   * @param status    --> The status.
+   * @param afterId   --> Id to continue after, null to start from the first contract.
+   * @return          --> Read-only live view.
+   */
+  public Collection<Contract> listContracts(ContractStatus status, String afterId) {
+    NavigableMap<String, Contract> bucket = contractsByStatus.get(status);
+    return Collections.unmodifiableCollection((afterId == null ? bucket : bucket.tailMap(afterId, false)).values());
+  }
+
+  /**
+   * Contracts with an id after the given one, in id order.
+   *
+   * @param afterId   --> Id to continue after, null to start from the first contract.
+   * @return          --> Read-only live view.
+   */
+  public Collection<Contract> listContractsAfter(String afterId) {
+    NavigableMap<String, Contract> tail = afterId == null ? contractsById : contractsById.tailMap(afterId, false);
+    return Collections.unmodifiableCollection(tail.values());
+  }
+
+  /**
+   * Number of contracts with a given status, without visiting them.
+   *
+   * @param status    --> The status.
+   * @return          --> The count.
+   */
+  public int countContracts(ContractStatus status) {
+    return statusCounts.get(status.ordinal());
+  }
+
+  /**
+   * Contracts where the member is the borrower, in id order.
+   *
+   * @param memberId    --> Id of the borrower, may belong to a deleted member.
+   * @return            --> Read-only live view, empty if there are none.
+   */
+  public Collection<Contract> listContractsForBorrower(String memberId) {
+    return view(contractsByBorrower.get(memberId));
+  }
+
+  /**
+   * Contracts where the member is the lender, in id order.
+   *
+   * @param memberId    --> Id of the lender, may belong to a deleted member.
+   * @return            --> Read-only live view, empty if there are none.
+   */
+  public Collection<Contract> listContractsForLender(String memberId) {
+    return view(contractsByLender.get(memberId));
+  }
+
+  private static Collection<Contract> view(NavigableMap<String, Contract> contracts) {
+    return contracts == null ? Collections.emptyList() : Collections.unmodifiableCollection(contracts.values());
+  }
+
+  /**
+   * Drop the contracts that expired and publish the day, after the TimeManager advanced to it.
+   *
+   * <p>Readers see the new day and the dropped contracts together.
+   *
+   * <p>The statuses were already moved by the Transition tasks of the
+   * contracts whose status changed, so days where nothing starts, ends or
+   * expires cost next to nothing.
+   *
+   * @param currentDay    --> The current day.
+   */
+  public void runTransitions(int currentDay) {
+    VersionStore.Change published = versions.change().day(currentDay);
+    for (Contract c = expired.poll(); c != null; c = expired.poll()) {
+      published.contractRemoved(c);
+      contractsById.remove(c.getContractId());
+      unindex(contractsByBorrower, c.getBorrower().getMemberId(), c);
+      unindex(contractsByLender, c.getLender().getMemberId(), c);
+      Item item = itemManager.getItemById(c.getItem().getId());
+      if (item != null) {
+        int[] held = locks.lock(item.getId());
+        try {
+          item.removeContract(c);
+        } finally {
+          locks.unlock(held);
+        }
+      }
+    }
+    // Only advancing days changes the day or drops contracts, one at a time.
+    published.commit();
   }
 }
\ No newline at end of file
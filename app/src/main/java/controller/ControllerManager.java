@@ -1,12 +1,25 @@
 package controller;
 
 import controller.dto.ContractDto;
+import controller.dto.CreditEntry;
 import controller.dto.ItemDto;
 import controller.dto.MemberDto;
+import controller.dto.MemberReport;
+import controller.dto.Page;
+import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import model.Contract;
+import model.ContractStatus;
 import model.Item;
 import model.ItemCatagory;
 import model.Member;
@@ -15,28 +28,62 @@ import model.TimeManager;
 /**
  * Main controller, manages interaction between the other controllers
  * and the Model and View layers.
+ *
+ * <p>All operations may be called from several threads at once.
+ *
+ * <p>Members, items and contracts handed out are copies, changing them does
+ * not change the system, only the operations here do.
  */
 public class ControllerManager {
+  private static final int LOCK_STRIPES = 256;
+
   private final MemberManager memberManager;
   private final ItemManager itemManager;
   private final ContractManager contractManager;
   private final TimeManager timeManager;
+  private final VersionStore versions;
+  private final Metrics metrics;
+  // Changes hold the read side while they run and report to the listener,
+  // checkpoints take the write side to see a state that matches the journal.
+  private final ReadWriteLock changeGate = new ReentrantReadWriteLock();
+  private volatile ChangeListener changes = ChangeListener.NONE;
 
   /**
    * Start an instance with hardcoded data.
    */
   public static ControllerManager createWithHardCodedData() {
-    TimeManager tm = new TimeManager();
-    MemberManager mm = new MemberManager();
-    ItemManager im = new ItemManager(mm, tm);
-    ContractManager cm = new ContractManager(mm, im, tm);
-
-    ControllerManager controller = new ControllerManager(mm, im, cm, tm);
+    ControllerManager controller = createEmpty();
     HardCodedPersistenceManager loader = new HardCodedPersistenceManager(controller);
     loader.loadSampleData();
     return controller;
   }
 
+  /**
+   * Start an instance without any data.
+   */
+  public static ControllerManager createEmpty() {
+    return createEmpty(CounterIdGenerator.forMembers(), CounterIdGenerator.forItems(),
+        CounterIdGenerator.forContracts());
+  }
+
+  /**
+   * Start an instance without any data that takes its ids from the given generators.
+   *
+   * @param memberIds     --> Generator for member ids.
+   * @param itemIds       --> Generator for item ids.
+   * @param contractIds   --> Generator for contract ids.
+   * @return              --> The instance.
+   */
+  static ControllerManager createEmpty(IdGenerator memberIds, IdGenerator itemIds, IdGenerator contractIds) {
+    TimeManager tm = new TimeManager();
+    LockStripes locks = new LockStripes(LOCK_STRIPES);
+    VersionStore versions = new VersionStore();
+    MemberManager mm = new MemberManager(memberIds, locks, versions);
+    ItemManager im = new ItemManager(mm, tm, locks, itemIds, versions);
+    ContractManager cm = new ContractManager(mm, im, tm, locks, contractIds, versions);
+    return new ControllerManager(mm, im, cm, tm);
+  }
+
   /**
    * Constructor.
    *
@@ -50,18 +97,229 @@ public class ControllerManager {
     this.itemManager = it;
     this.contractManager = cm;
     this.timeManager = tm;
+    this.versions = mm.getVersions();
+    this.metrics = new Metrics(this);
+  }
+
+  // Package-private, used by the persistence managers.
+  MemberManager getMemberManager() {
+    return memberManager;
+  }
+
+  ItemManager getItemManager() {
+    return itemManager;
+  }
+
+  ContractManager getContractManager() {
+    return contractManager;
+  }
+
+  TimeManager getTimeManager() {
+    return timeManager;
+  }
+
+  VersionStore getVersions() {
+    return versions;
+  }
+
+  /**
+   * Calls and latencies of the operations below, and gauges of what the system holds.
+   *
+   * @return    --> The metrics of this instance.
+   */
+  public Metrics getMetrics() {
+    return metrics;
+  }
+
+  void setChangeListener(ChangeListener listener) {
+    memberManager.setChangeListener(listener);
+    this.changes = listener;
+  }
+
+  /**
+   * Run an action while no change is in progress.
+   *
+   * @param action    --> To run.
+   */
+  void runExclusive(Runnable action) {
+    Lock gate = changeGate.writeLock();
+    gate.lock();
+    try {
+      action.run();
+    } finally {
+      gate.unlock();
+    }
+  }
+
+  /**
+   * Open a consistent view of members, items and contracts as they are now.
+   *
+   * <p>Reading through the view never blocks changes and is never blocked by
+   * them, however long it stays open. It must be closed when done.
+   *
+   * @return    --> The view.
+   */
+  public ReadView openReadView() {
+    return timed(Operation.OPEN_READ_VIEW, () -> new ReadView(versions));
+  }
+
+  /**
+   * Map at most pageSize entries of an id ordered view.
+   *
+   * <p>Looks one entry ahead so the last page has no cursor. The cursor is the
+   * id of the last entry, it stays valid when entries are added or removed.
+   *
+   * @param view        --> Entries after the cursor, in id order.
+   * @param pageSize    --> Maximum number of entries on the page.
+   * @param id          --> Id of an entry.
+   * @param toDto       --> Maps an entry.
+   * @return            --> The page.
+   */
+  private static <E, D> Page<D> page(Collection<E> view, int pageSize, Function<E, String> id,
+      Function<E, D> toDto) {
+    return page(view, pageSize, id, e -> true, toDto);
+  }
+
+  /**
+   * Map at most pageSize entries of an ordered view that pass a filter.
+   *
+   * <p>Looks ahead to the next entry that passes, so the last page has no cursor.
+   *
+   * @param view        --> Entries after the cursor, in cursor order.
+   * @param pageSize    --> Maximum number of entries on the page.
+   * @param cursor      --> Cursor of an entry.
+   * @param filter      --> Entries to keep.
+   * @param toDto       --> Maps an entry.
+   * @return            --> The page.
+   */
+  private static <E, D> Page<D> page(Collection<E> view, int pageSize, Function<E, String> cursor,
+      Predicate<E> filter, Function<E, D> toDto) {
+    if (pageSize <= 0) {
+      throw new IllegalArgumentException("Page size must be positive");
+    }
+    List<D> items = new ArrayList<>(Math.min(pageSize, 64));
+    Iterator<E> it = view.iterator();
+    E last = null;
+    while (it.hasNext()) {
+      E e = it.next();
+      if (!filter.test(e)) {
+        continue;
+      } else if (items.size() == pageSize) {
+        return new Page<>(items, cursor.apply(last));
+      }
+      last = e;
+      items.add(toDto.apply(e));
+    }
+    return new Page<>(items, null);
+  }
+
+  /**
+   * Run a change guarded against checkpoints, then wait for the change listener to commit it.
+   *
+   * <p>The managers report what changed to the listener themselves, while
+   * they hold the stripes, so the listener sees changes in the order they
+   * were made.
+   *
+   * @param change    --> The change.
+   * @return          --> The result of the change.
+   */
+  <T> T change(Supplier<T> change) {
+    ChangeListener listener = changes;
+    if (listener == ChangeListener.NONE) {
+      return change.get();
+    }
+    Lock gate = changeGate.readLock();
+    gate.lock();
+    T result;
+    try {
+      result = change.get();
+    } finally {
+      gate.unlock();
+    }
+    listener.commit();
+    return result;
+  }
+
+  /**
+   * Run an operation and record it in the metrics, failed calls included.
+   *
+   * @param op      --> The operation.
+   * @param call    --> Runs it.
+   * @return        --> What it returned.
+   */
+  private <T> T timed(Operation op, Supplier<T> call) {
+    LatencyHistogram histogram = metrics.histogram(op);
+    long start = histogram.start();
+    try {
+      return call.get();
+    } catch (RuntimeException | Error e) {
+      histogram.failed();
+      throw e;
+    } finally {
+      histogram.stop(start);
+    }
   }
 
   /* ==== === ==== ==== === ==== */
   /* ==== Member operations ==== */
   /* ==== === ==== ==== === ==== */
   public Member createMember(String name, String email, String phone) {
-    return memberManager.createMember(name, email, phone, timeManager.getCurrentDay());
+    return timed(Operation.CREATE_MEMBER, () -> memberManager.detach(change(
+        () -> memberManager.createMember(name, email, phone, timeManager.getCurrentDay()))));
+  }
+
+  public Member setCredits(String memberId, int credits) {
+    return timed(Operation.SET_CREDITS,
+        () -> memberManager.detach(change(() -> memberManager.setCredits(memberId, credits))));
   }
 
   public MemberDto getMemberDtoById(String id) {
-    Member member = memberManager.getMemberById(id);
-    return (member != null) ? new MemberDto(member) : null;
+    return timed(Operation.GET_MEMBER_DTO, () -> versions.member(id, Long.MAX_VALUE));
+  }
+
+  /**
+   * Members whose name starts with a prefix, ignoring case.
+   *
+   * @param prefix  --> Start of the name.
+   * @param limit   --> Maximum number of members.
+   * @return        --> The members, ordered by name.
+   */
+  public List<MemberDto> findMembersByName(String prefix, int limit) {
+    return timed(Operation.FIND_MEMBERS_BY_NAME, () -> memberDtos(memberManager.findMembersByName(prefix, limit)));
+  }
+
+  /**
+   * Members whose email starts with a prefix, ignoring case.
+   *
+   * @param prefix  --> Start of the email.
+   * @param limit   --> Maximum number of members.
+   * @return        --> The members, ordered by email.
+   */
+  public List<MemberDto> findMembersByEmail(String prefix, int limit) {
+    return timed(Operation.FIND_MEMBERS_BY_EMAIL, () -> memberDtos(memberManager.findMembersByEmail(prefix, limit)));
+  }
+
+  /**
+   * Members whose phone number starts with a prefix.
+   *
+   * @param prefix  --> Start of the phone number.
+   * @param limit   --> Maximum number of members.
+   * @return        --> The members, ordered by phone number.
+   */
+  public List<MemberDto> findMembersByPhone(String prefix, int limit) {
+    return timed(Operation.FIND_MEMBERS_BY_PHONE, () -> memberDtos(memberManager.findMembersByPhone(prefix, limit)));
+  }
+
+  // Published copies of the members, leaving out any deleted since they were found.
+  private List<MemberDto> memberDtos(List<Member> members) {
+    List<MemberDto> dtos = new ArrayList<>(members.size());
+    for (Member m : members) {
+      MemberDto dto = versions.member(m.getMemberId(), Long.MAX_VALUE);
+      if (dto != null) {
+        dtos.add(dto);
+      }
+    }
+    return dtos;
   }
 
   /**
@@ -71,13 +329,11 @@ public class ControllerManager {
    * @return            --> The items, assuming there are any.
    */
   public Collection<ItemDto> getOwnedItemsForMember(String memberId) {
-    Member member = memberManager.getMemberById(memberId);
-    if (member == null) { 
-      return Collections.emptyList();
-    }
-    return member.getOwnedItems().stream()
-        .map(ItemDto::new)
-        .collect(Collectors.toList());
+    return timed(Operation.GET_OWNED_ITEMS, () -> {
+      try (ReadView view = new ReadView(versions)) {
+        return new ArrayList<>(view.getOwnedItems(memberId));
+      }
+    });
   }
 
   /**
@@ -86,37 +342,130 @@ public class ControllerManager {
    * @return    --> Dto.
    */
   public Collection<MemberDto> listMembers() {
-    return memberManager.listMembers().stream()
-        .map(MemberDto::new)
-        .collect(Collectors.toList());
+    return timed(Operation.LIST_MEMBERS, () -> {
+      try (ReadView view = new ReadView(versions)) {
+        return new ArrayList<>(view.listMembers(null));
+      }
+    });
+  }
+
+  /**
+   * One page of members in creation order.
+   *
+   * @param cursor      --> From the previous page, null for the first page.
+   * @param pageSize    --> Maximum number of members on the page.
+   * @return            --> The page.
+   */
+  public Page<MemberDto> listMembers(String cursor, int pageSize) {
+    return timed(Operation.LIST_MEMBERS_PAGE, () -> {
+      try (ReadView view = new ReadView(versions)) {
+        return page(view.listMembers(cursor), pageSize, MemberDto::getMemberId, m -> m);
+      }
+    });
+  }
+
+  /**
+   * Every member with the items they own and each item's contracts, as of one moment.
+   *
+   * <p>Built in one pass over the members and their items, for the verbose
+   * member listing, instead of asking for the items and contracts of every
+   * member one by one.
+   *
+   * @return    --> One report per member, in creation order.
+   */
+  public List<MemberReport> getMemberReport() {
+    return timed(Operation.MEMBER_REPORT, () -> {
+      try (ReadView view = new ReadView(versions)) {
+        return view.getMemberReport();
+      }
+    });
+  }
+
+  /**
+   * Lazily map every member in creation order, without copying the whole listing.
+   *
+   * @return    --> Stream over the latest copies, close to the state at the time it is consumed.
+   */
+  public Stream<MemberDto> streamMembers() {
+    return timed(Operation.STREAM_MEMBERS, () -> versions.members(null, Long.MAX_VALUE).stream());
   }
 
   public Member getMemberById(String id) {
-    return memberManager.getMemberById(id);
+    return timed(Operation.GET_MEMBER, () -> memberManager.detach(memberManager.getMemberById(id)));
   }
 
+  /**
+   * Change the info of a member.
+   *
+   * @param id          --> Of the member.
+   * @param newName     --> New name.
+   * @param newEmail    --> New email.
+   * @param newPhone    --> New phone.
+   */
   public void updateMember(String id, String newName, String newEmail, String newPhone) {
-    memberManager.updateMemberInfo(id, newName, newEmail, newPhone);
+    timed(Operation.UPDATE_MEMBER, () -> change(() -> {
+      memberManager.updateMemberInfo(id, newName, newEmail, newPhone);
+      return id;
+    }));
   }
 
+  /**
+   * Remove a member.
+   *
+   * @param id    --> Of the member.
+   */
   public void deleteMember(String id) {
-    memberManager.deleteMember(id);
+    timed(Operation.DELETE_MEMBER, () -> change(() -> {
+      memberManager.deleteMember(id);
+      return id;
+    }));
+  }
+
+  /**
+   * Latest credit movements of a member, with the balance each one left.
+   *
+   * @param memberId    --> Of the member, may have been deleted.
+   * @param limit       --> Maximum number of entries.
+   * @return            --> The entries, newest first.
+   */
+  public List<CreditEntry> getCreditStatement(String memberId, int limit) {
+    return timed(Operation.GET_CREDIT_STATEMENT, () -> memberManager.getLedger().statement(memberId, limit));
+  }
+
+  /**
+   * Credit movements of all members in the order they happened, for auditing.
+   *
+   * @param from    --> Sequence of the first entry, 0 for the start of the ledger.
+   * @param limit   --> Maximum number of entries.
+   * @return        --> The entries.
+   */
+  public List<CreditEntry> getCreditEntries(long from, int limit) {
+    return timed(Operation.GET_CREDIT_ENTRIES, () -> memberManager.getLedger().entries(from, limit));
+  }
+
+  /**
+   * Check every member's credits against the balance of their ledger entries.
+   *
+   * @return    --> Ids of the members that do not match, empty when all do.
+   */
+  public List<String> reconcileCredits() {
+    return timed(Operation.RECONCILE_CREDITS, memberManager::reconcile);
   }
 
   /* === === ==== ==== === === */
   /* ==== Item operations ==== */
   /* === === ==== ==== === === */
   public Item getItemById(String id) {
-    return itemManager.getItemById(id);
+    return timed(Operation.GET_ITEM, () -> itemManager.detach(itemManager.getItemById(id)));
   }
 
   public ItemDto getItemDtoById(String id) {
-    Item item = itemManager.getItemById(id);
-    return (item != null) ? new ItemDto(item) : null;
+    return timed(Operation.GET_ITEM_DTO, () -> versions.item(id, Long.MAX_VALUE));
   }
 
   public Item createItem(String ownerId, ItemCatagory category, String name, String desc, int costPerDay) {
-    return itemManager.createItem(ownerId, category, name, desc, costPerDay);
+    return timed(Operation.CREATE_ITEM, () -> itemManager.detach(change(
+        () -> itemManager.createItem(ownerId, category, name, desc, costPerDay))));
   }
 
   /**
@@ -125,29 +474,177 @@ public class ControllerManager {
    * @return    --> Dto.
    */
   public Collection<ItemDto> listItems() {
-    return itemManager.listitems().stream()
-        .map(ItemDto::new)
-        .collect(Collectors.toList());
+    return timed(Operation.LIST_ITEMS, () -> {
+      try (ReadView view = new ReadView(versions)) {
+        return new ArrayList<>(view.listItems(null));
+      }
+    });
+  }
+
+  /**
+   * One page of items in creation order.
+   *
+   * @param cursor      --> From the previous page, null for the first page.
+   * @param pageSize    --> Maximum number of items on the page.
+   * @return            --> The page.
+   */
+  public Page<ItemDto> listItems(String cursor, int pageSize) {
+    return timed(Operation.LIST_ITEMS_PAGE, () -> {
+      try (ReadView view = new ReadView(versions)) {
+        return page(view.listItems(cursor), pageSize, ItemDto::getId, i -> i);
+      }
+    });
+  }
+
+  /**
+   * Lazily map every item in creation order, without copying the whole listing.
+   *
+   * @return    --> Stream over the latest copies, close to the state at the time it is consumed.
+   */
+  public Stream<ItemDto> streamItems() {
+    return timed(Operation.STREAM_ITEMS, () -> versions.items(null, Long.MAX_VALUE).stream());
+  }
+
+  /**
+   * Find the items of a category that are free for a whole period and cost at most so much.
+   *
+   * <p>Walks the cost index of the category from minCost up, checking each item's
+   * contracts in O(log n), so items outside the category or price range are never visited.
+   *
+   * @param category    --> Of the items.
+   * @param minCost     --> Lowest cost per day, inclusive.
+   * @param maxCost     --> Highest cost per day, inclusive.
+   * @param startDay    --> Start of the period.
+   * @param endDay      --> End of the period.
+   * @param cursor      --> From the previous page, null for the first page.
+   * @param pageSize    --> Maximum number of items on the page.
+   * @return            --> The page, cheapest items first.
+   */
+  public Page<ItemDto> searchAvailableItems(ItemCatagory category, int minCost, int maxCost, int startDay,
+      int endDay, String cursor, int pageSize) {
+    return timed(Operation.SEARCH_AVAILABLE_ITEMS, () -> {
+      if (category == null) {
+        throw new IllegalArgumentException("Category is required");
+      }
+      return page(itemManager.listItemsByCost(category, minCost, maxCost, cursor), pageSize,
+          ItemManager::costCursor, i -> itemManager.isAvailable(i, startDay, endDay),
+          i -> versions.item(i.getId(), Long.MAX_VALUE));
+    });
   }
 
+  /**
+   * Find items by the words in their name and description.
+   *
+   * <p>Every word of the query must start a word of the item, query words of
+   * fewer than three characters must match a whole word; words in the name
+   * and rare words count for more, and a whole word for more than a prefix.
+   *
+   * @param query       --> Words to look for.
+   * @param category    --> Only items of this category, null for all.
+   * @param limit       --> Maximum number of items.
+   * @return            --> The items, best match first.
+   */
+  public List<ItemDto> searchItems(String query, ItemCatagory category, int limit) {
+    return timed(Operation.SEARCH_ITEMS, () -> {
+      List<ItemDto> found = new ArrayList<>();
+      for (String id : itemManager.searchItems(query, category, limit)) {
+        // Null if deleted since the search.
+        ItemDto item = versions.item(id, Long.MAX_VALUE);
+        if (item != null) {
+          found.add(item);
+        }
+      }
+      return found;
+    });
+  }
+
+  /**
+   * Change the info of an item.
+   *
+   * @param id        --> Of the item.
+   * @param newName   --> New name, kept if blank.
+   * @param newDesc   --> New description, kept if null.
+   * @param newCost   --> New cost per day, kept if null.
+   */
   public void updateItemInfo(String id, String newName, String newDesc, Integer newCost) {
-    itemManager.updateItemInfo(id, newName, newDesc, newCost);
+    timed(Operation.UPDATE_ITEM, () -> change(() -> {
+      itemManager.updateItemInfo(id, newName, newDesc, newCost);
+      return id;
+    }));
   }
 
+  /**
+   * Remove an item.
+   *
+   * @param id    --> Of the item.
+   */
   public void deleteItem(String id) {
-    itemManager.deleateItem(id);
+    timed(Operation.DELETE_ITEM, () -> change(() -> {
+      itemManager.deleateItem(id);
+      return id;
+    }));
+  }
+
+  /**
+   * Give an item to another member.
+   *
+   * @param id            --> Of the item.
+   * @param newOwnerId    --> Of the member receiving it.
+   */
+  public void transferItem(String id, String newOwnerId) {
+    timed(Operation.TRANSFER_ITEM,
+        () -> change(() -> itemManager.transferItem(id, newOwnerId)));
   }
 
   /* ==== ==== ==== ==== ==== ==== */
   /* ==== Contract operations ==== */
   /* ==== ==== ==== ==== ==== ==== */
   public Contract createContract(String borrowerId, String itemId, int startDay, int endDay) {
-    return contractManager.createContract(borrowerId, itemId, startDay, endDay);
+    return timed(Operation.CREATE_CONTRACT, () -> new Contract(change(
+        () -> contractManager.createContract(borrowerId, itemId, startDay, endDay))));
+  }
+
+  /**
+   * Book an item for a borrower from another shard who was charged already.
+   *
+   * @param borrower  --> The borrower, as charged by its own shard.
+   * @param itemId    --> The id of the item being borrowed.
+   * @param startDay  --> Start day of contract.
+   * @param endDay    --> End day of contract.
+   * @param paid      --> Credits charged.
+   * @return          --> Contract.
+   */
+  Contract createPaidContract(Member borrower, String itemId, int startDay, int endDay, int paid) {
+    return timed(Operation.CREATE_CONTRACT, () -> new Contract(change(
+        () -> contractManager.createPaidContract(borrower, itemId, startDay, endDay, paid))));
+  }
+
+  /**
+   * Take the cost of a booking on another shard from a borrower of this one.
+   *
+   * @param borrowerId  --> The borrower.
+   * @param cost        --> Credits to take.
+   * @return            --> The live borrower, for refund() and createPaidContract().
+   */
+  Member charge(String borrowerId, int cost) {
+    return change(() -> contractManager.charge(borrowerId, cost));
+  }
+
+  /**
+   * Give back what charge() took.
+   *
+   * @param borrower  --> As returned by charge().
+   * @param cost      --> Credits to give back.
+   */
+  void refund(Member borrower, int cost) {
+    change(() -> {
+      contractManager.refund(borrower, cost);
+      return null;
+    });
   }
 
   public ContractDto createContractDtoAndGeDto(String borrowerId, String itemId, int startDay, int endDay) {
-    Contract c = createContract(borrowerId, itemId, startDay, endDay);
-    return new ContractDto(c, timeManager.getCurrentDay());
+    return toDto(createContract(borrowerId, itemId, startDay, endDay));
   }
 
   /**
@@ -156,16 +653,65 @@ public class ControllerManager {
    * @return    --> Dto.
    */
   public Collection<ContractDto> listContracts() {
-    return contractManager.listContracts().stream()
-        .map(c -> new ContractDto(
-          c.getContractId(),
-          c.getItem().getName(),
-          c.getBorrower().getName(),
-          c.getStartDay(),
-          c.getEndDay(),
-          c.statusAt(timeManager.getCurrentDay())
-        ))
-        .collect(Collectors.toList());
+    return timed(Operation.LIST_CONTRACTS, () -> {
+      try (ReadView view = new ReadView(versions)) {
+        return new ArrayList<>(view.listContracts(null));
+      }
+    });
+  }
+
+  /**
+   * One page of contracts in creation order.
+   *
+   * @param cursor      --> From the previous page, null for the first page.
+   * @param pageSize    --> Maximum number of contracts on the page.
+   * @return            --> The page.
+   */
+  public Page<ContractDto> listContracts(String cursor, int pageSize) {
+    return timed(Operation.LIST_CONTRACTS_PAGE, () -> {
+      try (ReadView view = new ReadView(versions)) {
+        return page(view.listContracts(cursor), pageSize, c -> c.id, c -> c);
+      }
+    });
+  }
+
+  /**
+   * One page of the contracts with a given status, in creation order.
+   *
+   * <p>Only contracts with that status are visited, statuses are kept up to
+   * date when time advances instead of being worked out on every read.
+   *
+   * @param status      --> The status.
+   * @param cursor      --> From the previous page, null for the first page.
+   * @param pageSize    --> Maximum number of contracts on the page.
+   * @return            --> The page.
+   */
+  public Page<ContractDto> listContracts(ContractStatus status, String cursor, int pageSize) {
+    return timed(Operation.LIST_CONTRACTS_BY_STATUS, () -> page(contractManager.listContracts(status, cursor),
+        pageSize, Contract::getContractId, this::toDto));
+  }
+
+  /**
+   * Lazily map every contract in creation order, without copying the whole listing.
+   *
+   * @return    --> Stream over a live view, close to the state at the time it is consumed.
+   */
+  public Stream<ContractDto> streamContracts() {
+    return timed(Operation.STREAM_CONTRACTS, () -> contractManager.listContracts().stream().map(this::toDto));
+  }
+
+  /**
+   * Number of contracts with a given status, in constant time.
+   *
+   * @param status  --> The status.
+   * @return        --> The count.
+   */
+  public int countContracts(ContractStatus status) {
+    return timed(Operation.COUNT_CONTRACTS, () -> contractManager.countContracts(status));
+  }
+
+  private ContractDto toDto(Contract c) {
+    return new ContractDto(c);
   }
 
   /**
@@ -175,31 +721,64 @@ public class ControllerManager {
    * @return          --> The contracts.
    */
   public Collection<ContractDto> getContractsForItem(String itemId) {
-    Item item = itemManager.getItemById(itemId);
-    if (item == null) {
-      return Collections.emptyList();
-    }
-    return item.getContracts().stream()
-        .map(c -> new ContractDto(
-          c.getContractId(),
-          c.getItem().getName(),
-          c.getBorrower().getName(),
-          c.getStartDay(),
-          c.getEndDay(),
-          c.statusAt(timeManager.getCurrentDay())
-        ))
-        .collect(Collectors.toList());
+    return timed(Operation.GET_CONTRACTS_FOR_ITEM, () -> {
+      try (ReadView view = new ReadView(versions)) {
+        return new ArrayList<>(view.getContractsForItem(itemId));
+      }
+    });
+  }
+
+  /**
+   * Contracts the member is borrowing under, without scanning other members' contracts.
+   *
+   * @param memberId    --> Of the borrower.
+   * @return            --> The contracts in creation order.
+   */
+  public Collection<ContractDto> getContractsForBorrower(String memberId) {
+    return timed(Operation.GET_CONTRACTS_FOR_BORROWER, () -> contractManager.listContractsForBorrower(memberId)
+        .stream()
+        .map(this::toDto)
+        .collect(Collectors.toList()));
+  }
+
+  /**
+   * Contracts for items the member lends out, without scanning other members' contracts.
+   *
+   * @param memberId    --> Of the lender.
+   * @return            --> The contracts in creation order.
+   */
+  public Collection<ContractDto> getContractsForLender(String memberId) {
+    return timed(Operation.GET_CONTRACTS_FOR_LENDER, () -> contractManager.listContractsForLender(memberId)
+        .stream()
+        .map(this::toDto)
+        .collect(Collectors.toList()));
   }
 
   /* ==== === === === === ==== */
   /* ==== Time operations ==== */
   /* ==== === === === === ==== */
   public int getCurrentDay() {
-    return timeManager.getCurrentDay();
+    return timed(Operation.GET_CURRENT_DAY, timeManager::getCurrentDay);
+  }
+
+  // Throws what advanceDay() would throw before changing anything.
+  void checkAdvance(int days) {
+    timeManager.checkAdvance(days);
   }
 
-  public void advanceDay(int days) {
-    timeManager.advanceDay(days);
-    contractManager.cleanUpExpiredContracts(timeManager.getCurrentDay());
+  /**
+   * Move time forward and drop the contracts that expired.
+   *
+   * @param days    --> To advance by.
+   */
+  public synchronized void advanceDay(int days) {
+    timed(Operation.ADVANCE_DAY, () -> change(() -> {
+      timeManager.advanceDay(days);
+      contractManager.runTransitions(timeManager.getCurrentDay());
+      // Bookings made meanwhile may be reported on either side of this, their
+      // transitions read the current day so replaying them ends the same.
+      changes.dayAdvanced(days);
+      return days;
+    }));
   }
 }
@@ -0,0 +1,152 @@
+package controller;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Collision-free id generator backed by an atomic counter.
+ *
+ * <p>The counter is written as a fixed-width number in the given alphabet,
+ * so ids keep the same length and characters as before but never repeat,
+ * and no lookup or retry is needed to find a free one.
+ *
+ * <p>A generator can also hand out every stride-th value from an offset, so
+ * several generators share one id space without ever colliding.
+ */
+public class CounterIdGenerator implements IdGenerator {
+  private static final String DIGITS = "0123456789";
+  private static final String ALPHANUMERIC = "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZ";
+
+  private final String alphabet;
+  private final int width;
+  private final long capacity;
+  private final long offset;
+  private final long stride;
+  // Index of the next value, the value is offset + index * stride.
+  private final AtomicLong next = new AtomicLong();
+
+  /**
+   * Constructor.
+   *
+   * @param alphabet  --> Characters to write ids with, lowest digit first.
+   * @param width     --> Length of every id.
+   */
+  public CounterIdGenerator(String alphabet, int width) {
+    this(alphabet, width, 0, 1);
+  }
+
+  /**
+   * Constructor for one of several generators sharing an id space.
+   *
+   * @param alphabet  --> Characters to write ids with, lowest digit first.
+   * @param width     --> Length of every id.
+   * @param offset    --> First value, below stride.
+   * @param stride    --> Distance between values.
+   */
+  public CounterIdGenerator(String alphabet, int width, int offset, int stride) {
+    if (stride <= 0 || offset < 0 || offset >= stride) {
+      throw new IllegalArgumentException("Offset must be in [0, stride)");
+    }
+    this.alphabet = alphabet;
+    this.width = width;
+    this.offset = offset;
+    this.stride = stride;
+    long cap = 1;
+    for (int i = 0; i < width; i++) {
+      cap = Math.multiplyExact(cap, alphabet.length());
+    }
+    this.capacity = cap;
+  }
+
+  // 6 characters, A-Z and 0-9.
+  public static CounterIdGenerator forMembers() {
+    return new CounterIdGenerator(ALPHANUMERIC, 6);
+  }
+
+  // Same shape, every shards-th value from shard.
+  static CounterIdGenerator forMembers(int shard, int shards) {
+    return new CounterIdGenerator(ALPHANUMERIC, 6, shard, shards);
+  }
+
+  // 8 digits.
+  public static CounterIdGenerator forItems() {
+    return new CounterIdGenerator(DIGITS, 8);
+  }
+
+  // Same shape, every shards-th value from shard.
+  static CounterIdGenerator forItems(int shard, int shards) {
+    return new CounterIdGenerator(DIGITS, 8, shard, shards);
+  }
+
+  // 6 characters, A-Z and 0-9.
+  public static CounterIdGenerator forContracts() {
+    return new CounterIdGenerator(ALPHANUMERIC, 6);
+  }
+
+  // Same shape, every shards-th value from shard.
+  static CounterIdGenerator forContracts(int shard, int shards) {
+    return new CounterIdGenerator(ALPHANUMERIC, 6, shard, shards);
+  }
+
+  @Override
+  public String nextId() {
+    long index = next.getAndIncrement();
+    if (offset + index * stride >= capacity) {
+      throw new IllegalStateException("Id space exhausted");
+    }
+    return encode(offset + index * stride);
+  }
+
+  // Claims the whole range with one atomic add.
+  @Override
+  public String[] nextIds(int count) {
+    long first = next.getAndAdd(count);
+    if (count > 0 && offset + (first + count - 1) * stride >= capacity) {
+      throw new IllegalStateException("Id space exhausted");
+    }
+    String[] result = new String[count];
+    for (int i = 0; i < count; i++) {
+      result[i] = encode(offset + (first + i) * stride);
+    }
+    return result;
+  }
+
+  private String encode(long value) {
+    int radix = alphabet.length();
+    char[] chars = new char[width];
+    for (int i = width - 1; i >= 0; i--) {
+      chars[i] = alphabet.charAt((int) (value % radix));
+      value /= radix;
+    }
+    return new String(chars);
+  }
+
+  /**
+   * The value an id was written from.
+   *
+   * @param id    --> The id.
+   * @return      --> The value, -1 if no generator of this shape could have written the id.
+   */
+  long valueOf(String id) {
+    if (id == null || id.length() != width) {
+      return -1;
+    }
+    long value = 0;
+    for (int i = 0; i < width; i++) {
+      int digit = alphabet.indexOf(id.charAt(i));
+      if (digit < 0) {
+        return -1;
+      }
+      value = value * alphabet.length() + digit;
+    }
+    return value;
+  }
+
+  @Override
+  public void reserve(String id) {
+    long value = valueOf(id);
+    if (value < offset || (value - offset) % stride != 0) {
+      return; // Can never collide with a generated id.
+    }
+    next.accumulateAndGet((value - offset) / stride + 1, Math::max);
+  }
+}
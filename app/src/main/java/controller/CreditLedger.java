@@ -0,0 +1,264 @@
+package controller;
+
+import controller.dto.CreditEntry;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import model.Member;
+
+/**
+ * Append-only record of every credit movement, with the balance it left.
+ *
+ * <p>Members hash onto a fixed number of segments, each with its own monitor,
+ * so appends for members in different segments do not wait for each other.
+ * A segment keeps its entries in primitive columns split into fixed size
+ * chunks, so appending writes a few array slots and allocates nothing but a
+ * new chunk every few thousand entries. Members get an int handle in their
+ * segment on their first entry; per handle the segment keeps the running
+ * balance and the offset of the last entry, and every entry links back to
+ * the member's previous one, so a statement visits only that member's
+ * entries.
+ *
+ * <p>Every entry also gets a sequence number shared by all segments, taken
+ * while its segment is locked. The sequences of a segment therefore grow
+ * with its offsets, and a sequence that was handed out is written before
+ * the segment is unlocked, which is what lets entries() merge the segments
+ * without gaps.
+ *
+ * <p>Callers append while holding the member's lock stripe, so the entries of
+ * one member are in the order their balance changed. The ledger lives in
+ * memory, after a restart members start over with an OPENING entry.
+ */
+final class CreditLedger implements Member.Ledger<CreditEntry.Kind> {
+  private static final int SEGMENTS = 64;
+  private static final int CHUNK_BITS = 10;
+  private static final int CHUNK = 1 << CHUNK_BITS;
+  private static final int NONE = -1;
+  private static final CreditEntry.Kind[] KINDS = CreditEntry.Kind.values();
+
+  private final Segment[] segments = new Segment[SEGMENTS];
+  private final AtomicLong sequence = new AtomicLong();
+
+  CreditLedger() {
+    for (int i = 0; i < SEGMENTS; i++) {
+      segments[i] = new Segment(i);
+    }
+  }
+
+  /**
+   * Record a movement of one member's credits.
+   *
+   * @param memberId  --> The member.
+   * @param kind      --> Why the credits moved.
+   * @param amount    --> Change of the balance, negative when credits were taken.
+   */
+  @Override
+  public void append(String memberId, CreditEntry.Kind kind, int amount) {
+    Segment s = segment(memberId);
+    synchronized (s) {
+      s.write(sequence.getAndIncrement(), s.handle(memberId), kind, amount);
+    }
+  }
+
+  /**
+   * Record the cost of a booking moving from borrower to lender, as two entries in a row.
+   *
+   * @param borrowerId  --> Who paid.
+   * @param lenderId    --> Who received.
+   * @param amount      --> The cost.
+   */
+  @Override
+  public void transfer(String borrowerId, String lenderId, int amount) {
+    Segment from = segment(borrowerId);
+    Segment to = segment(lenderId);
+    // Lock in segment order, so two transfers in opposite directions cannot deadlock.
+    Segment first = from.index <= to.index ? from : to;
+    Segment second = first == from ? to : from;
+    synchronized (first) {
+      synchronized (second) {
+        long seq = sequence.getAndAdd(2);
+        from.write(seq, from.handle(borrowerId), CreditEntry.Kind.PAID, -amount);
+        to.write(seq + 1, to.handle(lenderId), CreditEntry.Kind.RECEIVED, amount);
+      }
+    }
+  }
+
+  private Segment segment(String memberId) {
+    int h = memberId.hashCode();
+    return segments[(h ^ (h >>> 16)) & (SEGMENTS - 1)];
+  }
+
+  /**
+   * Balance of a member after all of their entries.
+   *
+   * @param memberId  --> The member.
+   * @return          --> The balance, 0 if the member has no entries.
+   */
+  int balance(String memberId) {
+    Segment s = segment(memberId);
+    synchronized (s) {
+      Integer h = s.handles.get(memberId);
+      return h == null ? 0 : s.balance[h];
+    }
+  }
+
+  /**
+   * Latest entries of one member.
+   *
+   * @param memberId  --> The member, may have been deleted.
+   * @param limit     --> Maximum number of entries.
+   * @return          --> The entries, newest first.
+   */
+  List<CreditEntry> statement(String memberId, int limit) {
+    if (limit <= 0) {
+      throw new IllegalArgumentException("Limit must be positive");
+    }
+    Segment s = segment(memberId);
+    List<CreditEntry> entries = new ArrayList<>(Math.min(limit, 64));
+    synchronized (s) {
+      Integer h = s.handles.get(memberId);
+      for (int e = h == null ? NONE : s.last[h]; e != NONE && entries.size() < limit; e = s.previous(e)) {
+        entries.add(s.entry(e));
+      }
+    }
+    return entries;
+  }
+
+  /**
+   * Entries of all members in the order they were appended.
+   *
+   * @param from    --> Sequence of the first entry.
+   * @param limit   --> Maximum number of entries.
+   * @return        --> The entries.
+   */
+  List<CreditEntry> entries(long from, int limit) {
+    if (from < 0 || limit <= 0) {
+      throw new IllegalArgumentException("Start must be >= 0 and limit positive");
+    }
+    // Every sequence below this was taken under a segment lock that is held
+    // until the entry is written, so locking each segment below sees them all.
+    long end = sequence.get();
+    long last = Math.min(end, from + limit);
+    List<CreditEntry> entries = new ArrayList<>();
+    for (Segment s : segments) {
+      synchronized (s) {
+        for (int e = s.first(from); e < s.size && s.sequence(e) < last; e++) {
+          entries.add(s.entry(e));
+        }
+      }
+    }
+    entries.sort(Comparator.comparingLong(CreditEntry::getSequence));
+    return entries;
+  }
+
+  /**
+   * Entries of the members that hash onto it, with their own handles.
+   */
+  private static final class Segment {
+    private final int index;
+    // Per entry, in chunks of CHUNK entries. Guarded by this.
+    private long[][] sequences = new long[0][];
+    private int[][] members = new int[0][];
+    private int[][] amounts = new int[0][];
+    private int[][] balances = new int[0][];
+    private int[][] previous = new int[0][];
+    private byte[][] kinds = new byte[0][];
+    private int size;
+
+    // Per member handle.
+    private final Map<String, Integer> handles = new HashMap<>();
+    private String[] memberIds = new String[16];
+    private int[] balance = new int[16];
+    private int[] last = new int[16];
+
+    Segment(int index) {
+      this.index = index;
+    }
+
+    private int handle(String memberId) {
+      Integer h = handles.get(memberId);
+      if (h != null) {
+        return h;
+      }
+      int next = handles.size();
+      if (next == balance.length) {
+        memberIds = Arrays.copyOf(memberIds, next * 2);
+        balance = Arrays.copyOf(balance, next * 2);
+        last = Arrays.copyOf(last, next * 2);
+      }
+      memberIds[next] = memberId;
+      last[next] = NONE;
+      handles.put(memberId, next);
+      return next;
+    }
+
+    private void write(long seq, int member, CreditEntry.Kind kind, int amount) {
+      if (size == Integer.MAX_VALUE) {
+        throw new IllegalStateException("Credit ledger is full");
+      }
+      int chunk = size >>> CHUNK_BITS;
+      if (chunk == members.length) {
+        grow();
+      }
+      int slot = size & (CHUNK - 1);
+      balance[member] += amount;
+      sequences[chunk][slot] = seq;
+      members[chunk][slot] = member;
+      amounts[chunk][slot] = amount;
+      balances[chunk][slot] = balance[member];
+      previous[chunk][slot] = last[member];
+      kinds[chunk][slot] = (byte) kind.ordinal();
+      last[member] = size++;
+    }
+
+    private void grow() {
+      int n = members.length + 1;
+      sequences = Arrays.copyOf(sequences, n);
+      members = Arrays.copyOf(members, n);
+      amounts = Arrays.copyOf(amounts, n);
+      balances = Arrays.copyOf(balances, n);
+      previous = Arrays.copyOf(previous, n);
+      kinds = Arrays.copyOf(kinds, n);
+      sequences[n - 1] = new long[CHUNK];
+      members[n - 1] = new int[CHUNK];
+      amounts[n - 1] = new int[CHUNK];
+      balances[n - 1] = new int[CHUNK];
+      previous[n - 1] = new int[CHUNK];
+      kinds[n - 1] = new byte[CHUNK];
+    }
+
+    private long sequence(int e) {
+      return sequences[e >>> CHUNK_BITS][e & (CHUNK - 1)];
+    }
+
+    private int previous(int e) {
+      return previous[e >>> CHUNK_BITS][e & (CHUNK - 1)];
+    }
+
+    // Offset of the first entry with at least that sequence, size if there is none.
+    private int first(long from) {
+      int lo = 0;
+      int hi = size;
+      while (lo < hi) {
+        int mid = (lo + hi) >>> 1;
+        if (sequence(mid) < from) {
+          lo = mid + 1;
+        } else {
+          hi = mid;
+        }
+      }
+      return lo;
+    }
+
+    private CreditEntry entry(int e) {
+      int chunk = e >>> CHUNK_BITS;
+      int slot = e & (CHUNK - 1);
+      return new CreditEntry(sequences[chunk][slot], memberIds[members[chunk][slot]], KINDS[kinds[chunk][slot]],
+          amounts[chunk][slot], balances[chunk][slot]);
+    }
+  }
+}
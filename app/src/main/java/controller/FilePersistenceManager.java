@@ -0,0 +1,468 @@
+package controller;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import model.Contract;
+import model.Item;
+import model.ItemCatagory;
+import model.Member;
+import model.TimeManager;
+
+/**
+ * Keeps the system in a directory as a snapshot plus a write-ahead journal.
+ *
+ * <p>Every change is appended to journal-N.log and made durable with group
+ * commit before the call returns. Every checkpointInterval records the full
+ * state is written to a binary snapshot (see BinarySnapshot) and a new
+ * journal is started, so a restart maps the snapshot and replays only the
+ * journal written after it. These checkpoints run on a background thread, the
+ * change that crosses the interval does not wait for them.
+ */
+public class FilePersistenceManager implements PersistenceManager, ChangeListener, Closeable {
+  private static final int DEFAULT_CHECKPOINT_INTERVAL = 100_000;
+  private static final String SNAPSHOT_FILE = "snapshot.bin";
+  private static final String JOURNAL_PREFIX = "journal-";
+  private static final String JOURNAL_SUFFIX = ".log";
+  private static final Logger LOG = Logger.getLogger(FilePersistenceManager.class.getName());
+
+  private final ControllerManager controller;
+  private final Path directory;
+  private final int checkpointInterval;
+  private final boolean fsync;
+  private final AtomicBoolean checkpointing = new AtomicBoolean();
+  private final ExecutorService checkpointer = Executors.newSingleThreadExecutor(r -> {
+    Thread t = new Thread(r, "checkpoint");
+    t.setDaemon(true);
+    return t;
+  });
+  private volatile Journal journal;
+  private volatile long generation;
+
+  /**
+   * Constructor, forces every commit to disk and checkpoints every 100 000 changes.
+   *
+   * @param controller    --> The controller to load into and record changes of.
+   * @param directory     --> Where the snapshot and journals are kept.
+   */
+  public FilePersistenceManager(ControllerManager controller, Path directory) {
+    this(controller, directory, DEFAULT_CHECKPOINT_INTERVAL, true);
+  }
+
+  /**
+   * Constructor.
+   *
+   * @param controller          --> The controller to load into and record changes of.
+   * @param directory           --> Where the snapshot and journals are kept.
+   * @param checkpointInterval  --> Journal records between snapshots.
+   * @param fsync               --> Whether commits are forced to disk.
+   */
+  public FilePersistenceManager(ControllerManager controller, Path directory, int checkpointInterval,
+      boolean fsync) {
+    this.controller = controller;
+    this.directory = directory;
+    this.checkpointInterval = checkpointInterval;
+    this.fsync = fsync;
+  }
+
+  /**
+   * Load the stored state, or the sample data if the directory is empty.
+   */
+  @Override
+  public void loadSampleData() {
+    if (open()) {
+      new HardCodedPersistenceManager(controller).loadSampleData();
+    }
+  }
+
+  /**
+   * Load the stored state and start recording changes.
+   *
+   * @return    --> True if nothing was stored yet.
+   */
+  public boolean open() {
+    try {
+      Files.createDirectories(directory);
+      boolean empty = recover();
+      journal = new Journal(journalFile(generation), fsync);
+      controller.setChangeListener(this);
+      return empty;
+    } catch (IOException e) {
+      throw new UncheckedIOException("Could not load " + directory, e);
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    controller.setChangeListener(ChangeListener.NONE);
+    checkpointer.shutdown();
+    try {
+      checkpointer.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    if (journal != null) {
+      journal.close();
+    }
+  }
+
+  /* ==== ==== ==== ==== ==== */
+  /* ==== Change records ==== */
+  /* ==== ==== ==== ==== ==== */
+  @Override
+  public void memberCreated(String memberId, String name, String email, String phone, int creationDay) {
+    journal.append(encode("MEMBER_CREATED", memberId, name, email, phone, creationDay));
+  }
+
+  @Override
+  public void memberUpdated(String memberId, String name, String email, String phone) {
+    journal.append(encode("MEMBER_UPDATED", memberId, name, email, phone));
+  }
+
+  @Override
+  public void memberDeleted(String memberId) {
+    journal.append(encode("MEMBER_DELETED", memberId));
+  }
+
+  @Override
+  public void creditsSet(String memberId, int credits) {
+    journal.append(encode("CREDITS_SET", memberId, credits));
+  }
+
+  @Override
+  public void itemCreated(String itemId, String ownerId, ItemCatagory category, String name, String description,
+      int costPerDay, int creationDay) {
+    journal.append(encode("ITEM_CREATED", itemId, ownerId, category, name, description, costPerDay, creationDay));
+  }
+
+  @Override
+  public void itemUpdated(String itemId, String name, String description, int costPerDay) {
+    journal.append(encode("ITEM_UPDATED", itemId, name, description, costPerDay));
+  }
+
+  @Override
+  public void itemDeleted(String itemId) {
+    journal.append(encode("ITEM_DELETED", itemId));
+  }
+
+  @Override
+  public void itemTransferred(String itemId, String newOwnerId) {
+    journal.append(encode("ITEM_TRANSFERRED", itemId, newOwnerId));
+  }
+
+  @Override
+  public void contractCreated(Contract c) {
+    journal.append(encode("CONTRACT_CREATED", c.getContractId(), c.getBorrower().getMemberId(),
+        c.getItem().getId(), c.getStartDay(), c.getEndDay(), c.getTotalCost()));
+  }
+
+  @Override
+  public void paidContractCreated(Contract c) {
+    journal.append(encode("CONTRACT_PAID", c.getContractId(), c.getBorrower().getMemberId(), c.getBorrower().getName(),
+        c.getItem().getId(), c.getStartDay(), c.getEndDay(), c.getTotalCost()));
+  }
+
+  @Override
+  public void dayAdvanced(int days) {
+    journal.append(encode("DAY_ADVANCED", days));
+  }
+
+  @Override
+  public void commit() {
+    Journal current = journal;
+    try {
+      current.sync();
+    } catch (IOException e) {
+      throw new UncheckedIOException("Could not write journal", e);
+    }
+    if (current.size() >= checkpointInterval && checkpointing.compareAndSet(false, true)) {
+      try {
+        checkpointer.execute(this::checkpointInBackground);
+      } catch (RejectedExecutionException e) {
+        // Closed meanwhile.
+        checkpointing.set(false);
+      }
+    }
+  }
+
+  // The journal still holds every change, so a failed checkpoint loses nothing and is tried again later.
+  private void checkpointInBackground() {
+    try {
+      checkpoint();
+    } catch (IOException | RuntimeException e) {
+      LOG.log(Level.WARNING, "Could not write snapshot to " + directory, e);
+    } finally {
+      checkpointing.set(false);
+    }
+  }
+
+  /* ==== ==== ==== ==== ==== */
+  /* ==== Snapshots      ==== */
+  /* ==== ==== ==== ==== ==== */
+
+  /**
+   * Write the full state to a snapshot and start a new journal.
+   *
+   * <p>Changes are held back only while the journal is switched and a read
+   * view is opened on the state it ends with. The view is encoded and
+   * written without blocking them.
+   *
+   * @throws IOException  --> If the snapshot could not be written.
+   */
+  public void checkpoint() throws IOException {
+    ReadView[] view = new ReadView[1];
+    long[] next = new long[1];
+    try {
+      controller.runExclusive(() -> {
+        try {
+          journal.close();
+          journal = new Journal(journalFile(generation + 1), fsync);
+          next[0] = ++generation;
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+        // The view sees every journal before the one just started, and nothing after.
+        view[0] = new ReadView(controller.getVersions());
+      });
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    }
+
+    ByteBuffer snapshot;
+    try (ReadView v = view[0]) {
+      snapshot = BinarySnapshot.capture(v, next[0]);
+    }
+    Path tmp = directory.resolve(SNAPSHOT_FILE + ".tmp");
+    BinarySnapshot.write(snapshot, tmp);
+    Files.move(tmp, directory.resolve(SNAPSHOT_FILE), StandardCopyOption.REPLACE_EXISTING,
+        StandardCopyOption.ATOMIC_MOVE);
+    for (long g : journalGenerations()) {
+      if (g < next[0]) {
+        Files.deleteIfExists(journalFile(g));
+      }
+    }
+  }
+
+  /* ==== ==== ==== ==== ==== */
+  /* ==== Recovery       ==== */
+  /* ==== ==== ==== ==== ==== */
+
+  /**
+   * Load the latest snapshot and replay the journals written after it.
+   *
+   * @return    --> True if nothing was stored.
+   */
+  private boolean recover() throws IOException {
+    boolean empty = true;
+    long snapshotGeneration = 0;
+    Path snapshot = directory.resolve(SNAPSHOT_FILE);
+    if (Files.exists(snapshot)) {
+      snapshotGeneration = BinarySnapshot.load(snapshot, controller);
+      empty = false;
+    }
+
+    generation = snapshotGeneration;
+    for (long g : journalGenerations()) {
+      if (g < snapshotGeneration) {
+        continue;
+      }
+      Path file = journalFile(g);
+      List<String> lines = readRecords(file);
+      for (int i = 0; i < lines.size(); i++) {
+        apply(lines.get(i), file, i);
+      }
+      empty &= lines.isEmpty();
+      generation = Math.max(generation, g);
+    }
+    return empty;
+  }
+
+  /**
+   * Read the complete lines of a file, cutting off a torn last record.
+   */
+  private List<String> readRecords(Path file) throws IOException {
+    byte[] bytes = Files.readAllBytes(file);
+    int end = bytes.length;
+    while (end > 0 && bytes[end - 1] != '\n') {
+      end--;
+    }
+    if (end < bytes.length) {
+      try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+        channel.truncate(end);
+      }
+    }
+    List<String> lines = new ArrayList<>();
+    int start = 0;
+    for (int i = 0; i < end; i++) {
+      if (bytes[i] == '\n') {
+        lines.add(new String(bytes, start, i - start, StandardCharsets.UTF_8));
+        start = i + 1;
+      }
+    }
+    return lines;
+  }
+
+  private void apply(String line, Path file, int lineNumber) {
+    try {
+      apply(decode(line));
+    } catch (RuntimeException e) {
+      throw new IllegalStateException("Corrupt record " + file.getFileName() + ":" + (lineNumber + 1), e);
+    }
+  }
+
+  private void apply(String[] f) {
+    MemberManager members = controller.getMemberManager();
+    ItemManager items = controller.getItemManager();
+    ContractManager contracts = controller.getContractManager();
+    TimeManager time = controller.getTimeManager();
+    switch (f[0]) {
+      case "MEMBER_CREATED":
+        members.restoreMember(new Member(f[1], f[2], f[3], f[4], Integer.parseInt(f[5])));
+        break;
+      case "MEMBER_UPDATED":
+        members.updateMemberInfo(f[1], f[2], f[3], f[4]);
+        break;
+      case "MEMBER_DELETED":
+        members.deleteMember(f[1]);
+        break;
+      case "CREDITS_SET":
+        members.setCredits(f[1], Integer.parseInt(f[2]));
+        break;
+      case "ITEM_CREATED":
+        items.restoreItem(readItem(f), ItemManager.CREATION_BONUS);
+        break;
+      case "ITEM_UPDATED":
+        items.updateItemInfo(f[1], f[2], f[3], Integer.parseInt(f[4]));
+        break;
+      case "ITEM_DELETED":
+        items.deleateItem(f[1]);
+        break;
+      case "ITEM_TRANSFERRED":
+        items.transferItem(f[1], f[2]);
+        break;
+      case "CONTRACT_CREATED": {
+        Member borrower = members.getMemberById(f[2]);
+        Item item = items.getItemById(f[3]);
+        Contract c = new Contract(f[1], borrower, item.getOwnerInternal(), item,
+            Integer.parseInt(f[4]), Integer.parseInt(f[5]), Integer.parseInt(f[6]));
+        contracts.restoreContract(c, item, true);
+        break;
+      }
+      case "CONTRACT_PAID": {
+        // The borrower paid on another instance and may not exist here.
+        Member borrower = members.getMemberById(f[2]);
+        Item item = items.getItemById(f[4]);
+        Contract c = new Contract(f[1], borrower != null ? borrower : new Member(f[2], f[3], "", "", 0),
+            item.getOwnerInternal(), item,
+            Integer.parseInt(f[5]), Integer.parseInt(f[6]), Integer.parseInt(f[7]));
+        contracts.restoreContract(c, item, false);
+        break;
+      }
+      case "DAY_ADVANCED":
+        time.advanceDay(Integer.parseInt(f[1]));
+        contracts.runTransitions(time.getCurrentDay());
+        break;
+      default:
+        throw new IllegalArgumentException("Unknown record " + f[0]);
+    }
+  }
+
+  private Item readItem(String[] f) {
+    Member owner = controller.getMemberManager().getMemberById(f[2]);
+    if (owner == null) {
+      throw new IllegalArgumentException("Owner not found");
+    }
+    return new Item(f[1], owner, Integer.parseInt(f[7]), ItemCatagory.valueOf(f[3]), f[4], f[5],
+        Integer.parseInt(f[6]));
+  }
+
+  /* ==== ==== ==== ==== ==== */
+  /* ==== Files & codec  ==== */
+  /* ==== ==== ==== ==== ==== */
+  private Path journalFile(long gen) {
+    return directory.resolve(JOURNAL_PREFIX + gen + JOURNAL_SUFFIX);
+  }
+
+  private List<Long> journalGenerations() throws IOException {
+    List<Long> gens = new ArrayList<>();
+    String pattern = JOURNAL_PREFIX + "*" + JOURNAL_SUFFIX;
+    try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, pattern)) {
+      for (Path file : files) {
+        String name = file.getFileName().toString();
+        String gen = name.substring(JOURNAL_PREFIX.length(), name.length() - JOURNAL_SUFFIX.length());
+        gens.add(Long.parseLong(gen));
+      }
+    }
+    gens.sort(null);
+    return gens;
+  }
+
+  /**
+   * Join fields with tabs, escaping tabs, line breaks and backslashes.
+   */
+  static String encode(Object... fields) {
+    StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < fields.length; i++) {
+      if (i > 0) {
+        sb.append('\t');
+      }
+      String field = String.valueOf(fields[i]);
+      for (int c = 0; c < field.length(); c++) {
+        char ch = field.charAt(c);
+        switch (ch) {
+          case '\\':
+            sb.append("\\\\");
+            break;
+          case '\t':
+            sb.append("\\t");
+            break;
+          case '\n':
+            sb.append("\\n");
+            break;
+          case '\r':
+            sb.append("\\r");
+            break;
+          default:
+            sb.append(ch);
+        }
+      }
+    }
+    return sb.toString();
+  }
+
+  static String[] decode(String line) {
+    List<String> fields = new ArrayList<>();
+    StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < line.length(); i++) {
+      char ch = line.charAt(i);
+      if (ch == '\t') {
+        fields.add(sb.toString());
+        sb.setLength(0);
+      } else if (ch == '\\' && i + 1 < line.length()) {
+        char next = line.charAt(++i);
+        sb.append(next == 't' ? '\t' : next == 'n' ? '\n' : next == 'r' ? '\r' : next);
+      } else {
+        sb.append(ch);
+      }
+    }
+    fields.add(sb.toString());
+    return fields.toArray(new String[0]);
+  }
+}
@@ -0,0 +1,124 @@
+package controller;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Reads flat JSON objects, as sent to the HTTP view and found on the lines of an NDJSON import.
+ */
+public final class FlatJson {
+  private FlatJson() {}
+
+  /**
+   * Read an object whose values are strings, numbers, booleans or null.
+   *
+   * @param text    --> The JSON text.
+   * @return        --> Member name to value, numbers and booleans as their text and null as null.
+   */
+  public static Map<String, String> parseObject(String text) {
+    Reader r = new Reader(text);
+    Map<String, String> result = new HashMap<>();
+    r.expect('{');
+    if (!r.consume('}')) {
+      do {
+        String key = r.string();
+        r.expect(':');
+        result.put(key, r.value());
+      } while (r.consume(','));
+      r.expect('}');
+    }
+    if (r.skipSpace() < text.length()) {
+      throw new IllegalArgumentException("Unexpected text after JSON object");
+    }
+    return result;
+  }
+
+  private static final class Reader {
+    private final String text;
+    private int pos;
+
+    Reader(String text) {
+      this.text = text;
+    }
+
+    int skipSpace() {
+      while (pos < text.length() && Character.isWhitespace(text.charAt(pos))) {
+        pos++;
+      }
+      return pos;
+    }
+
+    boolean consume(char ch) {
+      if (skipSpace() < text.length() && text.charAt(pos) == ch) {
+        pos++;
+        return true;
+      }
+      return false;
+    }
+
+    void expect(char ch) {
+      if (!consume(ch)) {
+        throw new IllegalArgumentException("Expected '" + ch + "' at " + pos);
+      }
+    }
+
+    String value() {
+      if (skipSpace() < text.length() && text.charAt(pos) == '"') {
+        return string();
+      }
+      int start = pos;
+      while (pos < text.length() && ",}] \t\r\n".indexOf(text.charAt(pos)) < 0) {
+        pos++;
+      }
+      String literal = text.substring(start, pos);
+      if (literal.isEmpty()) {
+        throw new IllegalArgumentException("Expected a value at " + start);
+      }
+      return literal.equals("null") ? null : literal;
+    }
+
+    String string() {
+      expect('"');
+      StringBuilder sb = new StringBuilder();
+      while (pos < text.length()) {
+        char ch = text.charAt(pos++);
+        if (ch == '"') {
+          return sb.toString();
+        } else if (ch != '\\') {
+          sb.append(ch);
+          continue;
+        } else if (pos >= text.length()) {
+          break;
+        }
+        char esc = text.charAt(pos++);
+        switch (esc) {
+          case 'n':
+            sb.append('\n');
+            break;
+          case 'r':
+            sb.append('\r');
+            break;
+          case 't':
+            sb.append('\t');
+            break;
+          case 'b':
+            sb.append('\b');
+            break;
+          case 'f':
+            sb.append('\f');
+            break;
+          case 'u':
+            if (pos + 4 > text.length()) {
+              throw new IllegalArgumentException("Bad escape at " + pos);
+            }
+            sb.append((char) Integer.parseInt(text.substring(pos, pos + 4), 16));
+            pos += 4;
+            break;
+          default:
+            sb.append(esc);
+        }
+      }
+      throw new IllegalArgumentException("Unterminated string");
+    }
+  }
+}
@@ -20,9 +20,9 @@ class HardCodedPersistenceManager implements PersistenceManager {
     controller.createItem(m3.getMemberId(), ItemCatagory.Game, "Halo", "Halo 2", 20);
 
     Member m2 = controller.createMember("Bob", "bob@example.com", "0702222222");
-    m2.setCredits(100);
+    controller.setCredits(m2.getMemberId(), 100);
 
-    m3.setCredits(90);
+    controller.setCredits(m3.getMemberId(), 90);
 
     String i2Id = controller.getOwnedItemsForMember(m1.getMemberId())
         .stream()
@@ -31,7 +31,7 @@ class HardCodedPersistenceManager implements PersistenceManager {
         .orElseThrow()
         .getId();
 
-    m1.setCredits(480);
+    controller.setCredits(m1.getMemberId(), 480);
     controller.createContract(m3.getMemberId(), i2Id, 5, 7);
   }
 }
@@ -0,0 +1,35 @@
+package controller;
+
+/**
+ * Hands out unique ids for members, items and contracts.
+ */
+public interface IdGenerator {
+  /**
+   * Next unused id. Must be safe to call from several threads.
+   *
+   * @return    --> The id.
+   */
+  String nextId();
+
+  /**
+   * Several unused ids at once, for bulk imports.
+   *
+   * @param count   --> Number of ids.
+   * @return        --> The ids, in the order nextId() would have returned them.
+   */
+  default String[] nextIds(int count) {
+    String[] result = new String[count];
+    for (int i = 0; i < count; i++) {
+      result[i] = nextId();
+    }
+    return result;
+  }
+
+  /**
+   * Mark an id that already exists (e.g. loaded from storage) as taken,
+   * so that it is never handed out again.
+   *
+   * @param id    --> The id in use.
+   */
+  void reserve(String id);
+}
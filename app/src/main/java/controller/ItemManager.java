@@ -1,10 +1,15 @@
 package controller;
 
+import controller.dto.CreditEntry;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.HashMap;
+import java.util.EnumMap;
+import java.util.List;
 import java.util.Map;
-import java.util.Random;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.LongAdder;
 import model.Item;
 import model.ItemCatagory;
 import model.Member;
@@ -15,20 +20,40 @@ import model.TimeManager;
  * Used to coardinate interactions, does not handle or mutate members internals directly.
  */
 public class ItemManager {
-  private final Map<String, Item> itemsById = new HashMap<>();
+  // Credits an owner earns for listing a new item.
+  static final int CREATION_BONUS = 100;
+
+  // Id order, which is creation order for generated ids.
+  private final NavigableMap<String, Item> itemsById = new ConcurrentSkipListMap<>();
+  // Per category, ordered by cost per day and then id. An item is moved to
+  // its new key under its stripe when the cost changes.
+  private final Map<ItemCatagory, NavigableMap<CostKey, Item>> itemsByCost = newCostIndex();
+  // Size of itemsById, which would have to walk the items to count them.
+  private final LongAdder itemCount = new LongAdder();
+  // Words of names and descriptions, changed under the item's stripe.
+  private final ItemSearchIndex search = new ItemSearchIndex();
   private final MemberManager memberManager;
   private final TimeManager timeManager;
-  private final Random rnd = new Random();
+  private final LockStripes locks;
+  private final IdGenerator ids;
+  private final VersionStore versions;
 
   /**
    * Basic constructor.
    *
    * @param memberManager     --> Referance to an instance of memberManager.
    * @param timeManager       --> Referance to an instance of timeManager
+   * @param locks             --> Lock stripes shared with the contractManager.
+   * @param ids               --> Generator for item ids.
+   * @param versions          --> Where changes publish their copies for readers.
    */
-  ItemManager(MemberManager memberManager, TimeManager timeManager) {
+  ItemManager(MemberManager memberManager, TimeManager timeManager, LockStripes locks, IdGenerator ids,
+      VersionStore versions) {
     this.memberManager = memberManager;
     this.timeManager = timeManager;
+    this.locks = locks;
+    this.ids = ids;
+    this.versions = versions;
   }
 
   /**
@@ -41,11 +66,28 @@ public class ItemManager {
     if (keepReferences) {
       this.memberManager = other.memberManager;
       this.timeManager = other.timeManager;
+      this.locks = other.locks;
+      this.ids = other.ids;
+      this.versions = other.versions;
       this.itemsById.putAll(other.itemsById);
+      this.itemCount.add(other.itemCount.sum());
+      other.itemsByCost.forEach((category, items) -> this.itemsByCost.get(category).putAll(items));
+      this.itemsById.values().forEach(search::put);
     } else {
       this.memberManager = new MemberManager(other.memberManager);
       this.timeManager = new TimeManager(other.timeManager);
-      other.listitems().forEach(item -> itemsById.put(item.getId(), new model.Item(item)));
+      this.locks = new LockStripes(other.locks.size());
+      this.ids = CounterIdGenerator.forItems();
+      this.versions = memberManager.getVersions();
+      other.listitems().forEach(item -> ids.reserve(item.getId()));
+      other.listitems().forEach(item -> {
+        Item copy = new Item(item);
+        itemsById.put(copy.getId(), copy);
+        itemCount.increment();
+        itemsByCost.get(copy.getCategory()).put(new CostKey(copy), copy);
+        search.put(copy);
+        versions.change().item(copy).owned(copy.getOwnerInternal().getMemberId(), copy.getId(), true).commit();
+      });
     }
   }
 
@@ -63,32 +105,89 @@ public class ItemManager {
   public Item createItem(String ownerId, ItemCatagory category, String name, String description, int costPerDay) {
     Member owner = memberManager.getMemberById(ownerId);
     if (owner == null) {
-      throw new IllegalArgumentException("Owner not found");
+      throw new NotFoundException("Owner not found");
     }
-    String itemId;
-    do {
-      itemId = generateId();
-    } while (itemsById.containsKey(itemId));
     int creationday = timeManager.getCurrentDay();
-    Item i = new Item(itemId, owner, creationday, category, name, description, costPerDay);
-    itemsById.put(itemId, i);
-    owner.addItem(i);
-    owner.addCredits(100);
+    Item i = new Item(generateId(), owner, creationday, category, name, description, costPerDay);
+    index(i, CREATION_BONUS);
     return i;
   }
 
   /**
-   * Generate a random id for the item.
+   * Add a batch of new items, each owner gets the creation bonus as with createItem().
+   *
+   * <p>Items whose owner is gone by now are left out and the rest are added.
+   *
+   * @param batch   --> New items with ids from generateIds().
+   * @return        --> Per item, null if it was added or else the reason it was not.
+   */
+  String[] createItems(List<Item> batch) {
+    String[] errors = new String[batch.size()];
+    for (int i = 0; i < errors.length; i++) {
+      try {
+        index(batch.get(i), CREATION_BONUS);
+      } catch (IllegalArgumentException e) {
+        errors[i] = e.getMessage();
+      }
+    }
+    return errors;
+  }
+
+  /**
+   * Add an item that already has an id, e.g. one loaded from storage.
+   *
+   * @param i       --> The item, its owner must already be known.
+   * @param bonus   --> Credits to give the owner for the listing.
+   */
+  void restoreItem(Item i, int bonus) {
+    ids.reserve(i.getId());
+    index(i, bonus);
+  }
+
+  private static Map<ItemCatagory, NavigableMap<CostKey, Item>> newCostIndex() {
+    Map<ItemCatagory, NavigableMap<CostKey, Item>> index = new EnumMap<>(ItemCatagory.class);
+    for (ItemCatagory c : ItemCatagory.values()) {
+      index.put(c, new ConcurrentSkipListMap<>());
+    }
+    return index;
+  }
+
+  // Holds the stripes of the item and its owner until the copies are published.
+  private void index(Item i, int bonus) {
+    Member owner = i.getOwnerInternal();
+    int[] held = locks.lock(owner.getMemberId(), i.getId());
+    try {
+      if (memberManager.getMemberById(owner.getMemberId()) != owner) {
+        throw new NotFoundException("Owner not found");
+      }
+      itemsById.put(i.getId(), i);
+      itemCount.increment();
+      itemsByCost.get(i.getCategory()).put(new CostKey(i), i);
+      search.put(i);
+      owner.addItem(i);
+      if (bonus != 0) {
+        memberManager.credit(owner, CreditEntry.Kind.BONUS, bonus);
+      }
+      memberManager.getChangeListener().itemCreated(i.getId(), owner.getMemberId(), i.getCategory(), i.getName(),
+          i.getDescription(), i.getCostPerDay(), i.getCreationDay());
+      versions.change().member(owner).item(i).owned(owner.getMemberId(), i.getId(), true).commit();
+    } finally {
+      locks.unlock(held);
+    }
+  }
+
+  /**
+   * Generate an unused id for the item.
    *
    * @return    --> The id.
    */
   public String generateId() {
-    String chars = "0123456789";
-    StringBuilder sb = new StringBuilder(8);
-    for (int i = 0; i < 8; i++) {
-      sb.append(chars.charAt(rnd.nextInt(chars.length())));
-    }
-    return sb.toString();
+    return ids.nextId();
+  }
+
+  // Ids for a batch of new items.
+  String[] generateIds(int count) {
+    return ids.nextIds(count);
   }
 
   /**
@@ -99,9 +198,102 @@ public class ItemManager {
   public void deleateItem(String itemId) {
     Item i = itemsById.remove(itemId);
     if (i == null) {
-      throw new IllegalArgumentException("Item not found");
+      throw new NotFoundException("Item not found");
+    }
+    itemCount.decrement();
+    int[] held = lockWithOwner(i);
+    try {
+      itemsByCost.get(i.getCategory()).remove(new CostKey(i));
+      search.remove(itemId);
+      i.getOwnerInternal().removeItem(i);
+      memberManager.getChangeListener().itemDeleted(itemId);
+      versions.change().itemDeleted(itemId).owned(i.getOwnerInternal().getMemberId(), itemId, false).commit();
+    } finally {
+      locks.unlock(held);
+    }
+  }
+
+  /**
+   * Hand an item over to another member.
+   *
+   * <p>Only the two owners' item lists change, contracts already made keep
+   * paying the old owner and later ones pay the new owner.
+   *
+   * @param itemId        --> Id of the item.
+   * @param newOwnerId    --> Id of the member receiving the item.
+   * @return              --> The item.
+   */
+  public Item transferItem(String itemId, String newOwnerId) {
+    Item item = itemsById.get(itemId);
+    Member newOwner = memberManager.getMemberById(newOwnerId);
+    if (item == null) {
+      throw new NotFoundException("Item not found");
+    } else if (newOwner == null) {
+      throw new NotFoundException("New owner not found");
+    }
+    int[] held = lockWithOwner(item, newOwnerId);
+    try {
+      if (itemsById.get(itemId) != item) {
+        throw new NotFoundException("Item not found");
+      } else if (memberManager.getMemberById(newOwnerId) != newOwner) {
+        throw new NotFoundException("New owner not found");
+      }
+      Member oldOwner = item.getOwnerInternal();
+      if (oldOwner != newOwner) {
+        oldOwner.removeItem(item);
+        item.setOwner(newOwner);
+        newOwner.addItem(item);
+        memberManager.getChangeListener().itemTransferred(itemId, newOwnerId);
+        versions.change().item(item).owned(oldOwner.getMemberId(), itemId, false)
+            .owned(newOwnerId, itemId, true).commit();
+      }
+    } finally {
+      locks.unlock(held);
+    }
+    return item;
+  }
+
+  /**
+   * Lock the stripes of an item, its owner and some other members.
+   *
+   * <p>The owner only changes under the item stripe, so it is read again once
+   * the stripes are held and the locking is retried if it moved in between.
+   * While the result is held, the owner of the item stays the same.
+   *
+   * @param item        --> The item.
+   * @param memberIds   --> Other members to lock.
+   * @return            --> The held stripes, for LockStripes.unlock().
+   */
+  int[] lockWithOwner(Item item, String... memberIds) {
+    String[] ids = Arrays.copyOf(memberIds, memberIds.length + 2);
+    ids[ids.length - 1] = item.getId();
+    while (true) {
+      Member owner = item.getOwnerInternal();
+      ids[ids.length - 2] = owner.getMemberId();
+      int[] held = locks.lock(ids);
+      if (item.getOwnerInternal() == owner) {
+        return held;
+      }
+      locks.unlock(held);
+    }
+  }
+
+  /**
+   * Copy of an item and its owner to hand out, taken under their stripes.
+   *
+   * @param item  --> The live item, may be null.
+   * @return      --> The copy, null if item is.
+   */
+  Item detach(Item item) {
+    if (item == null) {
+      return null;
+    }
+    int[] held = lockWithOwner(item);
+    try {
+      return new Item(item, new Member(item.getOwnerInternal()));
+    } finally {
+      locks.unlock(held);
     }
-    i.getOwnerInternal().removeItem(i);
   }
 
   /**
@@ -116,19 +308,53 @@ public class ItemManager {
   public void updateItemInfo(String itemId, String newName, String newDesc, Integer newCost) {
     Item item = itemsById.get(itemId);
     if (item == null) {
-      throw new IllegalArgumentException("Item not found");
-    }
-    if (newName != null && !newName.trim().isEmpty()) {
-      item.setName(newName);
+      throw new NotFoundException("Item not found");
     }
-    if (newDesc != null) {
-      item.setDescription(newDesc);
-    }
-    if (newCost != null) {
-      item.setCostPerDay(newCost);
+    int[] held = locks.lock(itemId);
+    try {
+      // A delete that dropped the item from itemsById before we got the stripe won.
+      if (itemsById.get(itemId) != item) {
+        throw new NotFoundException("Item not found");
+      }
+      if (newName != null && !newName.trim().isEmpty()) {
+        item.setName(newName);
+      }
+      if (newDesc != null) {
+        item.setDescription(newDesc);
+      }
+      if (newCost != null && newCost != item.getCostPerDay()) {
+        NavigableMap<CostKey, Item> byCost = itemsByCost.get(item.getCategory());
+        byCost.remove(new CostKey(item));
+        item.setCostPerDay(newCost);
+        byCost.put(new CostKey(item), item);
+      }
+      if (newName != null || newDesc != null) {
+        search.put(item);
+      }
+      memberManager.getChangeListener().itemUpdated(itemId, item.getName(), item.getDescription(),
+          item.getCostPerDay());
+      versions.change().item(item).commit();
+    } finally {
+      locks.unlock(held);
     }
   }
 
+  /**
+   * Ids of the items best matching a query, see ItemSearchIndex.search().
+   *
+   * @param query     --> Words to look for.
+   * @param category  --> Only items of this category, null for all.
+   * @param limit     --> Maximum number of items.
+   * @return          --> The ids, best match first.
+   */
+  List<String> searchItems(String query, ItemCatagory category, int limit) {
+    return search.search(query, category, limit);
+  }
+
+  int countItems() {
+    return itemCount.intValue();
+  }
+
   public Item getItemById(String id) {
     return itemsById.get(id);
   }
@@ -136,4 +362,116 @@ public class ItemManager {
   public Collection<Item> listitems() {
     return Collections.unmodifiableCollection(itemsById.values());
   }
+
+  /**
+   * Items of a category within a cost range, cheapest first.
+   *
+   * @param category    --> Of the items.
+   * @param minCost     --> Lowest cost per day, inclusive.
+   * @param maxCost     --> Highest cost per day, inclusive.
+   * @param afterCursor --> costCursor() of the item to continue after, null to start from minCost.
+   * @return            --> Read-only live view, ordered by cost per day and then id.
+   */
+  public Collection<Item> listItemsByCost(ItemCatagory category, int minCost, int maxCost, String afterCursor) {
+    CostKey from = new CostKey(minCost, "");
+    boolean fromInclusive = true;
+    if (afterCursor != null) {
+      CostKey after = CostKey.parse(afterCursor);
+      if (after.compareTo(from) >= 0) {
+        from = after;
+        fromInclusive = false;
+      }
+    }
+    CostKey to = new CostKey(maxCost + 1L, "");
+    if (from.compareTo(to) >= 0) {
+      return Collections.emptyList();
+    }
+    return Collections.unmodifiableCollection(itemsByCost.get(category).subMap(from, fromInclusive, to, false)
+        .values());
+  }
+
+  /**
+   * Position of an item in listItemsByCost(), to continue a listing after it.
+   *
+   * @param item    --> The item.
+   * @return        --> The cursor.
+   */
+  static String costCursor(Item item) {
+    return new CostKey(item).toString();
+  }
+
+  /**
+   * Check availability while holding the item stripe, so bookings cannot change the contracts meanwhile.
+   *
+   * @param item        --> The item.
+   * @param startDay    --> Start of the period.
+   * @param endDay      --> End of the period.
+   * @return            --> Whether no contract overlaps the period.
+   */
+  boolean isAvailable(Item item, int startDay, int endDay) {
+    int[] held = locks.lock(item.getId());
+    try {
+      return item.isAvailable(startDay, endDay);
+    } finally {
+      locks.unlock(held);
+    }
+  }
+
+  /**
+   * Items with an id after the given one, in id order.
+   *
+   * @param afterId   --> Id to continue after, null to start from the first item.
+   * @return          --> Read-only live view.
+   */
+  public Collection<Item> listItemsAfter(String afterId) {
+    NavigableMap<String, Item> tail = afterId == null ? itemsById : itemsById.tailMap(afterId, false);
+    return Collections.unmodifiableCollection(tail.values());
+  }
+
+  /**
+   * Sort key of the cost index, written as "cost:id" in cursors.
+   */
+  private static final class CostKey implements Comparable<CostKey> {
+    private final long cost;
+    private final String id;
+
+    CostKey(Item item) {
+      this(item.getCostPerDay(), item.getId());
+    }
+
+    CostKey(long cost, String id) {
+      this.cost = cost;
+      this.id = id;
+    }
+
+    static CostKey parse(String cursor) {
+      int colon = cursor.indexOf(':');
+      try {
+        return new CostKey(Long.parseLong(cursor.substring(0, Math.max(colon, 0))), cursor.substring(colon + 1));
+      } catch (NumberFormatException e) {
+        throw new IllegalArgumentException("Invalid cursor: " + cursor);
+      }
+    }
+
+    @Override
+    public int compareTo(CostKey other) {
+      int c = Long.compare(cost, other.cost);
+      return c != 0 ? c : id.compareTo(other.id);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      return o instanceof CostKey && compareTo((CostKey) o) == 0;
+    }
+
+    @Override
+    public int hashCode() {
+      return Long.hashCode(cost) * 31 + id.hashCode();
+    }
+
+    @Override
+    public String toString() {
+      return cost + ":" + id;
+    }
+  }
 }
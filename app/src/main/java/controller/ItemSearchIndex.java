@@ -0,0 +1,577 @@
+package controller;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import model.Item;
+import model.ItemCatagory;
+
+/**
+ * Inverted index over the words of item names and descriptions.
+ *
+ * <p>Every item gets an int document number, handed out in increasing order.
+ * Per word the index keeps a posting list: the document numbers of the items
+ * that contain it as a sorted int array, next to a weight per item. A query
+ * word of at least MIN_PREFIX characters matches every indexed word it is a
+ * prefix of, found as a range of the sorted word map; a shorter one only
+ * matches itself, so a query for "a" does not merge half the index. Items
+ * must match every query word, and are ranked by how often and where the
+ * words occur, weighted by how rare they are.
+ *
+ * <p>The ItemManager updates the index while it holds the item's stripe, so
+ * the changes of one item arrive in order. Changes of different items only
+ * meet on the posting lists of the words they share, each of which has its
+ * own monitor. A posting list is replaced as a whole, or grown past the end
+ * that readers know of, so queries take no lock at all; a query that runs
+ * next to a change may see it on some words and not yet on others.
+ *
+ * <p>Document numbers of deleted items are not reused. Once more than half of
+ * them are deleted, the index is rebuilt with the live items renumbered in
+ * the same order. The rebuild waits for the changes in progress and holds
+ * off new ones, queries keep reading the old index until it is swapped in.
+ */
+final class ItemSearchIndex {
+  // A word in the name counts as much as this many in the description.
+  private static final int NAME_WEIGHT = 3;
+  private static final int MAX_WEIGHT = Byte.MAX_VALUE;
+  // A query word that is only a prefix of the indexed word scores this much of a whole match.
+  private static final double PREFIX_FACTOR = 0.5;
+  // Shorter query words only match whole words.
+  static final int MIN_PREFIX = 3;
+  // Rebuild once more than half of at least this many document numbers are deleted.
+  private static final int COMPACT_FROM = 1024;
+  private static final int CHUNK_BITS = 10;
+  private static final int CHUNK = 1 << CHUNK_BITS;
+
+  // Changes share the read lock, the rebuild takes the write lock. Queries take neither.
+  private final ReadWriteLock lock = new ReentrantReadWriteLock();
+  private volatile State state = new State();
+
+  /**
+   * The words and documents of the index, replaced as a whole by a rebuild.
+   */
+  private static final class State {
+    final ConcurrentNavigableMap<String, Posting> words = new ConcurrentSkipListMap<>();
+    final Map<String, Integer> docs = new ConcurrentHashMap<>();
+    final AtomicInteger nextDoc = new AtomicInteger();
+    final AtomicInteger live = new AtomicInteger();
+    // Per document, in chunks of CHUNK that never move. A slot is written by
+    // the change of its item before the item's postings, which publish it.
+    private volatile String[][] itemIds = new String[0][];
+    private volatile byte[][] categories = new byte[0][];
+    // Per document its distinct words, to find its postings again when it changes.
+    private volatile String[][][] docWords = new String[0][][];
+
+    int newDoc() {
+      int doc = nextDoc.getAndIncrement();
+      if (doc >>> CHUNK_BITS >= itemIds.length) {
+        grow(doc >>> CHUNK_BITS);
+      }
+      return doc;
+    }
+
+    private synchronized void grow(int chunk) {
+      while (chunk >= itemIds.length) {
+        int n = itemIds.length + 1;
+        String[][][] moreWords = Arrays.copyOf(docWords, n);
+        byte[][] moreCategories = Arrays.copyOf(categories, n);
+        String[][] moreIds = Arrays.copyOf(itemIds, n);
+        moreWords[n - 1] = new String[CHUNK][];
+        moreCategories[n - 1] = new byte[CHUNK];
+        moreIds[n - 1] = new String[CHUNK];
+        docWords = moreWords;
+        categories = moreCategories;
+        itemIds = moreIds;
+      }
+    }
+
+    String itemId(int doc) {
+      return itemIds[doc >>> CHUNK_BITS][doc & (CHUNK - 1)];
+    }
+
+    void setItemId(int doc, String id) {
+      itemIds[doc >>> CHUNK_BITS][doc & (CHUNK - 1)] = id;
+    }
+
+    byte category(int doc) {
+      return categories[doc >>> CHUNK_BITS][doc & (CHUNK - 1)];
+    }
+
+    void setCategory(int doc, byte category) {
+      categories[doc >>> CHUNK_BITS][doc & (CHUNK - 1)] = category;
+    }
+
+    String[] docWords(int doc) {
+      return docWords[doc >>> CHUNK_BITS][doc & (CHUNK - 1)];
+    }
+
+    void setDocWords(int doc, String[] words) {
+      docWords[doc >>> CHUNK_BITS][doc & (CHUNK - 1)] = words;
+    }
+  }
+
+  /**
+   * Sorted document numbers of one word, and the weight of the word in each.
+   */
+  private static final class Posting {
+    private static final Block EMPTY = new Block(new int[0], new byte[0], 0);
+
+    final String word;
+    // Read without locking. Changed under this posting's monitor.
+    volatile Block block = EMPTY;
+    // Set once the posting is empty and left the word map, guarded by this.
+    boolean dead;
+
+    Posting(String word) {
+      this.word = word;
+    }
+
+    // Caller holds the monitor.
+    void put(int doc, int weight) {
+      Block b = block;
+      int at = Arrays.binarySearch(b.docs, 0, b.size, doc);
+      if (at >= 0) {
+        if (b.weights[at] != weight) {
+          byte[] weights = Arrays.copyOf(b.weights, b.weights.length);
+          weights[at] = (byte) weight;
+          block = new Block(b.docs, weights, b.size);
+        }
+        return;
+      }
+      at = -at - 1;
+      if (at == b.size && b.size < b.docs.length) {
+        // Past the end of every block sharing these arrays, no reader looks there.
+        b.docs[at] = doc;
+        b.weights[at] = (byte) weight;
+        block = new Block(b.docs, b.weights, b.size + 1);
+        return;
+      }
+      int capacity = b.size < b.docs.length ? b.docs.length : Math.max(4, b.size + (b.size >> 1));
+      int[] docs = new int[capacity];
+      byte[] weights = new byte[capacity];
+      System.arraycopy(b.docs, 0, docs, 0, at);
+      System.arraycopy(b.weights, 0, weights, 0, at);
+      System.arraycopy(b.docs, at, docs, at + 1, b.size - at);
+      System.arraycopy(b.weights, at, weights, at + 1, b.size - at);
+      docs[at] = doc;
+      weights[at] = (byte) weight;
+      block = new Block(docs, weights, b.size + 1);
+    }
+
+    // Caller holds the monitor.
+    void remove(int doc) {
+      Block b = block;
+      int at = Arrays.binarySearch(b.docs, 0, b.size, doc);
+      if (at < 0) {
+        return;
+      }
+      int[] docs = new int[b.size - 1];
+      byte[] weights = new byte[b.size - 1];
+      System.arraycopy(b.docs, 0, docs, 0, at);
+      System.arraycopy(b.weights, 0, weights, 0, at);
+      System.arraycopy(b.docs, at + 1, docs, at, b.size - at - 1);
+      System.arraycopy(b.weights, at + 1, weights, at, b.size - at - 1);
+      block = new Block(docs, weights, b.size - 1);
+    }
+  }
+
+  /**
+   * The first size entries of a posting list, never changed once published.
+   */
+  private static final class Block {
+    final int[] docs;
+    final byte[] weights;
+    final int size;
+
+    Block(int[] docs, byte[] weights, int size) {
+      this.docs = docs;
+      this.weights = weights;
+      this.size = size;
+    }
+  }
+
+  /**
+   * Split text into lower case words of letters and digits.
+   *
+   * @param text    --> The text, may be null.
+   * @return        --> The words in order, with repeats.
+   */
+  static List<String> tokenize(String text) {
+    List<String> tokens = new ArrayList<>();
+    if (text == null) {
+      return tokens;
+    }
+    int start = -1;
+    for (int i = 0; i <= text.length(); i++) {
+      boolean word = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+      if (word && start < 0) {
+        start = i;
+      } else if (!word && start >= 0) {
+        tokens.add(text.substring(start, i).toLowerCase(Locale.ROOT));
+        start = -1;
+      }
+    }
+    return tokens;
+  }
+
+  /**
+   * Index a new item, or index an item again after its name or description changed.
+   *
+   * @param item  --> The item.
+   */
+  void put(Item item) {
+    Map<String, Integer> weights = new HashMap<>();
+    for (String w : tokenize(item.getName())) {
+      weights.merge(w, NAME_WEIGHT, Integer::sum);
+    }
+    for (String w : tokenize(item.getDescription())) {
+      weights.merge(w, 1, Integer::sum);
+    }
+    lock.readLock().lock();
+    try {
+      State s = state;
+      Integer known = s.docs.get(item.getId());
+      int doc;
+      if (known != null) {
+        doc = known;
+        for (String w : s.docWords(doc)) {
+          if (!weights.containsKey(w)) {
+            drop(s, w, doc);
+          }
+        }
+      } else {
+        doc = s.newDoc();
+        s.setItemId(doc, item.getId());
+        s.docs.put(item.getId(), doc);
+        s.live.incrementAndGet();
+      }
+      s.setCategory(doc, (byte) item.getCategory().ordinal());
+      String[] distinct = new String[weights.size()];
+      int n = 0;
+      for (Map.Entry<String, Integer> e : weights.entrySet()) {
+        // Share the map's copy of the word.
+        distinct[n++] = add(s, e.getKey(), doc, Math.min(MAX_WEIGHT, e.getValue()));
+      }
+      s.setDocWords(doc, distinct);
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Drop a deleted item.
+   *
+   * @param itemId  --> Id of the item.
+   */
+  void remove(String itemId) {
+    boolean compact;
+    lock.readLock().lock();
+    try {
+      State s = state;
+      Integer doc = s.docs.remove(itemId);
+      if (doc == null) {
+        return;
+      }
+      for (String w : s.docWords(doc)) {
+        drop(s, w, doc);
+      }
+      s.setDocWords(doc, null);
+      s.setItemId(doc, null);
+      compact = needsCompaction(s, s.live.decrementAndGet());
+    } finally {
+      lock.readLock().unlock();
+    }
+    if (compact) {
+      compact();
+    }
+  }
+
+  private static boolean needsCompaction(State s, int live) {
+    int slots = s.nextDoc.get();
+    return slots >= COMPACT_FROM && live < slots / 2;
+  }
+
+  // Caller holds the read lock. Returns the word as kept in the map.
+  private static String add(State s, String word, int doc, int weight) {
+    while (true) {
+      Posting p = s.words.computeIfAbsent(word, Posting::new);
+      synchronized (p) {
+        // Emptied and dropped by another change in between, look it up again.
+        if (!p.dead) {
+          p.put(doc, weight);
+          return p.word;
+        }
+      }
+    }
+  }
+
+  // Caller holds the read lock.
+  private static void drop(State s, String word, int doc) {
+    Posting p = s.words.get(word);
+    if (p == null) {
+      return;
+    }
+    synchronized (p) {
+      p.remove(doc);
+      if (p.block.size == 0 && !p.dead) {
+        p.dead = true;
+        s.words.remove(word, p);
+      }
+    }
+  }
+
+  // Renumber the live documents in order into a new state, so the deleted ones take no room.
+  private void compact() {
+    lock.writeLock().lock();
+    try {
+      State old = state;
+      if (!needsCompaction(old, old.live.get())) {
+        return;
+      }
+      State s = new State();
+      int slots = old.nextDoc.get();
+      int[] renumber = new int[slots];
+      for (int doc = 0; doc < slots; doc++) {
+        String id = old.itemId(doc);
+        if (id == null) {
+          renumber[doc] = -1;
+          continue;
+        }
+        int now = s.newDoc();
+        s.setItemId(now, id);
+        s.setCategory(now, old.category(doc));
+        s.setDocWords(now, old.docWords(doc));
+        s.docs.put(id, now);
+        renumber[doc] = now;
+      }
+      s.live.set(s.nextDoc.get());
+      for (Posting p : old.words.values()) {
+        Block b = p.block;
+        int[] docs = new int[b.size];
+        byte[] weights = new byte[b.size];
+        int n = 0;
+        for (int i = 0; i < b.size; i++) {
+          int now = renumber[b.docs[i]];
+          if (now >= 0) {
+            docs[n] = now;
+            weights[n++] = b.weights[i];
+          }
+        }
+        if (n > 0) {
+          Posting copy = new Posting(p.word);
+          copy.block = new Block(docs, weights, n);
+          s.words.put(p.word, copy);
+        }
+      }
+      state = s;
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * The best matching items for a query.
+   *
+   * @param query     --> Words, each matching the indexed words it is a prefix of if it is long enough.
+   * @param category  --> Only items of this category, null for all.
+   * @param limit     --> Maximum number of items.
+   * @return          --> Ids of the items, best match first, ties in creation order.
+   */
+  List<String> search(String query, ItemCatagory category, int limit) {
+    if (limit <= 0) {
+      throw new IllegalArgumentException("Limit must be positive");
+    }
+    List<String> tokens = tokenize(query);
+    if (tokens.isEmpty()) {
+      throw new IllegalArgumentException("Query must contain a word");
+    }
+    State s = state;
+    int live = s.live.get();
+    Matches result = null;
+    for (String token : new LinkedHashSet<>(tokens)) {
+      Matches m = match(s, token, live);
+      result = result == null ? m : result.and(m);
+      if (result.size == 0) {
+        return List.of();
+      }
+    }
+    return top(s, result, category == null ? -1 : category.ordinal(), limit);
+  }
+
+  // Every document containing a word that starts with the token, with its best score for the token.
+  private static Matches match(State s, String token, int live) {
+    if (token.length() < MIN_PREFIX) {
+      Posting only = s.words.get(token);
+      return only == null ? new Matches(0) : single(only.block, idf(live, only.block.size));
+    }
+    List<Block> blocks = new ArrayList<>();
+    List<Double> idfs = new ArrayList<>();
+    int total = 0;
+    for (Posting p : s.words.subMap(token, true, token + Character.MAX_VALUE, false).values()) {
+      Block b = p.block;
+      blocks.add(b);
+      idfs.add(idf(live, b.size) * (p.word.length() == token.length() ? 1 : PREFIX_FACTOR));
+      total += b.size;
+    }
+    if (blocks.size() <= 1) {
+      return blocks.isEmpty() ? new Matches(0) : single(blocks.get(0), idfs.get(0));
+    }
+    // Several words: collect every posting, then keep one entry per document.
+    long[] hits = new long[total];
+    double[] scores = new double[total];
+    int n = 0;
+    for (int k = 0; k < blocks.size(); k++) {
+      Block b = blocks.get(k);
+      double idf = idfs.get(k);
+      for (int i = 0; i < b.size; i++) {
+        hits[n] = (long) b.docs[i] << 32 | n;
+        scores[n++] = b.weights[i] * idf;
+      }
+    }
+    Arrays.sort(hits);
+    Matches m = new Matches(total);
+    for (long hit : hits) {
+      int doc = (int) (hit >>> 32);
+      double score = scores[(int) hit];
+      if (m.size > 0 && m.docs[m.size - 1] == doc) {
+        m.scores[m.size - 1] = Math.max(m.scores[m.size - 1], score);
+      } else {
+        m.add(doc, score);
+      }
+    }
+    return m;
+  }
+
+  private static Matches single(Block b, double idf) {
+    Matches m = new Matches(b.size);
+    for (int i = 0; i < b.size; i++) {
+      m.add(b.docs[i], b.weights[i] * idf);
+    }
+    return m;
+  }
+
+  private static double idf(int live, int df) {
+    return Math.log(1 + (double) Math.max(live, df) / df);
+  }
+
+  // Highest scores first via a bounded heap, ties broken by the lower document number.
+  private static List<String> top(State s, Matches m, int category, int limit) {
+    int[] heap = new int[Math.min(limit, m.size)];
+    int n = 0;
+    for (int i = 0; i < m.size; i++) {
+      if (category >= 0 && s.category(m.docs[i]) != category) {
+        continue;
+      }
+      if (n < heap.length) {
+        heap[n] = i;
+        siftUp(heap, n++, m);
+      } else if (n > 0 && better(i, heap[0], m)) {
+        heap[0] = i;
+        siftDown(heap, n, m);
+      }
+    }
+    Integer[] order = new Integer[n];
+    for (int i = 0; i < n; i++) {
+      order[i] = heap[i];
+    }
+    Arrays.sort(order, (a, b) -> better(a, b, m) ? -1 : better(b, a, m) ? 1 : 0);
+    List<String> ids = new ArrayList<>(n);
+    for (Integer i : order) {
+      // Null if the item was deleted while the query ran.
+      String id = s.itemId(m.docs[i]);
+      if (id != null) {
+        ids.add(id);
+      }
+    }
+    return ids;
+  }
+
+  private static boolean better(int a, int b, Matches m) {
+    return m.scores[a] != m.scores[b] ? m.scores[a] > m.scores[b] : m.docs[a] < m.docs[b];
+  }
+
+  // Min-heap on better(), the worst kept match is at the root.
+  private static void siftUp(int[] heap, int at, Matches m) {
+    while (at > 0) {
+      int parent = (at - 1) >>> 1;
+      if (!better(heap[parent], heap[at], m)) {
+        return;
+      }
+      int t = heap[parent];
+      heap[parent] = heap[at];
+      heap[at] = t;
+      at = parent;
+    }
+  }
+
+  private static void siftDown(int[] heap, int n, Matches m) {
+    int at = 0;
+    while (true) {
+      int worst = at;
+      int left = 2 * at + 1;
+      if (left < n && better(heap[worst], heap[left], m)) {
+        worst = left;
+      }
+      if (left + 1 < n && better(heap[worst], heap[left + 1], m)) {
+        worst = left + 1;
+      }
+      if (worst == at) {
+        return;
+      }
+      int t = heap[worst];
+      heap[worst] = heap[at];
+      heap[at] = t;
+      at = worst;
+    }
+  }
+
+  int size() {
+    return state.live.get();
+  }
+
+  /**
+   * Documents in increasing order with their scores.
+   */
+  private static final class Matches {
+    final int[] docs;
+    final double[] scores;
+    int size;
+
+    Matches(int capacity) {
+      docs = new int[capacity];
+      scores = new double[capacity];
+    }
+
+    void add(int doc, double score) {
+      docs[size] = doc;
+      scores[size++] = score;
+    }
+
+    // Documents in both, scores added up.
+    Matches and(Matches other) {
+      Matches both = new Matches(Math.min(size, other.size));
+      int i = 0;
+      int j = 0;
+      while (i < size && j < other.size) {
+        if (docs[i] < other.docs[j]) {
+          i++;
+        } else if (docs[i] > other.docs[j]) {
+          j++;
+        } else {
+          both.add(docs[i], scores[i++] + other.scores[j++]);
+        }
+      }
+      return both;
+    }
+  }
+}
@@ -0,0 +1,138 @@
+package controller;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Append-only log file of text records, one per line, with group commit.
+ *
+ * <p>append() only buffers the record. sync() makes everything appended so
+ * far durable: the first caller writes and forces the whole buffer while
+ * later callers wait for it, so one fsync covers every change made meanwhile.
+ *
+ * <p>If a write fails, the records of that batch may be partly on disk and
+ * are not retried. The journal fails for good and every later sync() throws,
+ * so no caller is told a change is durable when it may not be.
+ */
+class Journal implements Closeable {
+  private final FileChannel channel;
+  private final boolean fsync;
+  private final Object lock = new Object();
+  // Guarded by lock.
+  private ByteArrayOutputStream pending = new ByteArrayOutputStream();
+  private long appended;
+  private long durable;
+  private boolean flushing;
+  private IOException failure;
+
+  /**
+   * Open a journal file for appending, creating it if needed.
+   *
+   * @param file    --> The journal file.
+   * @param fsync   --> Whether sync() forces the data to disk or only writes it.
+   * @throws IOException  --> If the file cannot be opened.
+   */
+  Journal(Path file, boolean fsync) throws IOException {
+    this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+        StandardOpenOption.APPEND);
+    this.fsync = fsync;
+  }
+
+  /**
+   * Buffer a record, it is not durable until sync() returns.
+   *
+   * @param record    --> One line of text, without line break.
+   */
+  void append(String record) {
+    byte[] bytes = record.getBytes(StandardCharsets.UTF_8);
+    synchronized (lock) {
+      pending.write(bytes, 0, bytes.length);
+      pending.write('\n');
+      appended++;
+    }
+  }
+
+  /**
+   * Block until every record appended before the call is durable.
+   *
+   * @throws IOException  --> If writing the journal failed.
+   */
+  void sync() throws IOException {
+    ByteArrayOutputStream batch;
+    long target;
+    synchronized (lock) {
+      target = appended;
+      while (flushing && durable < target && failure == null) {
+        try {
+          lock.wait();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          throw new InterruptedIOException("Interrupted waiting for journal sync");
+        }
+      }
+      if (durable >= target) {
+        return;
+      } else if (failure != null) {
+        throw new IOException("Journal failed earlier", failure);
+      }
+      flushing = true;
+      batch = pending;
+      pending = new ByteArrayOutputStream();
+      target = appended;
+    }
+
+    IOException failed = null;
+    try {
+      ByteBuffer buffer = ByteBuffer.wrap(batch.toByteArray());
+      while (buffer.hasRemaining()) {
+        channel.write(buffer);
+      }
+      if (fsync) {
+        channel.force(false);
+      }
+    } catch (IOException e) {
+      failed = e;
+      throw e;
+    } catch (RuntimeException | Error e) {
+      failed = new IOException("Journal write failed", e);
+      throw e;
+    } finally {
+      synchronized (lock) {
+        flushing = false;
+        if (failed == null) {
+          durable = target;
+        } else {
+          failure = failed;
+        }
+        lock.notifyAll();
+      }
+    }
+  }
+
+  /**
+   * Number of records appended so far.
+   *
+   * @return    --> The count.
+   */
+  long size() {
+    synchronized (lock) {
+      return appended;
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    try {
+      sync();
+    } finally {
+      channel.close();
+    }
+  }
+}
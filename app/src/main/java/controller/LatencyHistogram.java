@@ -0,0 +1,148 @@
+package controller;
+
+import controller.dto.OperationStats;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Calls, failures and a latency histogram of one operation.
+ *
+ * <p>Latencies are bucketed like HdrHistogram does it: 32 linear buckets per
+ * power of two nanoseconds, so a reported value is within about 3% of the
+ * ones recorded. Threads record into one of a few stripes picked by their
+ * id, never take a lock and rarely write the cache lines of another thread.
+ * Reading merges the stripes.
+ *
+ * <p>Every call is counted, but only every n-th call of a stripe reads the
+ * clock, see {@link #setTimingInterval(int)}. Which calls are timed does not
+ * depend on how long they take, so the percentiles stay unbiased.
+ */
+final class LatencyHistogram {
+  static final long NOT_TIMED = Long.MIN_VALUE;
+
+  private static final int SUB_BITS = 5;
+  private static final int SUB_COUNT = 1 << SUB_BITS;
+  // Latencies of 2^(MAX_SHIFT + SUB_BITS + 1) ns, about 17 seconds, or more share the last bucket.
+  private static final int MAX_SHIFT = 28;
+  private static final long MAX_VALUE = (1L << (MAX_SHIFT + SUB_BITS + 1)) - 1;
+  static final int BUCKETS = (MAX_SHIFT + 2) * SUB_COUNT;
+  // Longs per stripe of the counters, two cache lines so stripes never share one.
+  private static final int PAD = 16;
+  private static final int STRIPES = stripes();
+
+  private final String name;
+  // Per stripe: calls at 0, failures at 1.
+  private final AtomicLongArray counters = new AtomicLongArray(STRIPES * PAD);
+  private final AtomicLongArray buckets = new AtomicLongArray(STRIPES * BUCKETS);
+  private volatile long timingMask;
+
+  LatencyHistogram(String name, int timingInterval) {
+    this.name = name;
+    setTimingInterval(timingInterval);
+  }
+
+  private static int stripes() {
+    int cpus = Math.min(Runtime.getRuntime().availableProcessors(), 8);
+    return Integer.highestOneBit(cpus) << (Integer.bitCount(cpus) == 1 ? 0 : 1);
+  }
+
+  private static int stripe() {
+    long h = Thread.currentThread().getId() * 0x9E3779B97F4A7C15L;
+    return (int) (h >>> 32) & (STRIPES - 1);
+  }
+
+  static int bucket(long nanos) {
+    long v = Math.max(0, Math.min(nanos, MAX_VALUE));
+    int shift = Math.max(0, 64 - Long.numberOfLeadingZeros(v) - (SUB_BITS + 1));
+    return (shift << SUB_BITS) + (int) (v >>> shift);
+  }
+
+  // Highest latency that falls in the bucket.
+  static long highestIn(int bucket) {
+    int shift = bucket < 2 * SUB_COUNT ? 0 : (bucket >> SUB_BITS) - 1;
+    long lowest = (long) (bucket - (shift << SUB_BITS)) << shift;
+    return lowest + (1L << shift) - 1;
+  }
+
+  /**
+   * Time only every n-th call of each stripe.
+   *
+   * @param interval    --> A power of two, 1 to time every call.
+   */
+  void setTimingInterval(int interval) {
+    if (interval <= 0 || Integer.bitCount(interval) != 1) {
+      throw new IllegalArgumentException("Timing interval must be a power of two");
+    }
+    timingMask = interval - 1;
+  }
+
+  /**
+   * Count a call that is starting.
+   *
+   * @return    --> Clock reading to pass to {@link #stop}, or NOT_TIMED.
+   */
+  long start() {
+    long n = counters.getAndIncrement(stripe() * PAD);
+    return (n & timingMask) == 0 ? System.nanoTime() : NOT_TIMED;
+  }
+
+  void stop(long start) {
+    if (start != NOT_TIMED) {
+      buckets.getAndIncrement(stripe() * BUCKETS + bucket(System.nanoTime() - start));
+    }
+  }
+
+  void failed() {
+    counters.getAndIncrement(stripe() * PAD + 1);
+  }
+
+  /**
+   * Merge the stripes.
+   *
+   * <p>Calls still running are counted but not timed yet, so the snapshot
+   * may hold a few more calls than timings.
+   *
+   * @return    --> Counts and percentiles so far.
+   */
+  OperationStats snapshot() {
+    long calls = 0;
+    long failures = 0;
+    for (int s = 0; s < STRIPES; s++) {
+      calls += counters.get(s * PAD);
+      failures += counters.get(s * PAD + 1);
+    }
+    long[] merged = new long[BUCKETS];
+    long timed = 0;
+    double sum = 0;
+    int highest = -1;
+    for (int b = 0; b < BUCKETS; b++) {
+      long n = 0;
+      for (int s = 0; s < STRIPES; s++) {
+        n += buckets.get(s * BUCKETS + b);
+      }
+      if (n > 0) {
+        merged[b] = n;
+        timed += n;
+        sum += n * (double) highestIn(b);
+        highest = b;
+      }
+    }
+    return new OperationStats(name, calls, failures, timed, timed == 0 ? 0 : (long) (sum / timed),
+        percentile(merged, timed, 0.50), percentile(merged, timed, 0.90), percentile(merged, timed, 0.99),
+        percentile(merged, timed, 0.999), highest < 0 ? 0 : highestIn(highest));
+  }
+
+  private static long percentile(long[] merged, long timed, double fraction) {
+    if (timed == 0) {
+      return 0;
+    }
+    long rank = Math.max(1, (long) Math.ceil(fraction * timed));
+    long seen = 0;
+    for (int b = 0; b < merged.length; b++) {
+      seen += merged[b];
+      if (seen >= rank) {
+        return highestIn(b);
+      }
+    }
+    return highestIn(merged.length - 1);
+  }
+}
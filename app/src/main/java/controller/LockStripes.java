@@ -0,0 +1,75 @@
+package controller;
+
+import java.util.Arrays;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Fixed pool of locks that member and item ids hash onto.
+ *
+ * <p>Operations that touch several entities lock all of their stripes at once,
+ * always in ascending stripe order, so two bookings can never deadlock and
+ * bookings on unrelated members and items rarely share a lock.
+ */
+class LockStripes {
+  private final ReentrantLock[] locks;
+  private final int mask;
+
+  /**
+   * Constructor.
+   *
+   * @param count   --> Number of stripes, rounded up to a power of two.
+   */
+  LockStripes(int count) {
+    int size = count <= 1 ? 1 : Integer.highestOneBit(count - 1) << 1;
+    this.locks = new ReentrantLock[size];
+    this.mask = size - 1;
+    for (int i = 0; i < size; i++) {
+      locks[i] = new ReentrantLock();
+    }
+  }
+
+  int size() {
+    return locks.length;
+  }
+
+  /**
+   * Lock the stripes of the given ids in ascending stripe order.
+   *
+   * @param ids   --> Member and/or item ids to lock.
+   * @return      --> The locked stripes, to hand back to unlock().
+   */
+  int[] lock(String... ids) {
+    int[] stripes = new int[ids.length];
+    for (int i = 0; i < ids.length; i++) {
+      stripes[i] = stripeOf(ids[i]);
+    }
+    Arrays.sort(stripes);
+    int distinct = 0;
+    for (int i = 0; i < stripes.length; i++) {
+      if (i == 0 || stripes[i] != stripes[i - 1]) {
+        stripes[distinct++] = stripes[i];
+      }
+    }
+    int[] held = Arrays.copyOf(stripes, distinct);
+    for (int stripe : held) {
+      locks[stripe].lock();
+    }
+    return held;
+  }
+
+  /**
+   * Release stripes taken by lock(), in reverse order.
+   *
+   * @param held    --> The stripes returned by lock().
+   */
+  void unlock(int[] held) {
+    for (int i = held.length - 1; i >= 0; i--) {
+      locks[held[i]].unlock();
+    }
+  }
+
+  private int stripeOf(String id) {
+    int h = id.hashCode();
+    return (h ^ (h >>> 16)) & mask;
+  }
+}
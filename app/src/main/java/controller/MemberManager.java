@@ -1,24 +1,71 @@
 package controller;
 
+import controller.dto.CreditEntry;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
 import java.util.Map;
-import java.util.Random;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
 import model.Member;
 
 
 /**
  * Manages interactions using the member class.
+ *
+ * <p>Lookups are lock-free; changes that must keep email and phone unique
+ * are synchronized on the manager. Members are kept in id order, which is
+ * creation order for generated ids, so listings can be paged by id.
+ *
+ * <p>Names, emails and phones are also kept sorted, names and emails in
+ * lower case, so the members whose one starts with a prefix are a range of
+ * the sorted keys.
  */
 public class MemberManager {
-  private final Map<String, Member> membersById = new HashMap<>();
-  private final Map<String, Member> membersByEmail = new HashMap<>();
-  private final Map<String, Member> membersByPhone = new HashMap<>();
-  private final Random rnd = new Random();
+  private final NavigableMap<String, Member> membersById = new ConcurrentSkipListMap<>();
+  private final Map<String, Member> membersByEmail = new ConcurrentHashMap<>();
+  private final Map<String, Member> membersByPhone = new ConcurrentHashMap<>();
+  // Changed under this, like the maps above.
+  private final NavigableMap<PrefixKey, Member> namePrefixes = new ConcurrentSkipListMap<>();
+  private final NavigableMap<PrefixKey, Member> emailPrefixes = new ConcurrentSkipListMap<>();
+  private final NavigableMap<PrefixKey, Member> phonePrefixes = new ConcurrentSkipListMap<>();
+  private final IdGenerator ids;
+  private final LockStripes locks;
+  private final VersionStore versions;
+  private final CreditLedger ledger = new CreditLedger();
+  // Balances change only through here, which records each change in the ledger.
+  private final Member.Credits<CreditEntry.Kind> accounts = new Member.Credits<>(ledger);
+  private volatile ChangeListener changes = ChangeListener.NONE;
 
   // Default constructor.
-  public MemberManager() {}
+  public MemberManager() {
+    this(CounterIdGenerator.forMembers());
+  }
+
+  /**
+   * Constructor with a custom id source.
+   *
+   * @param ids   --> Generator for member ids.
+   */
+  public MemberManager(IdGenerator ids) {
+    this(ids, new LockStripes(1), new VersionStore());
+  }
+
+  /**
+   * Constructor sharing the lock stripes of the other managers.
+   *
+   * @param ids     --> Generator for member ids.
+   * @param locks       --> Lock stripes guarding member credits.
+   * @param versions    --> Where changes publish their copies for readers.
+   */
+  MemberManager(IdGenerator ids, LockStripes locks, VersionStore versions) {
+    this.ids = ids;
+    this.locks = locks;
+    this.versions = versions;
+  }
 
 
   /**
@@ -32,11 +79,11 @@ public class MemberManager {
    * @param other --> instance to copy.
    */
   public MemberManager(MemberManager other) {
+    this();
     for (Member m : other.listMembers()) {
       Member copy = new Member(m);
-      membersById.put(copy.getMemberId(), copy);
-      membersByEmail.put(copy.getEmail(), copy);
-      membersByPhone.put(copy.getPhone(), copy);
+      ids.reserve(copy.getMemberId());
+      index(copy);
     }
   }
 
@@ -49,38 +96,182 @@ public class MemberManager {
    * @param currentDay  --> The current day, store creation date of the acount.
    * @return            --> the new member.
    */
-  public Member createMember(String name, String email, String phone, int currentDay) {
+  public synchronized Member createMember(String name, String email, String phone, int currentDay) {
     if (membersByEmail.containsKey(email)) {
-      throw new IllegalArgumentException("Email already exists");
+      throw new ConflictException("Email already exists");
     }
 
     if (membersByPhone.containsKey(phone)) {
-      throw new IllegalArgumentException("Phone already exists");
+      throw new ConflictException("Phone already exists");
     }
 
-    String id;
-    do {
-      id = generateId();
-    } while (membersById.containsKey(id));
-    Member m = new Member(id, name, email, phone, currentDay);
-    membersById.put(id, m);
-    membersByEmail.put(email, m);
-    membersByPhone.put(phone, m);
+    Member m = new Member(generateId(), name, email, phone, currentDay);
+    index(m);
     return m;
   }
 
   /**
-   * Randomly generated id for users.
+   * Add a batch of new members, checking email and phone in the same pass.
+   *
+   * <p>Members rejected because their email or phone is taken, also by an
+   * earlier member of the batch, are left out and the rest are added.
    *
-   * @return    --> The random id.
+   * @param batch   --> New members with ids from generateIds().
+   * @return        --> Per member, null if it was added or else the reason it was not.
    */
-  public String generateId() {
-    String chars = "ABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789";
-    StringBuilder sb = new StringBuilder(6);
-    for (int i = 0; i < 6; i++) {
-      sb.append(chars.charAt(rnd.nextInt(chars.length())));
+  synchronized String[] createMembers(List<Member> batch) {
+    String[] errors = new String[batch.size()];
+    for (int i = 0; i < errors.length; i++) {
+      Member m = batch.get(i);
+      if (membersByEmail.containsKey(m.getEmail())) {
+        errors[i] = "Email already exists";
+      } else if (membersByPhone.containsKey(m.getPhone())) {
+        errors[i] = "Phone already exists";
+      } else {
+        index(m);
+      }
+    }
+    return errors;
+  }
+
+  /**
+   * Add a member that already has an id, e.g. one loaded from storage.
+   *
+   * @param m   --> The member.
+   */
+  synchronized void restoreMember(Member m) {
+    ids.reserve(m.getMemberId());
+    index(m);
+  }
+
+  // Holds the stripe until the copy is published, so a credit change right after cannot publish first.
+  private void index(Member m) {
+    int[] held = locks.lock(m.getMemberId());
+    try {
+      membersById.put(m.getMemberId(), m);
+      membersByEmail.put(m.getEmail(), m);
+      membersByPhone.put(m.getPhone(), m);
+      addPrefixes(m);
+      if (m.getCredits() != 0) {
+        ledger.append(m.getMemberId(), CreditEntry.Kind.OPENING, m.getCredits());
+      }
+      ChangeListener listener = changes;
+      listener.memberCreated(m.getMemberId(), m.getName(), m.getEmail(), m.getPhone(), m.getCreationDate());
+      if (m.getCredits() != 0) {
+        listener.creditsSet(m.getMemberId(), m.getCredits());
+      }
+      versions.change().member(m).commit();
+    } finally {
+      locks.unlock(held);
+    }
+  }
+
+  // Told about changes of all managers, from under their stripes, see ChangeListener.
+  void setChangeListener(ChangeListener listener) {
+    this.changes = listener;
+  }
+
+  ChangeListener getChangeListener() {
+    return changes;
+  }
+
+  VersionStore getVersions() {
+    return versions;
+  }
+
+  CreditLedger getLedger() {
+    return ledger;
+  }
+
+  // Credit movements go through these so the ledger sees them, callers hold the members' stripes.
+  void credit(Member m, CreditEntry.Kind kind, int amount) {
+    accounts.add(m, kind, amount);
+  }
+
+  void debit(Member m, CreditEntry.Kind kind, int amount) {
+    accounts.deduce(m, kind, amount);
+  }
+
+  void transfer(Member borrower, Member lender, int amount) {
+    accounts.transfer(borrower, lender, amount);
+  }
+
+  /**
+   * Members whose balance differs from what their ledger entries add up to.
+   *
+   * @return    --> Their ids, in id order, empty when the ledger accounts for every credit.
+   */
+  List<String> reconcile() {
+    List<String> mismatched = new ArrayList<>();
+    for (Member m : membersById.values()) {
+      int[] held = locks.lock(m.getMemberId());
+      try {
+        if (ledger.balance(m.getMemberId()) != m.getCredits()) {
+          mismatched.add(m.getMemberId());
+        }
+      } finally {
+        locks.unlock(held);
+      }
+    }
+    return mismatched;
+  }
+
+  /**
+   * Copy of a member to hand out, taken under its stripe so its fields belong together.
+   *
+   * @param m   --> The live member, may be null.
+   * @return    --> The copy, null if m is.
+   */
+  Member detach(Member m) {
+    if (m == null) {
+      return null;
+    }
+    int[] held = locks.lock(m.getMemberId());
+    try {
+      return new Member(m);
+    } finally {
+      locks.unlock(held);
+    }
+  }
+
+  /**
+   * Overwrite the credit balance of a member.
+   *
+   * @param memberId    --> Of the member.
+   * @param credits     --> New balance.
+   * @return            --> The member.
+   */
+  public Member setCredits(String memberId, int credits) {
+    Member m = membersById.get(memberId);
+    if (m == null) {
+      throw new NotFoundException("Member not found");
     }
-    return sb.toString();
+    int[] held = locks.lock(memberId);
+    try {
+      if (membersById.get(memberId) != m) {
+        throw new NotFoundException("Member not found");
+      }
+      accounts.set(m, CreditEntry.Kind.SET, credits);
+      changes.creditsSet(memberId, credits);
+      versions.change().member(m).commit();
+    } finally {
+      locks.unlock(held);
+    }
+    return m;
+  }
+
+  /**
+   * Unused id for a new user.
+   *
+   * @return    --> The id.
+   */
+  public String generateId() {
+    return ids.nextId();
+  }
+
+  // Ids for a batch of new members.
+  String[] generateIds(int count) {
+    return ids.nextIds(count);
   }
 
   /**
@@ -88,16 +279,25 @@ public class MemberManager {
    *
    * @param memberId    --> Of the member to remove.
    */
-  public void deleteMember(String memberId) {
-    Member m = membersById.remove(memberId);
+  public synchronized void deleteMember(String memberId) {
+    Member m = membersById.get(memberId);
     if (m == null) {
-      throw new IllegalArgumentException("Member not found");
-    } else if (!m.getOwnedItems().isEmpty()) {
-      throw new IllegalStateException("Menber owns items, remove or transfer before deleation.");
-    } else {
+      throw new NotFoundException("Member not found");
+    }
+    // Items are added and transferred under the owner's stripe.
+    int[] held = locks.lock(memberId);
+    try {
+      if (!m.getOwnedItems().isEmpty()) {
+        throw new IllegalStateException("Menber owns items, remove or transfer before deleation.");
+      }
       membersById.remove(memberId);
       membersByEmail.remove(m.getEmail());
       membersByPhone.remove(m.getPhone());
+      removePrefixes(m);
+      changes.memberDeleted(memberId);
+      versions.change().memberDeleted(memberId).commit();
+    } finally {
+      locks.unlock(held);
     }
   }
 
@@ -105,6 +305,11 @@ public class MemberManager {
     return membersById.get(id);
   }
 
+  // Without walking the members, every member has its own email.
+  int countMembers() {
+    return membersByEmail.size();
+  }
+
   public Member getMemberByEmail(String email) {
     return membersByEmail.get(email);
   }
@@ -117,6 +322,17 @@ public class MemberManager {
     return Collections.unmodifiableCollection(membersById.values());
   }
 
+  /**
+   * Members with an id after the given one, in id order.
+   *
+   * @param afterId   --> Id to continue after, null to start from the first member.
+   * @return          --> Read-only live view.
+   */
+  public Collection<Member> listMembersAfter(String afterId) {
+    NavigableMap<String, Member> tail = afterId == null ? membersById : membersById.tailMap(afterId, false);
+    return Collections.unmodifiableCollection(tail.values());
+  }
+
   /**
    * Change info of a pre-existing member.
    *
@@ -125,24 +341,128 @@ public class MemberManager {
    * @param newEmail    --> New email.
    * @param newPhone    --> New phone number.
    */
-  public void updateMemberInfo(String memberId, String newName, String newEmail, String newPhone) {
+  public synchronized void updateMemberInfo(String memberId, String newName, String newEmail, String newPhone) {
     Member m = membersById.get(memberId);
     if (m == null) {
-      throw new IllegalArgumentException("Member not found");
+      throw new NotFoundException("Member not found");
     }
 
     if (!m.getEmail().equals(newEmail) && membersByEmail.containsKey(newEmail)) {
-      throw new IllegalArgumentException("Email already exists");
+      throw new ConflictException("Email already exists");
     } else if (!m.getPhone().equals(newPhone) && membersByPhone.containsKey(newPhone)) {
-      throw new IllegalArgumentException("Phone already exists");
+      throw new ConflictException("Phone already exists");
     }
 
     membersByEmail.remove(m.getEmail());
     membersByPhone.remove(m.getPhone());
-    m.setName(newName);
-    m.setEmail(newEmail);
-    m.setPhone(newPhone);
+    removePrefixes(m);
+    // Under the stripe too, so the copy and a concurrent credit change see each other.
+    int[] held = locks.lock(memberId);
+    try {
+      m.setName(newName);
+      m.setEmail(newEmail);
+      m.setPhone(newPhone);
+      changes.memberUpdated(memberId, newName, newEmail, newPhone);
+      versions.change().member(m).commit();
+    } finally {
+      locks.unlock(held);
+    }
     membersByEmail.put(newEmail, m);
     membersByPhone.put(newPhone, m);
+    addPrefixes(m);
+  }
+
+  private void addPrefixes(Member m) {
+    namePrefixes.put(new PrefixKey(fold(m.getName()), m.getMemberId()), m);
+    emailPrefixes.put(new PrefixKey(fold(m.getEmail()), m.getMemberId()), m);
+    phonePrefixes.put(new PrefixKey(m.getPhone(), m.getMemberId()), m);
+  }
+
+  private void removePrefixes(Member m) {
+    namePrefixes.remove(new PrefixKey(fold(m.getName()), m.getMemberId()));
+    emailPrefixes.remove(new PrefixKey(fold(m.getEmail()), m.getMemberId()));
+    phonePrefixes.remove(new PrefixKey(m.getPhone(), m.getMemberId()));
+  }
+
+  // The same string when it has no upper case letters, as most emails.
+  private static String fold(String text) {
+    return text.toLowerCase(Locale.ROOT);
+  }
+
+  /**
+   * Members whose name starts with a prefix, ignoring case.
+   *
+   * @param prefix  --> Start of the name.
+   * @param limit   --> Maximum number of members.
+   * @return        --> The members, ordered by name and then id.
+   */
+  public List<Member> findMembersByName(String prefix, int limit) {
+    return findByPrefix(namePrefixes, fold(prefix), limit);
+  }
+
+  /**
+   * Members whose email starts with a prefix, ignoring case.
+   *
+   * @param prefix  --> Start of the email.
+   * @param limit   --> Maximum number of members.
+   * @return        --> The members, ordered by email.
+   */
+  public List<Member> findMembersByEmail(String prefix, int limit) {
+    return findByPrefix(emailPrefixes, fold(prefix), limit);
+  }
+
+  /**
+   * Members whose phone number starts with a prefix.
+   *
+   * @param prefix  --> Start of the phone number.
+   * @param limit   --> Maximum number of members.
+   * @return        --> The members, ordered by phone number.
+   */
+  public List<Member> findMembersByPhone(String prefix, int limit) {
+    return findByPrefix(phonePrefixes, prefix, limit);
+  }
+
+  // Seeks to the first key with the prefix in O(log n) and stops after limit members.
+  private static List<Member> findByPrefix(NavigableMap<PrefixKey, Member> index, String prefix, int limit) {
+    if (prefix == null || limit <= 0) {
+      throw new IllegalArgumentException("Prefix is required and limit must be positive");
+    }
+    List<Member> found = new ArrayList<>(Math.min(limit, 64));
+    for (Map.Entry<PrefixKey, Member> e : index.tailMap(new PrefixKey(prefix, ""), true).entrySet()) {
+      if (found.size() == limit || !e.getKey().text.startsWith(prefix)) {
+        break;
+      }
+      found.add(e.getValue());
+    }
+    return found;
+  }
+
+  /**
+   * Sort key of the prefix indexes, the folded text and then the member id for members that share it.
+   */
+  private static final class PrefixKey implements Comparable<PrefixKey> {
+    private final String text;
+    private final String id;
+
+    PrefixKey(String text, String id) {
+      this.text = text;
+      this.id = id;
+    }
+
+    @Override
+    public int compareTo(PrefixKey other) {
+      int c = text.compareTo(other.text);
+      return c != 0 ? c : id.compareTo(other.id);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      return o instanceof PrefixKey && compareTo((PrefixKey) o) == 0;
+    }
+
+    @Override
+    public int hashCode() {
+      return text.hashCode() * 31 + id.hashCode();
+    }
   }
 }
@@ -0,0 +1,352 @@
+package controller;
+
+import controller.dto.OperationStats;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.MXBean;
+import javax.management.ObjectName;
+import model.ContractStatus;
+
+/**
+ * How often each operation of one ControllerManager ran and how long it took,
+ * plus gauges of what the system holds.
+ *
+ * <p>Recording is meant to stay on in production: a call costs one atomic
+ * increment, and every n-th call per thread stripe reads the clock twice.
+ * Reading the numbers merges the per-thread stripes, which is the only part
+ * that visits every stripe.
+ */
+public class Metrics {
+  /**
+   * Time one in this many calls by default, reading the clock is most of the cost of recording.
+   */
+  public static final int DEFAULT_TIMING_INTERVAL = 8;
+  private static final String DOMAIN = "lending";
+  // JMX reads merge at most this often per operation, a console polling every attribute merges once.
+  private static final long MERGE_INTERVAL_NANOS = 1_000_000_000L;
+
+  private final ControllerManager controller;
+  private final LatencyHistogram[] histograms = new LatencyHistogram[Operation.values().length];
+  private final List<ObjectName> registered = new ArrayList<>();
+  private volatile int timingInterval = DEFAULT_TIMING_INTERVAL;
+
+  Metrics(ControllerManager controller) {
+    this.controller = controller;
+    for (Operation op : Operation.values()) {
+      histograms[op.ordinal()] = new LatencyHistogram(op.getDisplayName(), timingInterval);
+    }
+  }
+
+  LatencyHistogram histogram(Operation op) {
+    return histograms[op.ordinal()];
+  }
+
+  /**
+   * Time only one in so many calls of each operation.
+   *
+   * @param interval    --> A power of two, 1 to time every call.
+   */
+  public void setTimingInterval(int interval) {
+    for (LatencyHistogram h : histograms) {
+      h.setTimingInterval(interval);
+    }
+    timingInterval = interval;
+  }
+
+  public int getTimingInterval() {
+    return timingInterval;
+  }
+
+  public OperationStats getStats(Operation op) {
+    return histogram(op).snapshot();
+  }
+
+  /**
+   * Stats of every operation.
+   *
+   * @return    --> One entry per operation, in declaration order.
+   */
+  public List<OperationStats> getStats() {
+    List<OperationStats> stats = new ArrayList<>(histograms.length);
+    for (LatencyHistogram h : histograms) {
+      stats.add(h.snapshot());
+    }
+    return stats;
+  }
+
+  /* ==== ====== ==== */
+  /* ==== Gauges ==== */
+  /* ==== ====== ==== */
+  public int getMembers() {
+    return controller.getMemberManager().countMembers();
+  }
+
+  public int getItems() {
+    return controller.getItemManager().countItems();
+  }
+
+  /**
+   * Number of contracts the system still holds, expired ones are gone.
+   *
+   * @return    --> The count.
+   */
+  public int getContracts() {
+    int n = 0;
+    for (ContractStatus s : ContractStatus.values()) {
+      n += getContracts(s);
+    }
+    return n;
+  }
+
+  public int getContracts(ContractStatus status) {
+    return controller.getContractManager().countContracts(status);
+  }
+
+  public int getCurrentDay() {
+    return controller.getTimeManager().getCurrentDay();
+  }
+
+  /**
+   * Latest published version, read views opened now read this one.
+   *
+   * @return    --> The version.
+   */
+  public long getVersion() {
+    return controller.getVersions().getPublished();
+  }
+
+  /**
+   * Plain text dump of the gauges and of every operation that ran, latencies in microseconds.
+   *
+   * @return    --> The dump, one line per operation.
+   */
+  public String report() {
+    StringBuilder out = new StringBuilder();
+    out.append(String.format(Locale.ROOT, "Members %d, items %d, contracts %d (", getMembers(), getItems(),
+        getContracts()));
+    for (ContractStatus s : ContractStatus.values()) {
+      out.append(s.ordinal() == 0 ? "" : ", ").append(s).append(' ').append(getContracts(s));
+    }
+    out.append(String.format(Locale.ROOT, "), day %d, version %d%n", getCurrentDay(), getVersion()));
+    out.append(String.format(Locale.ROOT, "%-26s %10s %8s %9s %9s %9s %9s %9s %9s%n", "Operation (us)", "Calls",
+        "Failed", "Mean", "p50", "p90", "p99", "p99.9", "Max"));
+    for (OperationStats s : getStats()) {
+      if (s.getCalls() > 0) {
+        out.append(String.format(Locale.ROOT, "%-26s %10d %8d %9.1f %9.1f %9.1f %9.1f %9.1f %9.1f%n",
+            s.getOperation(), s.getCalls(), s.getFailures(), s.getMeanNanos() / 1e3, s.getP50Nanos() / 1e3,
+            s.getP90Nanos() / 1e3, s.getP99Nanos() / 1e3, s.getP999Nanos() / 1e3, s.getMaxNanos() / 1e3));
+      }
+    }
+    out.append("One in ").append(timingInterval).append(" calls timed").append(System.lineSeparator());
+    return out.toString();
+  }
+
+  /* ==== === ==== */
+  /* ==== JMX ==== */
+  /* ==== === ==== */
+
+  /**
+   * Register the gauges as "lending:type=State" and each operation as
+   * "lending:type=Operation,name=...", in the platform MBean server.
+   *
+   * <p>Only one ControllerManager of a JVM can be registered at a time.
+   */
+  public synchronized void registerBeans() {
+    if (!registered.isEmpty()) {
+      return;
+    }
+    MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+    try {
+      register(server, new ObjectName(DOMAIN, "type", "State"), new State());
+      for (Operation op : Operation.values()) {
+        ObjectName name = new ObjectName(DOMAIN + ":type=Operation,name=" + op.getDisplayName());
+        register(server, name, new OperationBean(histogram(op)));
+      }
+    } catch (JMException e) {
+      unregisterBeans();
+      throw new IllegalStateException("Could not register metrics: " + e.getMessage(), e);
+    }
+  }
+
+  private void register(MBeanServer server, ObjectName name, Object bean) throws JMException {
+    server.registerMBean(bean, name);
+    registered.add(name);
+  }
+
+  /**
+   * Remove what registerBeans added.
+   */
+  public synchronized void unregisterBeans() {
+    MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+    for (ObjectName name : registered) {
+      try {
+        server.unregisterMBean(name);
+      } catch (JMException e) {
+        // Already gone.
+      }
+    }
+    registered.clear();
+  }
+
+  /**
+   * Gauges of what the system holds.
+   */
+  @MXBean
+  public interface StateMxBean {
+    int getMembers();
+
+    int getItems();
+
+    int getContracts();
+
+    Map<String, Integer> getContractsByStatus();
+
+    int getCurrentDay();
+
+    long getVersion();
+
+    int getTimingInterval();
+
+    void setTimingInterval(int interval);
+  }
+
+  /**
+   * Calls and latencies of one operation, in nanoseconds.
+   */
+  @MXBean
+  public interface OperationMxBean {
+    long getCalls();
+
+    long getFailures();
+
+    long getTimed();
+
+    long getMeanNanos();
+
+    long getP50Nanos();
+
+    long getP90Nanos();
+
+    long getP99Nanos();
+
+    long getP999Nanos();
+
+    long getMaxNanos();
+  }
+
+  private final class State implements StateMxBean {
+    @Override
+    public int getMembers() {
+      return Metrics.this.getMembers();
+    }
+
+    @Override
+    public int getItems() {
+      return Metrics.this.getItems();
+    }
+
+    @Override
+    public int getContracts() {
+      return Metrics.this.getContracts();
+    }
+
+    @Override
+    public Map<String, Integer> getContractsByStatus() {
+      Map<String, Integer> counts = new LinkedHashMap<>();
+      for (ContractStatus s : ContractStatus.values()) {
+        counts.put(s.name(), Metrics.this.getContracts(s));
+      }
+      return counts;
+    }
+
+    @Override
+    public int getCurrentDay() {
+      return Metrics.this.getCurrentDay();
+    }
+
+    @Override
+    public long getVersion() {
+      return Metrics.this.getVersion();
+    }
+
+    @Override
+    public int getTimingInterval() {
+      return Metrics.this.getTimingInterval();
+    }
+
+    @Override
+    public void setTimingInterval(int interval) {
+      Metrics.this.setTimingInterval(interval);
+    }
+  }
+
+  private static final class OperationBean implements OperationMxBean {
+    private final LatencyHistogram histogram;
+    private OperationStats merged;
+    private long mergedAt;
+
+    OperationBean(LatencyHistogram histogram) {
+      this.histogram = histogram;
+    }
+
+    private synchronized OperationStats stats() {
+      long now = System.nanoTime();
+      if (merged == null || now - mergedAt >= MERGE_INTERVAL_NANOS) {
+        merged = histogram.snapshot();
+        mergedAt = now;
+      }
+      return merged;
+    }
+
+    @Override
+    public long getCalls() {
+      return stats().getCalls();
+    }
+
+    @Override
+    public long getFailures() {
+      return stats().getFailures();
+    }
+
+    @Override
+    public long getTimed() {
+      return stats().getTimed();
+    }
+
+    @Override
+    public long getMeanNanos() {
+      return stats().getMeanNanos();
+    }
+
+    @Override
+    public long getP50Nanos() {
+      return stats().getP50Nanos();
+    }
+
+    @Override
+    public long getP90Nanos() {
+      return stats().getP90Nanos();
+    }
+
+    @Override
+    public long getP99Nanos() {
+      return stats().getP99Nanos();
+    }
+
+    @Override
+    public long getP999Nanos() {
+      return stats().getP999Nanos();
+    }
+
+    @Override
+    public long getMaxNanos() {
+      return stats().getMaxNanos();
+    }
+  }
+}
@@ -0,0 +1,15 @@
+package controller;
+
+/**
+ * Thrown when a call names a member, item or contract that does not exist.
+ *
+ * <p>An IllegalArgumentException, so callers that treat every bad argument
+ * alike need not tell it apart.
+ */
+public class NotFoundException extends IllegalArgumentException {
+  private static final long serialVersionUID = 1L;
+
+  public NotFoundException(String message) {
+    super(message);
+  }
+}
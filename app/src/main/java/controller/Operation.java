@@ -0,0 +1,67 @@
+package controller;
+
+/**
+ * The public operations of the ControllerManager that are measured.
+ *
+ * <p>A listing and a page of the same listing are measured apart, as are
+ * the plain and the status filtered contract pages. The streams and
+ * openReadView are counted like the rest, but their work mostly happens
+ * after they return, so their latency only covers setting them up.
+ */
+public enum Operation {
+  CREATE_MEMBER("createMember"),
+  SET_CREDITS("setCredits"),
+  GET_MEMBER("getMemberById"),
+  GET_MEMBER_DTO("getMemberDtoById"),
+  GET_OWNED_ITEMS("getOwnedItemsForMember"),
+  LIST_MEMBERS("listMembers"),
+  LIST_MEMBERS_PAGE("listMembersPage"),
+  STREAM_MEMBERS("streamMembers"),
+  MEMBER_REPORT("getMemberReport"),
+  FIND_MEMBERS_BY_NAME("findMembersByName"),
+  FIND_MEMBERS_BY_EMAIL("findMembersByEmail"),
+  FIND_MEMBERS_BY_PHONE("findMembersByPhone"),
+  UPDATE_MEMBER("updateMember"),
+  DELETE_MEMBER("deleteMember"),
+  GET_CREDIT_STATEMENT("getCreditStatement"),
+  GET_CREDIT_ENTRIES("getCreditEntries"),
+  RECONCILE_CREDITS("reconcileCredits"),
+  GET_ITEM("getItemById"),
+  GET_ITEM_DTO("getItemDtoById"),
+  CREATE_ITEM("createItem"),
+  LIST_ITEMS("listItems"),
+  LIST_ITEMS_PAGE("listItemsPage"),
+  STREAM_ITEMS("streamItems"),
+  SEARCH_AVAILABLE_ITEMS("searchAvailableItems"),
+  SEARCH_ITEMS("searchItems"),
+  UPDATE_ITEM("updateItemInfo"),
+  DELETE_ITEM("deleteItem"),
+  TRANSFER_ITEM("transferItem"),
+  CREATE_CONTRACT("createContract"),
+  LIST_CONTRACTS("listContracts"),
+  LIST_CONTRACTS_PAGE("listContractsPage"),
+  LIST_CONTRACTS_BY_STATUS("listContractsByStatus"),
+  STREAM_CONTRACTS("streamContracts"),
+  COUNT_CONTRACTS("countContracts"),
+  GET_CONTRACTS_FOR_ITEM("getContractsForItem"),
+  GET_CONTRACTS_FOR_BORROWER("getContractsForBorrower"),
+  GET_CONTRACTS_FOR_LENDER("getContractsForLender"),
+  OPEN_READ_VIEW("openReadView"),
+  GET_CURRENT_DAY("getCurrentDay"),
+  ADVANCE_DAY("advanceDay");
+
+  private final String displayName;
+
+  Operation(String displayName) {
+    this.displayName = displayName;
+  }
+
+  /**
+   * Name as it shows in reports and JMX, the name of the method.
+   *
+   * @return    --> The name.
+   */
+  public String getDisplayName() {
+    return displayName;
+  }
+}
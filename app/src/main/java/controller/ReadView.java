@@ -0,0 +1,121 @@
+package controller;
+
+import controller.dto.ContractDto;
+import controller.dto.ItemDto;
+import controller.dto.MemberDto;
+import controller.dto.MemberReport;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Consistent read-only view of the system as of one version.
+ *
+ * <p>Everything read through a view reflects the same set of changes: a
+ * booking shows up as the contract, the borrower's lower balance and the
+ * lender's higher one together, or not at all. Changes keep running while
+ * a view is open and never wait for it. Close the view when done, the
+ * copies it may still read are kept until then.
+ */
+public class ReadView implements AutoCloseable {
+  private final VersionStore store;
+  private final long version;
+  private boolean closed;
+
+  ReadView(VersionStore store) {
+    this.store = store;
+    this.version = store.pin();
+  }
+
+  /**
+   * The version the view reads, later views never read an older one.
+   *
+   * @return    --> The version.
+   */
+  public long getVersion() {
+    return version;
+  }
+
+  public int getCurrentDay() {
+    return store.day(version);
+  }
+
+  public MemberDto getMember(String id) {
+    return store.member(id, version);
+  }
+
+  public ItemDto getItem(String id) {
+    return store.item(id, version);
+  }
+
+  public ContractDto getContract(String id) {
+    return store.contract(id, version);
+  }
+
+  /**
+   * Members in id order.
+   *
+   * @param afterId   --> Id to continue after, null to start from the first member.
+   * @return          --> Lazy read-only view, only valid while this view is open.
+   */
+  public Collection<MemberDto> listMembers(String afterId) {
+    return store.members(afterId, version);
+  }
+
+  /**
+   * Items in id order.
+   *
+   * @param afterId   --> Id to continue after, null to start from the first item.
+   * @return          --> Lazy read-only view, only valid while this view is open.
+   */
+  public Collection<ItemDto> listItems(String afterId) {
+    return store.items(afterId, version);
+  }
+
+  /**
+   * Contracts in id order, with their status on the day of the view.
+   *
+   * @param afterId   --> Id to continue after, null to start from the first contract.
+   * @return          --> Lazy read-only view, only valid while this view is open.
+   */
+  public Collection<ContractDto> listContracts(String afterId) {
+    return store.contracts(afterId, version);
+  }
+
+  /**
+   * Items a member owns, in id order.
+   *
+   * @param memberId    --> Of the owner.
+   * @return            --> Lazy read-only view, empty if the member does not exist.
+   */
+  public Collection<ItemDto> getOwnedItems(String memberId) {
+    return getMember(memberId) == null ? Collections.emptyList() : store.ownedItems(memberId, version);
+  }
+
+  /**
+   * Contracts for an item, ordered by start day.
+   *
+   * @param itemId  --> Of the item.
+   * @return        --> Lazy read-only view, empty if the item does not exist.
+   */
+  public Collection<ContractDto> getContractsForItem(String itemId) {
+    return getItem(itemId) == null ? Collections.emptyList() : store.itemContracts(itemId, version);
+  }
+
+  /**
+   * Every member with the items they own and each item's contracts, in one pass.
+   *
+   * @return    --> One report per member, in id order.
+   */
+  public List<MemberReport> getMemberReport() {
+    return store.memberReport(version);
+  }
+
+  @Override
+  public void close() {
+    if (!closed) {
+      closed = true;
+      store.unpin(version);
+    }
+  }
+}
@@ -0,0 +1,640 @@
+package controller;
+
+import controller.dto.ContractDto;
+import controller.dto.ItemDto;
+import controller.dto.MemberDto;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BrokenBarrierException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+import model.Contract;
+import model.Item;
+import model.ItemCatagory;
+import model.Member;
+
+/**
+ * Members, items and contracts partitioned over several independent shards.
+ *
+ * <p>Each shard is a ControllerManager of its own with a single thread that
+ * runs every change to it, so changes on different shards never contend.
+ * Reads go to the shards' versioned copies directly and never wait.
+ *
+ * <p>Ids come from counters that give shard k of n every n-th value from k,
+ * so an id is routed by its value modulo n without a lookup. New members are
+ * spread over the shards in turn, an item lives on the shard of its owner,
+ * and a contract on the shard of its item.
+ *
+ * <p>A booking whose borrower lives on another shard than the item is made in
+ * two phases: the item's shard holds the period, the borrower's shard takes
+ * the credits, then the item's shard books it, or the credits are given back
+ * and the hold dropped if either side fails.
+ *
+ * <p>Advancing time stops every shard thread at a barrier first, so no change
+ * on any shard runs while some shards are on the old day and others on the
+ * new one. Reads do not stop, so a listing gathered from several shards
+ * while time advances may still mix the two days. Every shard checks that it
+ * can advance before the barrier, and none advances if one of them cannot.
+ * A shard that still fails while advancing leaves the shards on different
+ * days; from then on every change is refused, reads keep working.
+ */
+public class ShardedController implements AutoCloseable {
+  private static final String DAYS_APART = "A shard failed to advance, the shards are on different days";
+
+  private final Shard[] shards;
+  // Read any id of their kind, whichever shard wrote it.
+  private final CounterIdGenerator memberIds = CounterIdGenerator.forMembers();
+  private final CounterIdGenerator itemIds = CounterIdGenerator.forItems();
+  private final AtomicInteger nextMemberShard = new AtomicInteger();
+  // Emails and phones are unique over all shards, claimed here before a shard takes them.
+  private final Map<String, String> emails = new ConcurrentHashMap<>();
+  private final Map<String, String> phones = new ConcurrentHashMap<>();
+  // Set once every shard has moved to the day.
+  private volatile int currentDay;
+  // Why a shard failed to advance after others did, every change is refused once set.
+  private volatile RuntimeException broken;
+
+  /**
+   * Constructor.
+   *
+   * @param count   --> Number of shards.
+   */
+  public ShardedController(int count) {
+    this(count, k -> ControllerManager.createEmpty(CounterIdGenerator.forMembers(k, count),
+        CounterIdGenerator.forItems(k, count), CounterIdGenerator.forContracts(k, count)));
+  }
+
+  // Shard k runs what create returns for k, which must take every count-th id from k.
+  ShardedController(int count, IntFunction<ControllerManager> create) {
+    if (count <= 0) {
+      throw new IllegalArgumentException("Need at least one shard");
+    }
+    shards = new Shard[count];
+    for (int k = 0; k < count; k++) {
+      shards[k] = new Shard(k, create.apply(k));
+    }
+  }
+
+  public int getShards() {
+    return shards.length;
+  }
+
+  /**
+   * The shard a member lives on, which also keeps the member's items and their contracts.
+   *
+   * @param memberId  --> Id of the member.
+   * @return          --> Index of the shard.
+   */
+  public int shardOfMember(String memberId) {
+    return route(memberIds, memberId, "Member not found");
+  }
+
+  private int route(CounterIdGenerator kind, String id, String notFound) {
+    long value = kind.valueOf(id);
+    if (value < 0) {
+      throw new NotFoundException(notFound);
+    }
+    return (int) (value % shards.length);
+  }
+
+  private Shard member(String id) {
+    return shards[route(memberIds, id, "Member not found")];
+  }
+
+  private Shard item(String id) {
+    return shards[route(itemIds, id, "Item not found")];
+  }
+
+  /* ==== === ==== ==== === ==== */
+  /* ==== Member operations ==== */
+  /* ==== === ==== ==== === ==== */
+  /**
+   * Add a member on the next shard in turn.
+   *
+   * @param name    --> Name.
+   * @param email   --> Email, unique over all shards.
+   * @param phone   --> Phone, unique over all shards.
+   * @return        --> The member.
+   */
+  public Member createMember(String name, String email, String phone) {
+    Shard shard = shards[Math.floorMod(nextMemberShard.getAndIncrement(), shards.length)];
+    claim(emails, email, "Email already exists");
+    try {
+      claim(phones, phone, "Phone already exists");
+    } catch (RuntimeException e) {
+      emails.remove(email);
+      throw e;
+    }
+    try {
+      return shard.call(c -> c.createMember(name, email, phone));
+    } catch (RuntimeException | Error e) {
+      emails.remove(email);
+      phones.remove(phone);
+      throw e;
+    }
+  }
+
+  private static void claim(Map<String, String> claims, String key, String taken) {
+    if (key == null || claims.putIfAbsent(key, key) != null) {
+      throw new ConflictException(taken);
+    }
+  }
+
+  public Member setCredits(String memberId, int credits) {
+    return member(memberId).call(c -> c.setCredits(memberId, credits));
+  }
+
+  public Member getMemberById(String id) {
+    return member(id).controller.getMemberById(id);
+  }
+
+  public MemberDto getMemberDtoById(String id) {
+    return member(id).controller.getMemberDtoById(id);
+  }
+
+  /**
+   * Change the info of a member.
+   *
+   * @param id          --> Of the member.
+   * @param newName     --> New name.
+   * @param newEmail    --> New email, unique over all shards.
+   * @param newPhone    --> New phone, unique over all shards.
+   */
+  public void updateMember(String id, String newName, String newEmail, String newPhone) {
+    member(id).call(c -> {
+      Member m = c.getMemberById(id);
+      if (m == null) {
+        throw new NotFoundException("Member not found");
+      }
+      String oldEmail = m.getEmail();
+      String oldPhone = m.getPhone();
+      boolean emailChanged = !oldEmail.equals(newEmail);
+      boolean phoneChanged = !oldPhone.equals(newPhone);
+      if (emailChanged) {
+        claim(emails, newEmail, "Email already exists");
+      }
+      try {
+        if (phoneChanged) {
+          claim(phones, newPhone, "Phone already exists");
+        }
+        try {
+          c.updateMember(id, newName, newEmail, newPhone);
+        } catch (RuntimeException e) {
+          if (phoneChanged) {
+            phones.remove(newPhone);
+          }
+          throw e;
+        }
+      } catch (RuntimeException e) {
+        if (emailChanged) {
+          emails.remove(newEmail);
+        }
+        throw e;
+      }
+      if (emailChanged) {
+        emails.remove(oldEmail);
+      }
+      if (phoneChanged) {
+        phones.remove(oldPhone);
+      }
+      return null;
+    });
+  }
+
+  /**
+   * Remove a member.
+   *
+   * @param id    --> Of the member.
+   */
+  public void deleteMember(String id) {
+    member(id).call(c -> {
+      Member m = c.getMemberById(id);
+      if (m == null) {
+        throw new NotFoundException("Member not found");
+      }
+      c.deleteMember(id);
+      emails.remove(m.getEmail());
+      phones.remove(m.getPhone());
+      return null;
+    });
+  }
+
+  /**
+   * Every member of every shard.
+   *
+   * @return    --> The members in id order.
+   */
+  public List<MemberDto> listMembers() {
+    return gather(ControllerManager::listMembers, Comparator.comparing(MemberDto::getMemberId));
+  }
+
+  /* === === ==== ==== === === */
+  /* ==== Item operations ==== */
+  /* === === ==== ==== === === */
+  /**
+   * Add an item on the shard of its owner.
+   *
+   * @param ownerId     --> Id of the owner.
+   * @param category    --> Category.
+   * @param name        --> Name.
+   * @param desc        --> Description.
+   * @param costPerDay  --> Cost per day.
+   * @return            --> The item.
+   */
+  public Item createItem(String ownerId, ItemCatagory category, String name, String desc, int costPerDay) {
+    return member(ownerId).call(c -> c.createItem(ownerId, category, name, desc, costPerDay));
+  }
+
+  public Item getItemById(String id) {
+    return item(id).controller.getItemById(id);
+  }
+
+  public ItemDto getItemDtoById(String id) {
+    return item(id).controller.getItemDtoById(id);
+  }
+
+  /**
+   * Change the info of an item, on the shard that holds it.
+   *
+   * @param id        --> Of the item.
+   * @param newName   --> New name, kept if blank.
+   * @param newDesc   --> New description, kept if null.
+   * @param newCost   --> New cost per day, kept if null.
+   */
+  public void updateItemInfo(String id, String newName, String newDesc, Integer newCost) {
+    item(id).call(c -> {
+      c.updateItemInfo(id, newName, newDesc, newCost);
+      return null;
+    });
+  }
+
+  /**
+   * Remove an item, on the shard that holds it.
+   *
+   * @param id    --> Of the item.
+   */
+  public void deleteItem(String id) {
+    item(id).call(c -> {
+      c.deleteItem(id);
+      return null;
+    });
+  }
+
+  /**
+   * Give an item to another member of the same shard.
+   *
+   * <p>Items live on their owner's shard and keep their id, so moving one to
+   * an owner on another shard is not supported.
+   *
+   * @param id            --> Of the item.
+   * @param newOwnerId    --> Of the member receiving it.
+   */
+  public void transferItem(String id, String newOwnerId) {
+    Shard shard = item(id);
+    if (member(newOwnerId) != shard) {
+      throw new ConflictException("New owner lives on another shard");
+    }
+    shard.call(c -> {
+      c.transferItem(id, newOwnerId);
+      return null;
+    });
+  }
+
+  /**
+   * Every item of every shard.
+   *
+   * @return    --> The items in id order.
+   */
+  public List<ItemDto> listItems() {
+    return gather(ControllerManager::listItems, Comparator.comparing(ItemDto::getId));
+  }
+
+  /* ==== ==== ==== ==== ==== ==== */
+  /* ==== Contract operations ==== */
+  /* ==== ==== ==== ==== ==== ==== */
+  /**
+   * Book an item, in two phases when the borrower lives on another shard.
+   *
+   * @param borrowerId    --> The id of the user borrowing the item.
+   * @param itemId        --> The id of the item being borrowed.
+   * @param startDay      --> Start day of contract.
+   * @param endDay        --> End day of contract.
+   * @return              --> Contract.
+   */
+  public Contract createContract(String borrowerId, String itemId, int startDay, int endDay) {
+    Shard lending = item(itemId);
+    Shard borrowing = member(borrowerId);
+    if (lending == borrowing) {
+      return lending.call(c -> {
+        lending.checkNotHeld(itemId, startDay, endDay);
+        return c.createContract(borrowerId, itemId, startDay, endDay);
+      });
+    }
+
+    // Reserve the period, then the credits.
+    Hold hold = lending.call(c -> lending.hold(itemId, startDay, endDay));
+    Member borrower;
+    try {
+      borrower = borrowing.call(c -> c.charge(borrowerId, hold.cost));
+    } catch (RuntimeException | Error e) {
+      try {
+        lending.call(c -> lending.release(hold));
+      } catch (RuntimeException | Error released) {
+        e.addSuppressed(released);
+      }
+      throw e;
+    }
+
+    // Commit, or give the credits back.
+    try {
+      return lending.call(c -> {
+        lending.release(hold);
+        return c.createPaidContract(borrower, itemId, startDay, endDay, hold.cost);
+      });
+    } catch (RuntimeException | Error e) {
+      try {
+        borrowing.call(c -> {
+          c.refund(borrower, hold.cost);
+          return null;
+        });
+      } catch (RuntimeException | Error refunded) {
+        e.addSuppressed(refunded);
+      }
+      throw e;
+    }
+  }
+
+  /**
+   * Contracts the member is borrowing under, from every shard.
+   *
+   * @param memberId    --> Of the borrower.
+   * @return            --> The contracts in id order.
+   */
+  public List<ContractDto> getContractsForBorrower(String memberId) {
+    return gather(c -> c.getContractsForBorrower(memberId), Comparator.comparing(d -> d.id));
+  }
+
+  /**
+   * Contracts for items the member lends out, all on the member's shard.
+   *
+   * @param memberId    --> Of the lender.
+   * @return            --> The contracts in creation order.
+   */
+  public Collection<ContractDto> getContractsForLender(String memberId) {
+    return member(memberId).controller.getContractsForLender(memberId);
+  }
+
+  public Collection<ContractDto> getContractsForItem(String itemId) {
+    return item(itemId).controller.getContractsForItem(itemId);
+  }
+
+  /**
+   * Every contract of every shard.
+   *
+   * @return    --> The contracts in id order.
+   */
+  public List<ContractDto> listContracts() {
+    return gather(ControllerManager::listContracts, Comparator.comparing(d -> d.id));
+  }
+
+  /* ==== === === === === ==== */
+  /* ==== Time operations ==== */
+  /* ==== === === === === ==== */
+  /**
+   * The day every shard has reached.
+   *
+   * @return    --> The day.
+   */
+  public int getCurrentDay() {
+    return currentDay;
+  }
+
+  /**
+   * Move time forward on every shard, the shards advance side by side.
+   *
+   * <p>Every shard thread checks that it can advance and waits for the others
+   * at a barrier. If one of them cannot, none advances. Otherwise they advance
+   * and wait for each other again before taking the next change, so no change
+   * sees shards on different days.
+   *
+   * @param days    --> To advance by.
+   */
+  public synchronized void advanceDay(int days) {
+    if (days <= 0) {
+      throw new IllegalArgumentException("Days to advance must be > 0");
+    }
+    CyclicBarrier barrier = new CyclicBarrier(shards.length);
+    AtomicReference<RuntimeException> refused = new AtomicReference<>();
+    AtomicInteger advancing = new AtomicInteger();
+    List<Future<Object>> done = new ArrayList<>(shards.length);
+    for (Shard shard : shards) {
+      done.add(shard.submit(c -> {
+        try {
+          c.checkAdvance(days);
+        } catch (RuntimeException e) {
+          refused.compareAndSet(null, e);
+        }
+        cross(barrier);
+        try {
+          // Every check happened before the barrier tripped.
+          if (refused.get() == null) {
+            advancing.incrementAndGet();
+            c.advanceDay(days);
+          }
+        } finally {
+          cross(barrier);
+        }
+        return null;
+      }));
+    }
+    RuntimeException failed = null;
+    for (Future<Object> f : done) {
+      try {
+        await(f);
+      } catch (RuntimeException e) {
+        if (failed == null) {
+          failed = e;
+        } else {
+          failed.addSuppressed(e);
+        }
+      }
+    }
+    if (refused.get() != null) {
+      throw refused.get();
+    } else if (failed != null && advancing.get() > 0) {
+      broken = failed;
+      throw new IllegalStateException(DAYS_APART, failed);
+    } else if (failed != null) {
+      throw failed;
+    }
+    currentDay += days;
+  }
+
+  private static void cross(CyclicBarrier barrier) {
+    try {
+      barrier.await();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted waiting for the other shards", e);
+    } catch (BrokenBarrierException e) {
+      throw new IllegalStateException("Another shard failed to advance", e);
+    }
+  }
+
+  /**
+   * Calls and latencies of the operations one shard ran.
+   *
+   * @param shard   --> Index of the shard.
+   * @return        --> Its metrics.
+   */
+  public Metrics getMetrics(int shard) {
+    return shards[shard].controller.getMetrics();
+  }
+
+  /**
+   * Stop the shard threads once the changes already submitted have run.
+   */
+  @Override
+  public void close() {
+    for (Shard shard : shards) {
+      shard.writer.shutdown();
+    }
+    try {
+      for (Shard shard : shards) {
+        shard.writer.awaitTermination(5, TimeUnit.SECONDS);
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  // Runs the reads on the calling thread, they never wait on the shard threads.
+  private <T> List<T> gather(Function<ControllerManager, Collection<T>> read, Comparator<T> order) {
+    List<T> all = new ArrayList<>();
+    for (Shard shard : shards) {
+      all.addAll(read.apply(shard.controller));
+    }
+    if (shards.length > 1) {
+      all.sort(order);
+    }
+    return all;
+  }
+
+  private static <T> T await(Future<T> f) {
+    try {
+      return f.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted waiting for a shard", e);
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      } else if (cause instanceof Error) {
+        throw (Error) cause;
+      }
+      throw new IllegalStateException(cause);
+    }
+  }
+
+  /**
+   * A period of an item held by a booking in progress, and what it costs.
+   */
+  private static final class Hold {
+    final String itemId;
+    final int startDay;
+    final int endDay;
+    final int cost;
+
+    Hold(String itemId, int startDay, int endDay, int cost) {
+      this.itemId = itemId;
+      this.startDay = startDay;
+      this.endDay = endDay;
+      this.cost = cost;
+    }
+
+    // Same half-open periods as Contract.overlaps().
+    boolean overlaps(int start, int end) {
+      return start < endDay && startDay < end;
+    }
+  }
+
+  /**
+   * One partition and the single thread that changes it.
+   */
+  private final class Shard {
+    final ControllerManager controller;
+    final ExecutorService writer;
+    // Item id to the periods held by two-phase bookings, only used on the writer thread.
+    private final Map<String, List<Hold>> holds = new HashMap<>();
+
+    Shard(int index, ControllerManager controller) {
+      this.controller = controller;
+      this.writer = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "shard-" + index);
+        t.setDaemon(true);
+        return t;
+      });
+    }
+
+    <T> Future<T> submit(Function<ControllerManager, T> change) {
+      if (broken != null) {
+        throw new IllegalStateException(DAYS_APART, broken);
+      }
+      return writer.submit(() -> change.apply(controller));
+    }
+
+    <T> T call(Function<ControllerManager, T> change) {
+      return await(submit(change));
+    }
+
+    // Writer thread only.
+    void checkNotHeld(String itemId, int startDay, int endDay) {
+      for (Hold h : holds.getOrDefault(itemId, List.of())) {
+        if (h.overlaps(startDay, endDay)) {
+          throw new ConflictException("Item not available in that period");
+        }
+      }
+    }
+
+    // Writer thread only.
+    Hold hold(String itemId, int startDay, int endDay) {
+      Item item = controller.getItemManager().getItemById(itemId);
+      if (item == null) {
+        throw new NotFoundException("Item not found");
+      } else if (startDay < 0 || endDay <= startDay) {
+        throw new IllegalArgumentException("Invalid contract days");
+      }
+      checkNotHeld(itemId, startDay, endDay);
+      if (!controller.getItemManager().isAvailable(item, startDay, endDay)) {
+        throw new ConflictException("Item not available in that period");
+      }
+      Hold h = new Hold(itemId, startDay, endDay, (endDay - startDay) * item.getCostPerDay());
+      holds.computeIfAbsent(itemId, id -> new ArrayList<>(1)).add(h);
+      return h;
+    }
+
+    // Writer thread only.
+    Object release(Hold h) {
+      List<Hold> held = holds.get(h.itemId);
+      held.remove(h);
+      if (held.isEmpty()) {
+        holds.remove(h.itemId);
+      }
+      return null;
+    }
+  }
+}
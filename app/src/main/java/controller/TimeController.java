@@ -27,7 +27,7 @@ public class TimeController {
    */
   public TimeDto advanceDays(int days) {
     timeManager.advanceDay(days);
-    contractManager.cleanUpExpiredContracts(timeManager.getCurrentDay());
+    contractManager.runTransitions(timeManager.getCurrentDay());
     return getCurrentTime();
   }
 }
@@ -0,0 +1,619 @@
+package controller;
+
+import controller.dto.ContractDto;
+import controller.dto.ItemDto;
+import controller.dto.MemberDto;
+import controller.dto.MemberReport;
+import java.util.AbstractCollection;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NoSuchElementException;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Function;
+import model.Contract;
+import model.Item;
+import model.Member;
+
+/**
+ * Committed versions of the members, items and contracts, for reads that never block changes.
+ *
+ * <p>Every change ends by publishing immutable copies of what it touched
+ * under the next version number, while it still holds its lock stripes. That
+ * step is short and never waits for readers. A reader pins the latest version
+ * and only looks at copies from that version or older, so it sees all of a
+ * change or none of it. Older copies are kept while a pinned reader may still
+ * need them, and later changes drop them once every reader has moved past.
+ *
+ * <p>Changes take their version from one counter and install their copies
+ * side by side, the stripes they hold keep copies of one entity in version
+ * order. Versions finish out of order, so the published version is a
+ * watermark that only moves past a version once every older one is done.
+ * Only a change that moves the day runs alone, since the copies of every
+ * other change carry the statuses of the current day.
+ *
+ * <p>Member, item and contract copies are their DTOs, so they double as the
+ * cache of DTOs handed to the view. A contract copy carries its status on the
+ * day of the version it was published in. The store keeps its own schedule of
+ * the days on which each contract's status changes, and a commit that moves
+ * the day publishes new copies of just the contracts whose day has come, so
+ * reads never work a status out.
+ */
+class VersionStore {
+  private static final Boolean LINKED = Boolean.TRUE;
+
+  // Id order, which is creation order for generated ids.
+  private final NavigableMap<String, Chain<MemberDto>> members = new ConcurrentSkipListMap<>();
+  private final NavigableMap<String, Chain<ItemDto>> items = new ConcurrentSkipListMap<>();
+  private final NavigableMap<String, Chain<ContractDto>> contracts = new ConcurrentSkipListMap<>();
+  // Owner to item in item id order, and item to contract in start day order.
+  // A contract link holds the contract, so listing them needs no lookup.
+  private final NavigableMap<Link, Chain<Boolean>> ownedItems = new ConcurrentSkipListMap<>();
+  private final NavigableMap<Link, Chain<ContractDto>> itemContracts = new ConcurrentSkipListMap<>();
+  private final Chain<Integer> day = new Chain<>(new Node<>(0, 0, null));
+  // Per day, the published contracts whose status changes on it.
+  private final ConcurrentSkipListMap<Integer, Queue<Contract>> statusChanges = new ConcurrentSkipListMap<>();
+  // Pinned versions and how many readers hold each.
+  private final ConcurrentSkipListMap<Long, Integer> pins = new ConcurrentSkipListMap<>();
+  // Chains holding copies older than their head, roughly in the order they were written.
+  private final Queue<Stale<?, ?>> stale = new ConcurrentLinkedQueue<>();
+  private final AtomicBoolean sweeping = new AtomicBoolean();
+  // Last version handed out, and the finished ones above the published version.
+  private final AtomicLong sequence = new AtomicLong();
+  private final ConcurrentSkipListSet<Long> done = new ConcurrentSkipListSet<>();
+  // Shared by changes, exclusive for one that moves the day.
+  private final StampedLock dayGate = new StampedLock();
+  private volatile long published;
+
+  /**
+   * Start collecting the copies of one change.
+   *
+   * @return    --> The change, to commit() once it is applied to the model.
+   */
+  Change change() {
+    return new Change();
+  }
+
+  /* ==== === ==== === ==== */
+  /* ==== Read versions ==== */
+  /* ==== === ==== === ==== */
+
+  long getPublished() {
+    return published;
+  }
+
+  /**
+   * Pin the latest version, its copies are kept until unpin().
+   *
+   * @return    --> The version.
+   */
+  long pin() {
+    while (true) {
+      long version = published;
+      pins.merge(version, 1, Integer::sum);
+      // A change that published in between may already have dropped copies
+      // of this version, so only keep it if it is still the latest.
+      if (published == version) {
+        return version;
+      }
+      unpin(version);
+    }
+  }
+
+  void unpin(long version) {
+    pins.computeIfPresent(version, (v, n) -> n == 1 ? null : n - 1);
+  }
+
+  int day(long at) {
+    return day.at(at).value;
+  }
+
+  MemberDto member(String id, long at) {
+    return value(members.get(id), at);
+  }
+
+  /**
+   * Item as of a version, with its owner as of the same version.
+   *
+   * @param id    --> Of the item.
+   * @param at    --> The version, Long.MAX_VALUE for the latest.
+   * @return      --> The item, null if it did not exist then.
+   */
+  ItemDto item(String id, long at) {
+    Chain<ItemDto> chain = items.get(id);
+    Node<ItemDto> node = chain == null ? null : chain.at(at);
+    if (node == null || node.value == null) {
+      return null;
+    }
+    return withOwner(node, member(node.value.getOwner().getMemberId(), at));
+  }
+
+  // The item copy of the node with the given owner copy.
+  private static ItemDto withOwner(Node<ItemDto> node, MemberDto owner) {
+    ItemDto stored = node.value;
+    if (owner == null || owner == stored.getOwner()) {
+      return stored;
+    }
+    // The owner changed after the item, e.g. its credits. Keep the rebuilt
+    // copy on the node so the next read with the same owner copy reuses it.
+    ItemDto rebuilt = node.withOwner;
+    if (rebuilt == null || rebuilt.getOwner() != owner) {
+      rebuilt = new ItemDto(stored, owner);
+      node.withOwner = rebuilt;
+    }
+    return rebuilt;
+  }
+
+  ContractDto contract(String id, long at) {
+    return value(contracts.get(id), at);
+  }
+
+  Collection<MemberDto> members(String afterId, long at) {
+    return view(tail(members, afterId), e -> value(e.getValue(), at));
+  }
+
+  Collection<ItemDto> items(String afterId, long at) {
+    return view(tail(items, afterId), e -> item(e.getKey(), at));
+  }
+
+  Collection<ContractDto> contracts(String afterId, long at) {
+    return view(tail(contracts, afterId), e -> value(e.getValue(), at));
+  }
+
+  Collection<ItemDto> ownedItems(String memberId, long at) {
+    return view(Link.from(ownedItems, memberId),
+        e -> value(e.getValue(), at) == null ? null : item(e.getKey().to, at));
+  }
+
+  Collection<ContractDto> itemContracts(String itemId, long at) {
+    return view(Link.from(itemContracts, itemId), e -> value(e.getValue(), at));
+  }
+
+  /**
+   * Every member with their items and each item's contracts, as of a version.
+   *
+   * <p>Members and owner links are both in member id order, so one pass over
+   * each pairs them up. Each item is looked up once and its contracts are read
+   * straight from its links, nothing is resolved twice.
+   *
+   * @param at    --> The version.
+   * @return      --> One report per member, in id order.
+   */
+  List<MemberReport> memberReport(long at) {
+    List<MemberReport> report = new ArrayList<>();
+    Iterator<Map.Entry<Link, Chain<Boolean>>> links = ownedItems.entrySet().iterator();
+    Map.Entry<Link, Chain<Boolean>> link = links.hasNext() ? links.next() : null;
+    for (Map.Entry<String, Chain<MemberDto>> e : members.entrySet()) {
+      String memberId = e.getKey();
+      MemberDto member = value(e.getValue(), at);
+      // Links of members that are gone sort in between.
+      while (link != null && link.getKey().from.compareTo(memberId) < 0) {
+        link = links.hasNext() ? links.next() : null;
+      }
+      List<MemberReport.OwnedItem> owned = new ArrayList<>();
+      while (link != null && link.getKey().from.equals(memberId)) {
+        if (member != null && value(link.getValue(), at) != null) {
+          String itemId = link.getKey().to;
+          Chain<ItemDto> chain = items.get(itemId);
+          Node<ItemDto> node = chain == null ? null : chain.at(at);
+          if (node != null && node.value != null) {
+            owned.add(new MemberReport.OwnedItem(withOwner(node, member), contractsOf(itemId, at)));
+          }
+        }
+        link = links.hasNext() ? links.next() : null;
+      }
+      if (member != null) {
+        report.add(new MemberReport(member, owned));
+      }
+    }
+    return report;
+  }
+
+  private List<ContractDto> contractsOf(String itemId, long at) {
+    List<ContractDto> list = new ArrayList<>(2);
+    for (Chain<ContractDto> chain : Link.from(itemContracts, itemId).values()) {
+      ContractDto c = value(chain, at);
+      if (c != null) {
+        list.add(c);
+      }
+    }
+    return list;
+  }
+
+  private static <V> V value(Chain<V> chain, long at) {
+    Node<V> node = chain == null ? null : chain.at(at);
+    return node == null ? null : node.value;
+  }
+
+  private static <K, V> NavigableMap<K, V> tail(NavigableMap<K, V> map, K after) {
+    return after == null ? map : map.tailMap(after, false);
+  }
+
+  /**
+   * Lazy view of the entries that resolve to a copy.
+   *
+   * @param entries   --> Chains to look through, in order.
+   * @param resolve   --> Copy of an entry, null if it did not exist then.
+   * @return          --> Read-only view, size() walks the entries.
+   */
+  private static <K, V, D> Collection<D> view(NavigableMap<K, Chain<V>> entries,
+      Function<Map.Entry<K, Chain<V>>, D> resolve) {
+    return new AbstractCollection<D>() {
+      @Override
+      public Iterator<D> iterator() {
+        Iterator<Map.Entry<K, Chain<V>>> it = entries.entrySet().iterator();
+        return new Iterator<D>() {
+          private D next = advance();
+
+          private D advance() {
+            while (it.hasNext()) {
+              D d = resolve.apply(it.next());
+              if (d != null) {
+                return d;
+              }
+            }
+            return null;
+          }
+
+          @Override
+          public boolean hasNext() {
+            return next != null;
+          }
+
+          @Override
+          public D next() {
+            if (next == null) {
+              throw new NoSuchElementException();
+            }
+            D d = next;
+            next = advance();
+            return d;
+          }
+        };
+      }
+
+      @Override
+      public int size() {
+        int n = 0;
+        for (Iterator<D> it = iterator(); it.hasNext(); it.next()) {
+          n++;
+        }
+        return n;
+      }
+    };
+  }
+
+  /* ==== === ==== ==== === ==== */
+  /* ==== Publishing versions ==== */
+  /* ==== === ==== ==== === ==== */
+
+  private void commit(Change change) {
+    long stamp = change.dayMoved ? dayGate.writeLock() : dayGate.readLock();
+    long oldest;
+    try {
+      long version = sequence.incrementAndGet();
+      oldest = oldestPinned();
+      for (Copy<?, ?> c : change.copies) {
+        c.install(version, oldest);
+      }
+      // The day only moves while no other change runs.
+      int today = day.head.value;
+      for (int i = 0; i < change.added.size(); i++) {
+        publish(change.added.get(i), change.linked.get(i), today, version, oldest);
+      }
+      if (change.dayMoved) {
+        // Contracts removed by this or an earlier change are skipped, the rest move on.
+        for (Map.Entry<Integer, Queue<Contract>> due = statusChanges.firstEntry(); due != null && due.getKey() <= today;
+            due = statusChanges.firstEntry()) {
+          statusChanges.pollFirstEntry();
+          for (Contract c : due.getValue()) {
+            Node<ContractDto> head = headOf(contracts.get(c.getContractId()));
+            if (head != null && head.value != null) {
+              Node<ContractDto> link = headOf(itemContracts.get(Link.of(c)));
+              publish(c, link != null && link.value != null, today, version, oldest);
+            }
+          }
+        }
+      }
+      finish(version);
+    } finally {
+      dayGate.unlock(stamp);
+    }
+    sweep(oldest);
+  }
+
+  // Versions finish out of order, publish each once every older one has finished.
+  private void finish(long version) {
+    done.add(version);
+    // Only the thread that removes a version publishes it, so published never moves back.
+    for (long next = published + 1; done.remove(next); next++) {
+      published = next;
+    }
+  }
+
+  // Installs a copy of a contract with its status on the day.
+  private void publish(Contract c, boolean linked, int today, long version, long oldest) {
+    ContractDto copy = new ContractDto(c, today);
+    new Copy<>(contracts, c.getContractId(), copy).install(version, oldest);
+    if (linked) {
+      new Copy<>(itemContracts, Link.of(c), copy).install(version, oldest);
+    }
+    // The status changes on the start day and on the end day, then never again.
+    int next = today < c.getStartDay() ? c.getStartDay() : today < c.getEndDay() ? c.getEndDay() : -1;
+    if (next >= 0) {
+      statusChanges.computeIfAbsent(next, d -> new ConcurrentLinkedQueue<>()).add(c);
+    }
+  }
+
+  private static <V> Node<V> headOf(Chain<V> chain) {
+    return chain == null ? null : chain.head;
+  }
+
+  private long oldestPinned() {
+    Map.Entry<Long, Integer> first = pins.firstEntry();
+    long latest = published;
+    return first == null ? latest : Math.min(first.getKey(), latest);
+  }
+
+  // One change sweeps at a time, the others leave it to the next one.
+  private void sweep(long oldest) {
+    if (!sweeping.compareAndSet(false, true)) {
+      return;
+    }
+    try {
+      for (Stale<?, ?> s = stale.peek(); s != null && s.version <= oldest; s = stale.peek()) {
+        stale.poll().trim(oldest);
+      }
+    } finally {
+      sweeping.set(false);
+    }
+  }
+
+  /**
+   * The copies one change publishes together.
+   *
+   * <p>Built while the change holds the lock stripes of what it touched, and
+   * committed before they are released, so copies of one entity are
+   * published in the order the entity changed.
+   */
+  final class Change {
+    private final List<Copy<?, ?>> copies = new ArrayList<>(4);
+    // New contracts, their copies are made in commit() with the day of the version.
+    private final List<Contract> added = new ArrayList<>(1);
+    private final List<Boolean> linked = new ArrayList<>(1);
+    private boolean dayMoved;
+
+    Change member(Member m) {
+      copies.add(new Copy<>(members, m.getMemberId(), new MemberDto(m)));
+      return this;
+    }
+
+    Change memberDeleted(String id) {
+      copies.add(new Copy<>(members, id, null));
+      return this;
+    }
+
+    Change item(Item i) {
+      copies.add(new Copy<>(items, i.getId(), new ItemDto(i, ownerCopy(i.getOwnerInternal()))));
+      return this;
+    }
+
+    Change itemDeleted(String id) {
+      copies.add(new Copy<>(items, id, null));
+      return this;
+    }
+
+    Change owned(String memberId, String itemId, boolean owned) {
+      copies.add(new Copy<>(ownedItems, new Link(memberId, 0, itemId), owned ? LINKED : null));
+      return this;
+    }
+
+    /**
+     * A new contract, listed under its item unless the item is gone.
+     *
+     * @param c         --> The contract.
+     * @param linked    --> Whether the item still exists.
+     * @return          --> This change.
+     */
+    Change contract(Contract c, boolean linked) {
+      added.add(c);
+      this.linked.add(linked);
+      return this;
+    }
+
+    Change contractRemoved(Contract c) {
+      copies.add(new Copy<>(contracts, c.getContractId(), null));
+      copies.add(new Copy<>(itemContracts, Link.of(c), null));
+      return this;
+    }
+
+    Change day(int currentDay) {
+      copies.add(new Copy<>(null, null, currentDay));
+      dayMoved = true;
+      return this;
+    }
+
+    void commit() {
+      if (!copies.isEmpty() || !added.isEmpty()) {
+        VersionStore.this.commit(this);
+      }
+    }
+
+    // The owner's copy from this change if it has one, so they match.
+    private MemberDto ownerCopy(Member owner) {
+      for (int i = copies.size() - 1; i >= 0; i--) {
+        Copy<?, ?> c = copies.get(i);
+        if ((Object) c.map == members && owner.getMemberId().equals(c.key) && c.value != null) {
+          return (MemberDto) c.value;
+        }
+      }
+      MemberDto latest = VersionStore.this.member(owner.getMemberId(), Long.MAX_VALUE);
+      return latest != null ? latest : new MemberDto(owner);
+    }
+  }
+
+  /**
+   * One copy of a change, null for a removal.
+   */
+  private final class Copy<K, V> {
+    final NavigableMap<K, Chain<V>> map;
+    final K key;
+    final V value;
+
+    Copy(NavigableMap<K, Chain<V>> map, K key, V value) {
+      this.map = map;
+      this.key = key;
+      this.value = value;
+    }
+
+    // Caller holds the stripe of the entity, or the day gate exclusively for the day.
+    @SuppressWarnings("unchecked")
+    void install(long version, long oldest) {
+      Chain<V> chain = map == null ? (Chain<V>) day : map.get(key);
+      if (chain == null) {
+        if (value == null) {
+          return;
+        }
+        chain = new Chain<>(null);
+        map.put(key, chain);
+      }
+      Node<V> previous = chain.head;
+      chain.head = new Node<>(version, value, previous);
+      if (value != null && map != null && map.get(key) != chain) {
+        // A sweep dropped the chain for the removal it ended in.
+        map.putIfAbsent(key, chain);
+      }
+      if (previous != null) {
+        previous.trim(oldest);
+        stale.add(new Stale<>(map, key, chain, version));
+      }
+    }
+  }
+
+  /**
+   * A chain to trim, or drop if it ends in a removal, once no reader is pinned before version.
+   */
+  private static final class Stale<K, V> {
+    final NavigableMap<K, Chain<V>> map;
+    final K key;
+    final Chain<V> chain;
+    final long version;
+
+    Stale(NavigableMap<K, Chain<V>> map, K key, Chain<V> chain, long version) {
+      this.map = map;
+      this.key = key;
+      this.chain = chain;
+      this.version = version;
+    }
+
+    void trim(long oldest) {
+      Node<V> head = chain.head;
+      if (head.value == null && head.version <= oldest && map != null) {
+        // A copy installed meanwhile keeps the chain.
+        if (map.remove(key, chain) && chain.head != head) {
+          map.putIfAbsent(key, chain);
+        }
+      } else {
+        head.trim(oldest);
+      }
+    }
+  }
+
+  /**
+   * Copies of one entity, newest first.
+   */
+  private static final class Chain<V> {
+    volatile Node<V> head;
+
+    Chain(Node<V> head) {
+      this.head = head;
+    }
+
+    // Newest copy from the version or before, null if there is none.
+    Node<V> at(long version) {
+      Node<V> n = head;
+      while (n != null && n.version > version) {
+        n = n.older;
+      }
+      return n;
+    }
+  }
+
+  private static final class Node<V> {
+    final long version;
+    final V value;
+    // Cut once no pinned reader can reach past this node.
+    Node<V> older;
+    // Item copies only: the copy rebuilt for a newer owner copy.
+    volatile ItemDto withOwner;
+
+    Node(long version, V value, Node<V> older) {
+      this.version = version;
+      this.value = value;
+      this.older = older;
+    }
+
+    // Drop the copies no reader pinned at oldest or later can reach.
+    void trim(long oldest) {
+      for (Node<V> n = this; n != null; n = n.older) {
+        if (n.version <= oldest) {
+          n.older = null;
+          return;
+        }
+      }
+    }
+  }
+
+  /**
+   * Key of a relation, ordered by source, then order, then target.
+   */
+  private static final class Link implements Comparable<Link> {
+    final String from;
+    final long order;
+    final String to;
+
+    Link(String from, long order, String to) {
+      this.from = from;
+      this.order = order;
+      this.to = to;
+    }
+
+    static Link of(Contract c) {
+      return new Link(c.getItem().getId(), c.getStartDay(), c.getContractId());
+    }
+
+    // All links from one source. No id contains '\0', so from + '\0' sorts right after them.
+    static <V> NavigableMap<Link, V> from(NavigableMap<Link, V> links, String from) {
+      return links.subMap(new Link(from, Long.MIN_VALUE, ""), true, new Link(from + '\0', Long.MIN_VALUE, ""),
+          false);
+    }
+
+    @Override
+    public int compareTo(Link other) {
+      int c = from.compareTo(other.from);
+      if (c == 0) {
+        c = Long.compare(order, other.order);
+      }
+      return c != 0 ? c : to.compareTo(other.to);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      return o instanceof Link && compareTo((Link) o) == 0;
+    }
+
+    @Override
+    public int hashCode() {
+      return (from.hashCode() * 31 + Long.hashCode(order)) * 31 + to.hashCode();
+    }
+  }
+}
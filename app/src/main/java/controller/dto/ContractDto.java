@@ -9,31 +9,46 @@ import model.ContractStatus;
  */
 public class ContractDto {
   public final String id;
+  public final String itemId;
   public final String itemName;
+  public final String borrowerId;
   public final String borrowerName;
+  public final String lenderId;
+  public final String lenderName;
   public final int startDay;
   public final int endDay;
+  public final int totalCost;
   public final ContractStatus status;
 
   /**
-   * constructor.
+   * Dto constructor.
    *
-   * @param id      --> ID
-   * @param in      --> Item name
-   * @param bn      --> Barrow name
-   * @param sd      --> Start day
-   * @param ed      --> End day
-   * @param st      --> Status
+   * @param c   --> Contract, for everything fixed when it was booked.
+   * @param st  --> Status
    */
-  public ContractDto(String id, String in, String bn, int sd, int ed, ContractStatus st) {
-    this.id = id;
-    this.itemName = in;
-    this.borrowerName = bn;
-    this.startDay = sd;
-    this.endDay = ed;
+  private ContractDto(Contract c, ContractStatus st) {
+    this.id = c.getContractId();
+    this.itemId = c.getItem().getId();
+    this.itemName = c.getItem().getName();
+    this.borrowerId = c.getBorrower().getMemberId();
+    this.borrowerName = c.getBorrower().getName();
+    this.lenderId = c.getLender().getMemberId();
+    this.lenderName = c.getLender().getName();
+    this.startDay = c.getStartDay();
+    this.endDay = c.getEndDay();
+    this.totalCost = c.getTotalCost();
     this.status = st;
   }
 
+  /**
+   * Dto constructor taking the status the manager keeps on the contract.
+   *
+   * @param c   --> Contract.
+   */
+  public ContractDto(Contract c) {
+    this(c, c.getStatus());
+  }
+
   /**
    * Alt Dto constructor, for view case.
    *
@@ -41,13 +56,6 @@ public class ContractDto {
    * @param currentDay      --> The currect day.
    */
   public ContractDto(Contract c, int currentDay) {
-    this(
-        c.getContractId(),
-        c.getItem().getName(),
-        c.getBorrower().getName(),
-        c.getStartDay(),
-        c.getEndDay(),
-        c.statusAt(currentDay)
-    );
+    this(c, c.statusAt(currentDay));
   }
 }
@@ -0,0 +1,67 @@
+package controller.dto;
+
+/**
+ * Immutable copy of one movement in the credit ledger.
+ */
+public class CreditEntry {
+  /**
+   * Why the credits moved.
+   */
+  public enum Kind {
+    // Balance the member had when added, e.g. loaded from storage.
+    OPENING,
+    // Balance overwritten with setCredits.
+    SET,
+    // Reward for listing an item.
+    BONUS,
+    // Cost of a booking, taken from the borrower.
+    PAID,
+    // Cost of a booking, given to the lender.
+    RECEIVED,
+    // Cost of a booking that could not be completed, given back.
+    REFUND
+  }
+
+  private final long sequence;
+  private final String memberId;
+  private final Kind kind;
+  private final int amount;
+  private final int balance;
+
+  /**
+   * constructor.
+   *
+   * @param sequence  --> Position in the ledger, entries of all members share one order.
+   * @param memberId  --> Member whose credits moved.
+   * @param kind      --> Why they moved.
+   * @param amount    --> Change of the balance, negative when credits were taken.
+   * @param balance   --> Balance after the change.
+   */
+  public CreditEntry(long sequence, String memberId, Kind kind, int amount, int balance) {
+    this.sequence = sequence;
+    this.memberId = memberId;
+    this.kind = kind;
+    this.amount = amount;
+    this.balance = balance;
+  }
+
+  public long getSequence() {
+    return sequence;
+  }
+
+  public String getMemberId() {
+    return memberId;
+  }
+
+  public Kind getKind() {
+    return kind;
+  }
+
+  public int getAmount() {
+    return amount;
+  }
+
+  public int getBalance() {
+    return balance;
+  }
+}
@@ -0,0 +1,45 @@
+package controller.dto;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Outcome of a bulk import: what was added and which rows were rejected.
+ */
+public class ImportResult {
+  private final int members;
+  private final int items;
+  private final int contracts;
+  private final List<String> errors;
+
+  /**
+   * constructor.
+   *
+   * @param members     --> Number of members added.
+   * @param items       --> Number of items added.
+   * @param contracts   --> Number of contracts added.
+   * @param errors      --> One message per rejected row, starting with its line number.
+   */
+  public ImportResult(int members, int items, int contracts, List<String> errors) {
+    this.members = members;
+    this.items = items;
+    this.contracts = contracts;
+    this.errors = Collections.unmodifiableList(errors);
+  }
+
+  public int getMembers() {
+    return members;
+  }
+
+  public int getItems() {
+    return items;
+  }
+
+  public int getContracts() {
+    return contracts;
+  }
+
+  public List<String> getErrors() {
+    return errors;
+  }
+}
@@ -21,13 +21,39 @@ public class ItemDto {
    * @param item    --> to copy feilds from.
    */
   public ItemDto(Item item) {
+    this(item, new MemberDto(item.getOwnerInternal()));
+  }
+
+  /**
+   * Copy the item fields and share an existing owner snapshot.
+   *
+   * @param item    --> to copy feilds from.
+   * @param owner   --> snapshot of the owner of the item.
+   */
+  public ItemDto(Item item, MemberDto owner) {
     this.id = item.getId();
     this.name = item.getName();
     this.description = item.getDescription();
     this.category = item.getCategory();
     this.creationDay = item.getCreationDay();
     this.costPerDay = item.getCostPerDay();
-    this.owner = new MemberDto(item.getOwnerInternal());
+    this.owner = owner;
+  }
+
+  /**
+   * Same item fields with a newer owner snapshot.
+   *
+   * @param other   --> to copy feilds from.
+   * @param owner   --> snapshot of the owner of the item.
+   */
+  public ItemDto(ItemDto other, MemberDto owner) {
+    this.id = other.id;
+    this.name = other.name;
+    this.description = other.description;
+    this.category = other.category;
+    this.creationDay = other.creationDay;
+    this.costPerDay = other.costPerDay;
+    this.owner = owner;
   }
 
   public String getId() {
@@ -0,0 +1,58 @@
+package controller.dto;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Immutable snapshot of a member with the items they own and each item's contracts.
+ */
+public class MemberReport {
+  private final MemberDto member;
+  private final List<OwnedItem> items;
+
+  /**
+   * constructor.
+   *
+   * @param member  --> The member.
+   * @param items   --> Owned items in id order.
+   */
+  public MemberReport(MemberDto member, List<OwnedItem> items) {
+    this.member = member;
+    this.items = Collections.unmodifiableList(items);
+  }
+
+  public MemberDto getMember() {
+    return member;
+  }
+
+  public List<OwnedItem> getItems() {
+    return items;
+  }
+
+  /**
+   * An owned item and its contracts.
+   */
+  public static class OwnedItem {
+    private final ItemDto item;
+    private final List<ContractDto> contracts;
+
+    /**
+     * constructor.
+     *
+     * @param item        --> The item, its owner is the member of the report.
+     * @param contracts   --> Contracts for the item, ordered by start day.
+     */
+    public OwnedItem(ItemDto item, List<ContractDto> contracts) {
+      this.item = item;
+      this.contracts = Collections.unmodifiableList(contracts);
+    }
+
+    public ItemDto getItem() {
+      return item;
+    }
+
+    public List<ContractDto> getContracts() {
+      return contracts;
+    }
+  }
+}
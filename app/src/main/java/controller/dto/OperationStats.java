@@ -0,0 +1,88 @@
+package controller.dto;
+
+/**
+ * Immutable snapshot of how often an operation ran and how long it took.
+ *
+ * <p>Latencies are in nanoseconds and come from the timed calls only, which
+ * may be a sample of all calls.
+ */
+public class OperationStats {
+  private final String operation;
+  private final long calls;
+  private final long failures;
+  private final long timed;
+  private final long mean;
+  private final long p50;
+  private final long p90;
+  private final long p99;
+  private final long p999;
+  private final long max;
+
+  /**
+   * constructor.
+   *
+   * @param operation   --> Name of the operation.
+   * @param calls       --> Calls so far.
+   * @param failures    --> Calls that threw.
+   * @param timed       --> Calls that were timed.
+   * @param mean        --> Mean latency.
+   * @param p50         --> Median latency.
+   * @param p90         --> 90th percentile latency.
+   * @param p99         --> 99th percentile latency.
+   * @param p999        --> 99.9th percentile latency.
+   * @param max         --> Highest latency.
+   */
+  public OperationStats(String operation, long calls, long failures, long timed, long mean, long p50, long p90,
+      long p99, long p999, long max) {
+    this.operation = operation;
+    this.calls = calls;
+    this.failures = failures;
+    this.timed = timed;
+    this.mean = mean;
+    this.p50 = p50;
+    this.p90 = p90;
+    this.p99 = p99;
+    this.p999 = p999;
+    this.max = max;
+  }
+
+  public String getOperation() {
+    return operation;
+  }
+
+  public long getCalls() {
+    return calls;
+  }
+
+  public long getFailures() {
+    return failures;
+  }
+
+  public long getTimed() {
+    return timed;
+  }
+
+  public long getMeanNanos() {
+    return mean;
+  }
+
+  public long getP50Nanos() {
+    return p50;
+  }
+
+  public long getP90Nanos() {
+    return p90;
+  }
+
+  public long getP99Nanos() {
+    return p99;
+  }
+
+  public long getP999Nanos() {
+    return p999;
+  }
+
+  public long getMaxNanos() {
+    return max;
+  }
+}
@@ -0,0 +1,37 @@
+package controller.dto;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * One page of a listing, plus the cursor to fetch the next one.
+ *
+ * @param <T>   --> Type of the listed DTOs.
+ */
+public class Page<T> {
+  private final List<T> items;
+  private final String nextCursor;
+
+  /**
+   * constructor.
+   *
+   * @param items         --> The entries of this page.
+   * @param nextCursor    --> Cursor of the next page, null if this is the last one.
+   */
+  public Page(List<T> items, String nextCursor) {
+    this.items = Collections.unmodifiableList(items);
+    this.nextCursor = nextCursor;
+  }
+
+  public List<T> getItems() {
+    return items;
+  }
+
+  public String getNextCursor() {
+    return nextCursor;
+  }
+
+  public boolean hasNext() {
+    return nextCursor != null;
+  }
+}
@@ -16,6 +16,8 @@ public class Contract {
   private final int startDay;
   private final int endDay;
   private final int totalCost;
+  // Kept up to date by the ContractManager as days pass, following statusAt().
+  private volatile ContractStatus status = ContractStatus.SCHEDULED;
 
   /**
    * Constructor, represents the contract between two users.
@@ -27,6 +29,21 @@ public class Contract {
    * @param endDay      --> End date of the contract.
    */
   public Contract(String contractId, Member borrower, Member lender, Item item, int startDay, int endDay) {
+    this(contractId, borrower, lender, item, startDay, endDay, (endDay - startDay) * item.getCostPerDay());
+  }
+
+  /**
+   * Constructor for a contract whose cost was settled earlier, e.g. when loaded from storage.
+
+   * @param borrower      --> The person borrowing an item.
+   * @param lender       --> The person who the item belongs to.
+   * @param item        --> The item being lended.
+   * @param startDay    --> Start date of the contract.
+   * @param endDay      --> End date of the contract.
+   * @param totalCost   --> Credits paid for the whole period.
+   */
+  public Contract(String contractId, Member borrower, Member lender, Item item, int startDay, int endDay,
+      int totalCost) {
     if (startDay < 0 || endDay <= startDay) {
       throw new IllegalArgumentException("Invalid contract days");
     }
@@ -36,8 +53,23 @@ public class Contract {
     this.item = new ItemDto(item);
     this.startDay = startDay;
     this.endDay = endDay;
-    int days = endDay - startDay;
-    this.totalCost = days * item.getCostPerDay();
+    this.totalCost = totalCost;
+  }
+
+  /**
+   * Copy constructor, with the status as it is now.
+   *
+   * @param other   --> Contract to copy.
+   */
+  public Contract(Contract other) {
+    this.contractId = other.contractId;
+    this.borrower = other.borrower;
+    this.lender = other.lender;
+    this.item = other.item;
+    this.startDay = other.startDay;
+    this.endDay = other.endDay;
+    this.totalCost = other.totalCost;
+    this.status = other.status;
   }
 
   public String getContractId() {
@@ -68,6 +100,14 @@ public class Contract {
     return endDay;
   }
 
+  public ContractStatus getStatus() {
+    return status;
+  }
+
+  public void setStatus(ContractStatus status) {
+    this.status = status;
+  }
+
   /**
    * "Track" the lifecycle status computed for a given day.
    *
@@ -0,0 +1,24 @@
+package model;
+
+/**
+ * Work that the TimeManager runs when time reaches a given day.
+ */
+@FunctionalInterface
+public interface DayTask {
+  /**
+   * Returned by run() when the task should not run again.
+   */
+  int DONE = Integer.MIN_VALUE;
+
+  /**
+   * Run the task.
+   *
+   * <p>Tasks run one at a time, in day order, on the thread advancing time.
+   * The current day may already be past the day of the task when time
+   * jumped ahead.
+   *
+   * @param day   --> The day the task was due.
+   * @return      --> A later day to run again on, or DONE.
+   */
+  int run(int day);
+}
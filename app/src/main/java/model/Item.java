@@ -1,21 +1,32 @@
 package model;
 
-import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
-import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
 
 /**
  * Represents an item that can be lent by a member.
  */
 public class Item {
+  private static final AtomicIntegerFieldUpdater<Item> VERSION =
+      AtomicIntegerFieldUpdater.newUpdater(Item.class, "version");
+
   private final String id;
-  private final Member owner;
+  // Read without locks by bookings, which re-check it once they hold the locks.
+  private volatile Member owner;
   private ItemCatagory category;
   private String name;
   private String description;
   private final int creationDay;
   private int costPerDay;
-  private final List<Contract> contracts = new ArrayList<>();
+  // Contracts keyed on start day. Contracts of one item never overlap, so the
+  // map doubles as a sorted range set where end days grow with start days.
+  private final NavigableMap<Integer, Contract> contracts = new TreeMap<>();
+  // Bumped after every change of the item fields, not of the contracts.
+  private volatile int version;
 
   /**
    * Creates a new item object.
@@ -54,6 +65,19 @@ public class Item {
     this.costPerDay = other.costPerDay;
   }
 
+  /**
+   * Copy with another owner and copies of the contracts, e.g. to hand out without the live item.
+   *
+   * @param other   --> object to copy from.
+   * @param owner   --> owner of the copy.
+   */
+  public Item(Item other, Member owner) {
+    this(other.id, owner, other.creationDay, other.category, other.name, other.description, other.costPerDay);
+    for (Contract c : other.contracts.values()) {
+      contracts.put(c.getStartDay(), new Contract(c));
+    }
+  }
+
   public String getId() {
     return id;
   }
@@ -88,24 +112,52 @@ public class Item {
     return creationDay;
   }
 
-  public List<Contract> getContracts() {
-    return Collections.unmodifiableList(contracts);
+  /**
+   * Read-only view of the contracts for the item, ordered by start day.
+   *
+   * @return    --> The contracts.
+   */
+  public Collection<Contract> getContracts() {
+    return Collections.unmodifiableCollection(contracts.values());
+  }
+
+  /**
+   * Hand the item to another member, the caller moves it between the owners' item lists.
+   *
+   * @param owner   --> The new owner.
+   */
+  public void setOwner(Member owner) {
+    this.owner = owner;
+    VERSION.incrementAndGet(this);
+  }
+
+  /**
+   * Change counter of the item fields, the owner has its own.
+   *
+   * @return    --> Differs from an earlier value if any field changed in between.
+   */
+  public int getVersion() {
+    return version;
   }
 
   public void setName(String name) {
     this.name = name;
+    VERSION.incrementAndGet(this);
   }
 
   public void setDescription(String description) {
     this.description = description;
+    VERSION.incrementAndGet(this);
   }
 
   public void setCategory(ItemCatagory category) {
     this.category = category;
+    VERSION.incrementAndGet(this);
   }
 
   public void setCostPerDay(int cost) {
     this.costPerDay = cost;
+    VERSION.incrementAndGet(this);
   }
 
   /**
@@ -114,22 +166,33 @@ public class Item {
    * @param contract that item is a part of.
    */
   public void addContract(Contract contract) {
-    contracts.add(contract);
+    if (!isAvailable(contract.getStartDay(), contract.getEndDay())) {
+      throw new IllegalArgumentException("Contract overlaps an existing contract");
+    }
+    contracts.put(contract.getStartDay(), contract);
+  }
+
+  /**
+   * Remove a contract from the item, e.g. once it has expired.
+
+   * @param contract to remove.
+   */
+  public void removeContract(Contract contract) {
+    contracts.remove(contract.getStartDay(), contract);
   }
 
   /**
    * Checks if the item is available during the specified time period.
+   *
+   * <p>Only the contract starting closest before endDay can overlap, every
+   * earlier one ends before it starts, so the check is O(log n).
 
    * @param startDay  --> Starting day of the period.
    * @param endDay    --> Number of days to check.
    * @return          --> True if available, false otherwise.
    */
   public boolean isAvailable(int startDay, int endDay) {
-    for (Contract contract : contracts) {
-      if (contract.overlaps(startDay, endDay)) { 
-        return false;
-      }
-    }
-    return true;
+    Map.Entry<Integer, Contract> before = contracts.lowerEntry(endDay);
+    return before == null || !before.getValue().overlaps(startDay, endDay);
   }
 }
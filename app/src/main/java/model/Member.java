@@ -1,21 +1,32 @@
 package model;
 
-import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
-import java.util.List;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
 
 /**
  * Represent a user in the system.
+ *
+ * <p>Outside this package the credits of a member can only be changed through
+ * a Member.Credits, which hands every change to the ledger it was built with.
  */
 public class Member {
+  private static final AtomicIntegerFieldUpdater<Member> VERSION =
+      AtomicIntegerFieldUpdater.newUpdater(Member.class, "version");
+
   private final String memberId;
   private String name;
   private String email;
   private String phone;
   private int credits;
-  private final List<Item> ownedItems;
+  // Keyed by item id in the order the items were added.
+  private final Map<String, Item> ownedItems;
   private final int creationDay;
+  // Bumped after every change of a field above, so copies can tell they are stale.
+  private volatile int version;
 
   /**
    * Creates member object.
@@ -25,13 +36,25 @@ public class Member {
    * @param phone  --> phone number.
    */
   public Member(String memberId, String name, String email, String phone, int creationDay) {
+    this(memberId, name, email, phone, creationDay, 0);
+  }
+
+  /**
+   * Creates member object with an opening balance, e.g. one loaded from storage.
+
+   * @param name      --> name of the user.
+   * @param email     --> email of the user.
+   * @param phone     --> phone number.
+   * @param credits   --> balance the member starts with.
+   */
+  public Member(String memberId, String name, String email, String phone, int creationDay, int credits) {
     this.memberId = Objects.requireNonNull(memberId);
     this.name = Objects.requireNonNull(name);
     this.email = Objects.requireNonNull(email);
     this.phone = Objects.requireNonNull(phone);
     this.creationDay = creationDay;
-    this.credits = 0;
-    this.ownedItems = new ArrayList<>();
+    this.credits = credits;
+    this.ownedItems = new LinkedHashMap<>();
   }
 
   /**
@@ -48,7 +71,7 @@ public class Member {
     this.phone = other.phone;
     this.creationDay = other.creationDay;
     this.credits = other.credits;
-    this.ownedItems = new ArrayList<>();
+    this.ownedItems = new LinkedHashMap<>();
   }
 
   /* Getters */
@@ -76,26 +99,39 @@ public class Member {
     return creationDay;
   }
 
-  public List<Item> getOwnedItems() {
-    return Collections.unmodifiableList(ownedItems);
+  public Collection<Item> getOwnedItems() {
+    return Collections.unmodifiableCollection(ownedItems.values());
+  }
+
+  /**
+   * Change counter of the member fields, not of the owned items.
+   *
+   * @return    --> Differs from an earlier value if any field changed in between.
+   */
+  public int getVersion() {
+    return version;
   }
 
   /* Setters */
 
   public void setName(String name) {
     this.name = name;
+    VERSION.incrementAndGet(this);
   }
 
   public void setEmail(String email) {
     this.email = email;
+    VERSION.incrementAndGet(this);
   }
 
   public void setPhone(String phone) {
-    this.phone = phone; 
+    this.phone = phone;
+    VERSION.incrementAndGet(this);
   }
 
-  public void setCredits(int credits) {
+  void setCredits(int credits) {
     this.credits = credits;
+    VERSION.incrementAndGet(this);
   }
 
   // Ownership helpers
@@ -105,10 +141,7 @@ public class Member {
    * @param item    --> to recive.
    */
   public void addItem(Item item) {
-    if (ownedItems.contains(item)) {
-      return;
-    }
-    ownedItems.add(item);
+    ownedItems.putIfAbsent(item.getId(), item);
   }
 
   /**
@@ -117,10 +150,7 @@ public class Member {
    * @param item    --> to lend.
    */
   public void removeItem(Item item) {
-    if (!ownedItems.contains(item)) {
-      return;
-    }
-    ownedItems.remove(item);
+    ownedItems.remove(item.getId(), item);
   }
 
   // Credit helpers
@@ -129,11 +159,12 @@ public class Member {
 
    * @param amount    --> of credits to gain.
    */
-  public void addCredits(int amount) {
+  void addCredits(int amount) {
     if (amount < 0) {
       throw new IllegalArgumentException("Cannot add negative credits.");
     }
     this.credits += amount;
+    VERSION.incrementAndGet(this);
   }
 
   /**
@@ -141,12 +172,104 @@ public class Member {
 
    * @param amount    --> of credits to remove.
    */
-  public void deduceCredits(int amount) {
+  void deduceCredits(int amount) {
     if (amount < 0) {
       throw new IllegalStateException("Cannot deduct negative credits.");
     } else if (this.credits < amount) {
       throw new IllegalStateException("Insufficient credits.");
     }
     this.credits -= amount;
+    VERSION.incrementAndGet(this);
+  }
+
+  /**
+   * Where a Member.Credits records the changes it makes.
+   *
+   * @param <K>   --> Why credits move, chosen by the ledger.
+   */
+  public interface Ledger<K> {
+    /**
+     * Record a movement of one member's credits.
+     *
+     * @param memberId  --> The member.
+     * @param kind      --> Why the credits moved.
+     * @param amount    --> Change of the balance, negative when credits were taken.
+     */
+    void append(String memberId, K kind, int amount);
+
+    /**
+     * Record credits moving from one member to another.
+     *
+     * @param fromId    --> Who paid.
+     * @param toId      --> Who received.
+     * @param amount    --> How much.
+     */
+    void transfer(String fromId, String toId, int amount);
+  }
+
+  /**
+   * The one way to change credits from outside this package, every change
+   * goes to the ledger given to the constructor.
+   *
+   * <p>Callers keep a member's changes in order, e.g. by holding its lock.
+   *
+   * @param <K>   --> Why credits move, chosen by the ledger.
+   */
+  public static final class Credits<K> {
+    private final Ledger<K> ledger;
+
+    public Credits(Ledger<K> ledger) {
+      this.ledger = Objects.requireNonNull(ledger);
+    }
+
+    /**
+     * Overwrite a balance, recorded as the difference.
+     *
+     * @param m         --> The member.
+     * @param kind      --> Why.
+     * @param credits   --> New balance.
+     */
+    public void set(Member m, K kind, int credits) {
+      int before = m.credits;
+      m.setCredits(credits);
+      ledger.append(m.memberId, kind, credits - before);
+    }
+
+    /**
+     * Add credits.
+     *
+     * @param m         --> The member.
+     * @param kind      --> Why.
+     * @param amount    --> How many, not negative.
+     */
+    public void add(Member m, K kind, int amount) {
+      m.addCredits(amount);
+      ledger.append(m.memberId, kind, amount);
+    }
+
+    /**
+     * Take credits.
+     *
+     * @param m         --> The member.
+     * @param kind      --> Why.
+     * @param amount    --> How many, at most the balance.
+     */
+    public void deduce(Member m, K kind, int amount) {
+      m.deduceCredits(amount);
+      ledger.append(m.memberId, kind, -amount);
+    }
+
+    /**
+     * Move credits from one member to another.
+     *
+     * @param from      --> Who pays, must have the amount.
+     * @param to        --> Who receives.
+     * @param amount    --> How many.
+     */
+    public void transfer(Member from, Member to, int amount) {
+      from.deduceCredits(amount);
+      to.addCredits(amount);
+      ledger.transfer(from.memberId, to.memberId, amount);
+    }
   }
 }
@@ -1,23 +1,43 @@
 package model;
 
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.ReentrantLock;
+
 /**
  * TimeManager handles the simulation of time in the system.
  * It manages a day counter that starts from day 0 and can be manually advanced.
  * The current day is used by other components to check contract periods, availability, etc.
+ *
+ * <p>Components schedule tasks for the days they care about, and advancing
+ * time runs the tasks due by the new day. The tasks are kept in a timing
+ * wheel, so days without tasks are skipped without being visited.
+ *
+ * <p>New tasks go through a lock-free intake queue. Whoever holds the wheel
+ * next moves them into it, so scheduling never waits for time to advance:
+ * a task scheduled while another thread advances time runs on that thread
+ * before it lets go of the wheel.
  */
 public class TimeManager {
-  private int currentDay = 0;
+  private volatile int currentDay = 0;
+  private final ReentrantLock lock = new ReentrantLock();
+  private final Queue<TimingWheel.Entry> intake = new ConcurrentLinkedQueue<>();
+  // Guarded by lock.
+  private final TimingWheel wheel;
 
   // default contructor.
-  public TimeManager() {}
+  public TimeManager() {
+    this.wheel = new TimingWheel(0);
+  }
 
   /**
-   * Copy constructor.
+   * Copy constructor, the scheduled tasks belong to the other instance and are not copied.
    *
    * @param other   --> Instance to copy.
    */
   public TimeManager(TimeManager other) {
     this.currentDay = other.currentDay;
+    this.wheel = new TimingWheel(currentDay);
   }
 
   public int getCurrentDay() {
@@ -27,12 +47,91 @@ public class TimeManager {
   /**
    * Advance the program by some amount of days.
    *
+   * <p>The tasks due by the new day run before this returns, in day order,
+   * with the current day already set to the new day.
+   *
    * @param days    --> The amount of days to advance by.
    */
   public void advanceDay(int days) {
+    lock.lock();
+    try {
+      checkAdvance(days);
+      currentDay += days;
+      runDue();
+    } finally {
+      lock.unlock();
+    }
+    drain();
+  }
+
+  /**
+   * Check that time can advance by some amount of days, without advancing it.
+   *
+   * @param days    --> The amount of days to advance by.
+   */
+  public void checkAdvance(int days) {
     if (days <= 0) {
       throw new IllegalArgumentException("Days to advance must be > 0");
+    } else if (days > Integer.MAX_VALUE - currentDay) {
+      throw new IllegalArgumentException("Day out of range");
+    }
+  }
+
+  /**
+   * Run a task on a day, or as soon as possible if that day has come.
+   *
+   * <p>Does not wait for a thread that is advancing time, that thread runs
+   * the task instead. Otherwise a task whose day has come runs before this
+   * returns. Tasks never run while time is being advanced on another thread,
+   * so a task sees the same current day throughout.
+   *
+   * @param day     --> The day to run the task on.
+   * @param task    --> The task, returns the next day to run on.
+   */
+  public void schedule(int day, DayTask task) {
+    intake.add(new TimingWheel.Entry(day, task));
+    drain();
+  }
+
+  /**
+   * Number of tasks waiting for their day.
+   *
+   * @return    --> The count.
+   */
+  public int getScheduledTasks() {
+    lock.lock();
+    try {
+      return wheel.size() + intake.size();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  // Whoever gets the lock runs the tasks, anyone who fails to has left them
+  // in the intake for the holder, which checks again after letting go.
+  private void drain() {
+    while (!intake.isEmpty() && lock.tryLock()) {
+      try {
+        runDue();
+      } finally {
+        lock.unlock();
+      }
+    }
+  }
+
+  // Caller holds the lock.
+  private void runDue() {
+    for (TimingWheel.Entry e = intake.poll(); e != null; e = intake.poll()) {
+      wheel.add(e);
+    }
+    for (TimingWheel.Entry e = wheel.poll(currentDay); e != null; e = wheel.poll(currentDay)) {
+      int next = e.task.run(e.day);
+      if (next != DayTask.DONE) {
+        if (next <= e.day) {
+          throw new IllegalStateException("A task can only run again on a later day");
+        }
+        wheel.add(next, e.task);
+      }
     }
-    currentDay += days;
   }
-}
\ No newline at end of file
+}
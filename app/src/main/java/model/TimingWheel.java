@@ -0,0 +1,125 @@
+package model;
+
+import java.util.ArrayDeque;
+
+/**
+ * Hierarchical timing wheel of day tasks, not thread safe.
+ *
+ * <p>Six levels of 64 slots, a slot of level n spans 64^n days, so together
+ * they cover every int day. A task sits on the lowest level where its day and
+ * the current day fall in different slots. Moving time forward jumps straight
+ * to the next occupied slot, found through a bitmap per level, and a slot of
+ * a higher level is spread over the lower ones once time enters it. A task
+ * moves down at most once per level, so advancing by any number of days
+ * costs what the tasks due in between cost, not what the days cost.
+ */
+final class TimingWheel {
+  private static final int BITS = 6;
+  private static final int SLOTS = 1 << BITS;
+  private static final int LEVELS = 6;
+
+  // Per level and slot, a list of the tasks in it.
+  private final Entry[][] slots = new Entry[LEVELS][SLOTS];
+  // Per level, one bit per slot that holds tasks.
+  private final long[] occupied = new long[LEVELS];
+  // Tasks due on the current day or before, in the order they came due.
+  private final ArrayDeque<Entry> due = new ArrayDeque<>();
+  private int now;
+  private int size;
+
+  TimingWheel(int now) {
+    this.now = now;
+  }
+
+  /**
+   * Add a task, it is due right away if its day is not after the current one.
+   *
+   * @param day   --> The day to run the task on.
+   * @param task  --> The task.
+   */
+  void add(int day, DayTask task) {
+    add(new Entry(day, task));
+  }
+
+  void add(Entry e) {
+    insert(e);
+    size++;
+  }
+
+  private void insert(Entry e) {
+    if (e.day <= now) {
+      due.add(e);
+      return;
+    }
+    int level = (31 - Integer.numberOfLeadingZeros(e.day ^ now)) / BITS;
+    int slot = (e.day >>> (level * BITS)) & (SLOTS - 1);
+    e.next = slots[level][slot];
+    slots[level][slot] = e;
+    occupied[level] |= 1L << slot;
+  }
+
+  /**
+   * Take the next task due by a day, moving the current day towards it.
+   *
+   * @param target  --> The day to move to, not before the current one.
+   * @return        --> The earliest task due by target, null once there is none and the current day is target.
+   */
+  Entry poll(int target) {
+    while (due.isEmpty()) {
+      if (now >= target) {
+        return null;
+      }
+      // Slots of a level lie after every slot of the levels below, so the
+      // lowest level with an occupied slot after the current day has the next task.
+      int level = 0;
+      long ahead = 0;
+      for (; level < LEVELS && ahead == 0; level++) {
+        int index = (now >>> (level * BITS)) & (SLOTS - 1);
+        ahead = index == SLOTS - 1 ? 0 : occupied[level] & (-1L << (index + 1));
+      }
+      if (ahead == 0) {
+        now = target;
+        return null;
+      }
+      level--;
+      int slot = Long.numberOfTrailingZeros(ahead);
+      int shift = level * BITS;
+      long start = ((long) now >>> (shift + BITS) << (shift + BITS)) | ((long) slot << shift);
+      if (start > target) {
+        now = target;
+        return null;
+      }
+      // Enter the slot and spread its tasks over the lower levels, or make them due.
+      now = (int) start;
+      Entry e = slots[level][slot];
+      slots[level][slot] = null;
+      occupied[level] &= ~(1L << slot);
+      while (e != null) {
+        Entry next = e.next;
+        e.next = null;
+        insert(e);
+        e = next;
+      }
+    }
+    size--;
+    return due.poll();
+  }
+
+  int size() {
+    return size;
+  }
+
+  /**
+   * A task and its day.
+   */
+  static final class Entry {
+    final int day;
+    final DayTask task;
+    private Entry next;
+
+    Entry(int day, DayTask task) {
+      this.day = day;
+      this.task = task;
+    }
+  }
+}
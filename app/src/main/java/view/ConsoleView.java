@@ -4,13 +4,26 @@ import controller.ControllerManager;
 import controller.dto.ContractDto;
 import controller.dto.ItemDto;
 import controller.dto.MemberDto;
+import controller.dto.MemberReport;
+import controller.dto.Page;
+import java.io.BufferedWriter;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
 import java.nio.charset.StandardCharsets;
+import java.util.List;
 import java.util.Scanner;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import model.ContractStatus;
+import model.ItemCatagory;
 
 /**
  * The class that handles everything related to UI.
  */
 public class ConsoleView {
+  private static final int PAGE_SIZE = 20;
+  private static final int REPORT_BUFFER = 1 << 16;
+
   private final ControllerManager controller;
   private final Scanner scanner = new Scanner(System.in, StandardCharsets.UTF_8);
 
@@ -39,6 +52,9 @@ public class ConsoleView {
           case "4":
             handleTime();
             break;
+          case "5":
+            System.out.print(controller.getMetrics().report());
+            break;
           case "0":
             System.out.println("Bye!");
             return;
@@ -57,13 +73,13 @@ public class ConsoleView {
     System.out.println("2) Items");
     System.out.println("3) Contracts");
     System.out.println("4) Time");
+    System.out.println("5) Metrics");
     System.out.println("0) Exit");
     System.out.print("Select: ");
   }
 
   private void handleMembers() {
-    System.out.println("Members: \n  -- 1) Add \n  -- 2) List simple \n  -- 3) List verbose"
-        + "\n  -- 4) Update \n  -- 5) Delete \n  -- 0) Back");
+    printMenu("Members", "1) Add", "2) List simple", "3) List verbose", "4) Update", "5) Delete", "0) Back");
     String selection = scanner.nextLine().trim();
     switch (selection) {
       case "1":
@@ -77,29 +93,13 @@ public class ConsoleView {
         System.out.println("Created member id = " + m.getMemberId());
         break;
       case "2":
-        for (MemberDto memb : controller.listMembers()) {
-          System.out.println(memb.getMemberId() + " | " + memb.getName() + ", "
-              + memb.getEmail() + ", Phone: " + memb.getPhone() + ", credits: "
-              + memb.getCredits());
-        }
+        printPaged(controller::listMembers, memb ->
+            System.out.println(memb.getMemberId() + " | " + memb.getName() + ", "
+                + memb.getEmail() + ", Phone: " + memb.getPhone() + ", credits: "
+                + memb.getCredits()));
         break;
       case "3":
-        for (MemberDto memb : controller.listMembers()) {
-          System.out.println("=== ===");
-          System.out.println("ID: " + memb.getMemberId());
-          System.out.println("Name: " + memb.getName());
-          System.out.println("Email: " + memb.getEmail());
-          System.out.println("Phone: " + memb.getPhone());
-          System.out.println("Credits: " + memb.getCredits());
-          System.out.println("Owned items:");
-          for (ItemDto item : controller.getOwnedItemsForMember(memb.getMemberId())) {
-            System.out.println("  " + item.getName() + " (" + item.getId() + ")");
-            for (ContractDto c : controller.getContractsForItem(item.getId())) {
-              System.out.println("  Contract: " + c.id + " borrower: " + c.borrowerName
-                  + " " + c.startDay + " --> " + c.endDay + ", Status: " + c.status);
-            }
-          }
-        }
+        printMemberReport(controller.getMemberReport());
         break;
       case "4":
         String id = prompt("Member id: ");
@@ -124,7 +124,8 @@ public class ConsoleView {
   }
 
   private void handleItems() {
-    System.out.println("Items:\n  -- 1) Add\n  -- 2) List\n  -- 3) View\n  -- 4) Update\n  -- 5) Delete\n  -- 0) Back");
+    printMenu("Items", "1) Add", "2) List", "3) View", "4) Update", "5) Delete", "6) Transfer",
+        "7) Search available", "0) Back");
     String selection = scanner.nextLine().trim();
     switch (selection) {
       case "1":
@@ -143,11 +144,10 @@ public class ConsoleView {
         System.out.println("Item created: " + it.getId());
         break;
       case "2":
-        for (ItemDto it2 : controller.listItems()) {
-          System.out.println(it2.getId() + ": " + it2.getName()
-              + " owner: " + it2.getOwner().getName()
-              + ", Cost per day: " + it2.getCostPerDay());
-        }
+        printPaged(controller::listItems, it2 ->
+            System.out.println(it2.getId() + ": " + it2.getName()
+                + " owner: " + it2.getOwner().getName()
+                + ", Cost per day: " + it2.getCostPerDay()));
         break;
       case "3":
         String iid = prompt("Item ID: ");
@@ -182,13 +182,29 @@ public class ConsoleView {
         controller.deleteItem(deleteItemId);
         System.out.println("Deleted");
         break;
+      case "6":
+        String transferItemId = prompt("Item ID: ");
+        controller.transferItem(transferItemId, prompt("New owner ID: "));
+        System.out.println("Transferred");
+        break;
+      case "7":
+        ItemCatagory category = Enum.valueOf(ItemCatagory.class,
+            prompt("Category (Tool, Vehicle, Game, Toy, Sport, Other): "));
+        int from = Integer.parseInt(prompt("From day (int): "));
+        int to = Integer.parseInt(prompt("To day (int): "));
+        int maxCost = Integer.parseInt(prompt("Max cost per day (int): "));
+        printPaged((cursor, size) -> controller.searchAvailableItems(category, 0, maxCost, from, to, cursor, size),
+            found -> System.out.println(found.getId() + ": " + found.getName()
+                + " owner: " + found.getOwner().getName()
+                + ", Cost per day: " + found.getCostPerDay()));
+        break;
       case "0": return;
       default: System.out.println("Unknown selection");
     }
   }
 
   private void handleContracts() {
-    System.out.println("Contracts: \n  -- 1) Create \n  -- 2) List \n  -- 0) Back");
+    printMenu("Contracts", "1) Create", "2) List", "3) List by status", "0) Back");
     String selection = scanner.nextLine();
     switch (selection) {
       case "1":
@@ -205,14 +221,15 @@ public class ConsoleView {
         break;
       case "2":
         System.out.println("Existing contracts:");
-        for (ContractDto contract : controller.listContracts()) {
-          System.out.println("Created contract:\n  ID: " + contract.id
-              + ", Item: " + contract.itemName
-              + ", Borrower: " + contract.borrowerName
-              + ", Period: " + contract.startDay + " --> " + contract.endDay
-              + ", Status: " + contract.status);
-          break;
+        printPaged(controller::listContracts, this::printContract);
+        break;
+      case "3":
+        for (ContractStatus s : ContractStatus.values()) {
+          System.out.println("  " + s + ": " + controller.countContracts(s));
         }
+        ContractStatus status = Enum.valueOf(ContractStatus.class,
+            prompt("Status (SCHEDULED, ACTIVE, COMPLEATED): ").trim());
+        printPaged((cursor, size) -> controller.listContracts(status, cursor, size), this::printContract);
         break;
       case "0":
         return;
@@ -232,6 +249,68 @@ public class ConsoleView {
     }
   }
 
+  /**
+   * Print every member with their items and contracts, buffered so that a
+   * large report is written in a few big chunks instead of line by line.
+   *
+   * @param report  --> From the controller.
+   */
+  private void printMemberReport(List<MemberReport> report) {
+    PrintWriter out = new PrintWriter(new BufferedWriter(
+        new OutputStreamWriter(System.out, StandardCharsets.UTF_8), REPORT_BUFFER));
+    for (MemberReport entry : report) {
+      MemberDto memb = entry.getMember();
+      out.println("=== ===");
+      out.println("ID: " + memb.getMemberId());
+      out.println("Name: " + memb.getName());
+      out.println("Email: " + memb.getEmail());
+      out.println("Phone: " + memb.getPhone());
+      out.println("Credits: " + memb.getCredits());
+      out.println("Owned items:");
+      for (MemberReport.OwnedItem owned : entry.getItems()) {
+        ItemDto item = owned.getItem();
+        out.println("  " + item.getName() + " (" + item.getId() + ")");
+        for (ContractDto c : owned.getContracts()) {
+          out.println("  Contract: " + c.id + " borrower: " + c.borrowerName
+              + " " + c.startDay + " --> " + c.endDay + ", Status: " + c.status);
+        }
+      }
+    }
+    // Not closed, that would close System.out.
+    out.flush();
+  }
+
+  private void printContract(ContractDto contract) {
+    System.out.println("  ID: " + contract.id
+        + ", Item: " + contract.itemName
+        + ", Borrower: " + contract.borrowerName
+        + ", Period: " + contract.startDay + " --> " + contract.endDay
+        + ", Status: " + contract.status);
+  }
+
+  /**
+   * Print a listing one page at a time, asking before each following page.
+   *
+   * @param fetch   --> Returns the page after a cursor.
+   * @param print   --> Prints one entry.
+   */
+  private <T> void printPaged(BiFunction<String, Integer, Page<T>> fetch, Consumer<T> print) {
+    Page<T> page = fetch.apply(null, PAGE_SIZE);
+    page.getItems().forEach(print);
+    while (page.hasNext() && prompt("More? (Enter for next page, 0 to stop): ").trim().isEmpty()) {
+      page = fetch.apply(page.getNextCursor(), PAGE_SIZE);
+      page.getItems().forEach(print);
+    }
+  }
+
+  // One option per line, so adding an option never grows a source line past the limit.
+  private void printMenu(String title, String... options) {
+    System.out.println(title + ":");
+    for (String option : options) {
+      System.out.println("  -- " + option);
+    }
+  }
+
   private String prompt(String message) {
     System.out.print(message);
     return scanner.nextLine();
@@ -0,0 +1,449 @@
+package view;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import controller.ConflictException;
+import controller.ControllerManager;
+import controller.FlatJson;
+import controller.NotFoundException;
+import controller.dto.ItemDto;
+import controller.dto.MemberDto;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import model.ContractStatus;
+import model.ItemCatagory;
+
+/**
+ * HTTP/JSON view of the system, served next to or instead of the console.
+ *
+ * <p>Each request runs on its own virtual thread where the JDK has them (21+),
+ * otherwise on a fixed pool of platform threads. Requests go straight to the
+ * ControllerManager, which is safe to call from many threads at once.
+ *
+ * <pre>
+ *   GET    /members?cursor=&amp;limit=          POST /members {name, email, phone}
+ *   GET    /members/ID                      PUT  /members/ID {name, email, phone}
+ *   DELETE /members/ID                      PUT  /members/ID/credits {credits}
+ *   GET    /members/ID/items, /members/ID/borrowing, /members/ID/lending
+ *   GET    /items?cursor=&amp;limit=            POST /items {ownerId, category, name, description, costPerDay}
+ *   GET    /items/search?category=&amp;minCost=&amp;maxCost=&amp;from=&amp;to=&amp;cursor=&amp;limit=
+ *   GET    /items/ID                        PUT  /items/ID {name, description, costPerDay}
+ *   DELETE /items/ID                        POST /items/ID/transfer {ownerId}
+ *   GET    /items/ID/contracts
+ *   GET    /contracts?status=&amp;cursor=&amp;limit=  POST /contracts {borrowerId, itemId, startDay, endDay}
+ *   GET    /contracts/count?status=
+ *   GET    /time                            POST /time/advance {days}
+ * </pre>
+ * Invalid requests answer 400, unknown ids (NotFoundException) 404 and
+ * conflicts with the current state (ConflictException or
+ * IllegalStateException), like a taken email, a booked period or deleting a
+ * member that still owns items, 409.
+ *
+ * <p>There is no authentication, so by default the server only listens on the
+ * loopback address; any other address has to be passed in explicitly.
+ *
+ * <p>Loading this class sets the JVM-wide sun.net.httpserver.nodelay property
+ * to true unless it was set already, which affects every JDK HttpServer
+ * created in the process afterwards. Pass -Dsun.net.httpserver.nodelay=false
+ * to keep Nagle's algorithm.
+ */
+public class HttpView {
+  private static final int DEFAULT_PAGE_SIZE = 50;
+  private static final int MAX_PAGE_SIZE = 1000;
+  // Platform threads to fall back to without virtual threads. Requests only
+  // block on journal syncs, so this mostly bounds how many share one fsync.
+  private static final int FALLBACK_THREADS = 200;
+  private static final int BACKLOG = 4096;
+  private static final Logger LOG = Logger.getLogger(HttpView.class.getName());
+
+  static {
+    // The JDK server writes the headers and the body separately, without
+    // TCP_NODELAY every response then waits ~40ms for the client's delayed ACK.
+    // Read once when the first server is created, an explicit -D still wins.
+    if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+      System.setProperty("sun.net.httpserver.nodelay", "true");
+    }
+  }
+
+  private final ControllerManager controller;
+  private final HttpServer server;
+  private final ExecutorService executor;
+
+  /**
+   * Bind the server to the loopback address, it does not answer until start().
+   *
+   * @param controller    --> The controller to serve.
+   * @param port          --> Port to listen on, 0 for any free one.
+   * @throws IOException  --> If the port cannot be bound.
+   */
+  public HttpView(ControllerManager controller, int port) throws IOException {
+    this(controller, InetAddress.getLoopbackAddress(), port);
+  }
+
+  /**
+   * Bind the server, it does not answer until start().
+   *
+   * @param controller    --> The controller to serve.
+   * @param address       --> Address to listen on, anyone who can reach it can change the data.
+   * @param port          --> Port to listen on, 0 for any free one.
+   * @throws IOException  --> If the port cannot be bound.
+   */
+  public HttpView(ControllerManager controller, InetAddress address, int port) throws IOException {
+    this.controller = controller;
+    this.server = HttpServer.create(new InetSocketAddress(address, port), BACKLOG);
+    this.executor = newRequestExecutor();
+    server.setExecutor(executor);
+    server.createContext("/", this::handle);
+  }
+
+  /**
+   * A virtual thread per request if the JDK has them, else a fixed pool.
+   *
+   * <p>Looked up by reflection so the project still builds and runs on JDK 17.
+   *
+   * @return    --> The executor.
+   */
+  public static ExecutorService newRequestExecutor() {
+    try {
+      return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+    } catch (ReflectiveOperationException e) {
+      return Executors.newFixedThreadPool(FALLBACK_THREADS);
+    }
+  }
+
+  public void start() {
+    server.start();
+  }
+
+  public int getPort() {
+    return server.getAddress().getPort();
+  }
+
+  public InetSocketAddress getAddress() {
+    return server.getAddress();
+  }
+
+  /**
+   * Stop accepting requests and wait a little for the running ones.
+   */
+  public void stop() {
+    server.stop(1);
+    executor.shutdown();
+    try {
+      executor.awaitTermination(5, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private void handle(HttpExchange exchange) throws IOException {
+    int status;
+    String body;
+    try {
+      Request r = new Request(exchange);
+      body = route(r);
+      if (body == null) {
+        status = 404;
+        body = error("Not found");
+      } else {
+        status = r.is("POST") && r.path.length == 1 ? 201 : 200;
+      }
+    } catch (NotFoundException e) {
+      status = 404;
+      body = error(e.getMessage());
+    } catch (ConflictException | IllegalStateException e) {
+      status = 409;
+      body = error(e.getMessage());
+    } catch (IllegalArgumentException e) {
+      status = 400;
+      body = error(e.getMessage());
+    } catch (RuntimeException e) {
+      LOG.log(Level.SEVERE, exchange.getRequestMethod() + " " + exchange.getRequestURI() + " failed", e);
+      status = 500;
+      body = error("Internal error");
+    }
+    byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+    exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+    exchange.sendResponseHeaders(status, bytes.length);
+    try (OutputStream out = exchange.getResponseBody()) {
+      out.write(bytes);
+    }
+  }
+
+  private static String error(String message) {
+    StringBuilder sb = new StringBuilder("{\"error\":");
+    Json.string(sb, message);
+    return sb.append('}').toString();
+  }
+
+  /**
+   * Answer a request.
+   *
+   * @param r   --> The request.
+   * @return    --> JSON body, null if nothing matches the path and method.
+   */
+  private String route(Request r) throws IOException {
+    String[] p = r.path;
+    if (p.length == 0) {
+      return null;
+    }
+    switch (p[0]) {
+      case "members":
+        return members(r, p);
+      case "items":
+        return items(r, p);
+      case "contracts":
+        return contracts(r, p);
+      case "time":
+        return time(r, p);
+      default:
+        return null;
+    }
+  }
+
+  private String members(Request r, String[] p) throws IOException {
+    if (p.length == 1) {
+      if (r.is("GET")) {
+        return Json.page(controller.listMembers(r.query("cursor"), r.pageSize()), Json::member);
+      } else if (r.is("POST")) {
+        Map<String, String> b = r.body();
+        return Json.member(new MemberDto(controller.createMember(r.required(b, "name"), r.required(b, "email"),
+            r.required(b, "phone"))));
+      }
+      return null;
+    }
+    String id = p[1];
+    if (p.length == 2) {
+      if (r.is("GET")) {
+        return Json.member(member(id));
+      } else if (r.is("PUT")) {
+        MemberDto m = member(id);
+        Map<String, String> b = r.body();
+        controller.updateMember(id, b.getOrDefault("name", m.getName()), b.getOrDefault("email", m.getEmail()),
+            b.getOrDefault("phone", m.getPhone()));
+        return Json.member(member(id));
+      } else if (r.is("DELETE")) {
+        controller.deleteMember(id);
+        return "{}";
+      }
+      return null;
+    }
+    if (p.length == 3 && p[2].equals("credits") && r.is("PUT")) {
+      controller.setCredits(id, Request.number(r.required(r.body(), "credits")));
+      return Json.member(member(id));
+    } else if (p.length == 3 && r.is("GET")) {
+      member(id);
+      switch (p[2]) {
+        case "items":
+          return Json.array(controller.getOwnedItemsForMember(id), Json::item);
+        case "borrowing":
+          return Json.array(controller.getContractsForBorrower(id), Json::contract);
+        case "lending":
+          return Json.array(controller.getContractsForLender(id), Json::contract);
+        default:
+          return null;
+      }
+    }
+    return null;
+  }
+
+  private String items(Request r, String[] p) throws IOException {
+    if (p.length == 1) {
+      if (r.is("GET")) {
+        return Json.page(controller.listItems(r.query("cursor"), r.pageSize()), Json::item);
+      } else if (r.is("POST")) {
+        Map<String, String> b = r.body();
+        return Json.item(controller.getItemDtoById(controller.createItem(r.required(b, "ownerId"),
+            category(r.required(b, "category")), r.required(b, "name"), b.getOrDefault("description", ""),
+            Request.number(r.required(b, "costPerDay"))).getId()));
+      }
+      return null;
+    }
+    if (p.length == 2 && p[1].equals("search") && r.is("GET")) {
+      return Json.page(controller.searchAvailableItems(category(r.requiredQuery("category")),
+          Request.number(r.queryOrDefault("minCost", "0")),
+          Request.number(r.queryOrDefault("maxCost", String.valueOf(Integer.MAX_VALUE))),
+          Request.number(r.requiredQuery("from")), Request.number(r.requiredQuery("to")),
+          r.query("cursor"), r.pageSize()), Json::item);
+    }
+    String id = p[1];
+    if (p.length == 2) {
+      if (r.is("GET")) {
+        return Json.item(item(id));
+      } else if (r.is("PUT")) {
+        item(id);
+        Map<String, String> b = r.body();
+        String cost = b.get("costPerDay");
+        controller.updateItemInfo(id, b.get("name"), b.get("description"), cost == null ? null : Request.number(cost));
+        return Json.item(item(id));
+      } else if (r.is("DELETE")) {
+        item(id);
+        controller.deleteItem(id);
+        return "{}";
+      }
+      return null;
+    }
+    if (p.length == 3 && p[2].equals("transfer") && r.is("POST")) {
+      item(id);
+      controller.transferItem(id, r.required(r.body(), "ownerId"));
+      return Json.item(item(id));
+    } else if (p.length == 3 && p[2].equals("contracts") && r.is("GET")) {
+      item(id);
+      return Json.array(controller.getContractsForItem(id), Json::contract);
+    }
+    return null;
+  }
+
+  private String contracts(Request r, String[] p) throws IOException {
+    if (p.length == 1 && r.is("GET")) {
+      String status = r.query("status");
+      return Json.page(status == null
+          ? controller.listContracts(r.query("cursor"), r.pageSize())
+          : controller.listContracts(status(status), r.query("cursor"), r.pageSize()), Json::contract);
+    } else if (p.length == 1 && r.is("POST")) {
+      Map<String, String> b = r.body();
+      return Json.contract(controller.createContractDtoAndGeDto(r.required(b, "borrowerId"),
+          r.required(b, "itemId"), Request.number(r.required(b, "startDay")),
+          Request.number(r.required(b, "endDay"))));
+    } else if (p.length == 2 && p[1].equals("count") && r.is("GET")) {
+      return "{\"count\":" + controller.countContracts(status(r.requiredQuery("status"))) + "}";
+    }
+    return null;
+  }
+
+  private String time(Request r, String[] p) throws IOException {
+    if (p.length == 1 && r.is("GET")) {
+      return "{\"day\":" + controller.getCurrentDay() + "}";
+    } else if (p.length == 2 && p[1].equals("advance") && r.is("POST")) {
+      controller.advanceDay(Request.number(r.required(r.body(), "days")));
+      return "{\"day\":" + controller.getCurrentDay() + "}";
+    }
+    return null;
+  }
+
+  private MemberDto member(String id) {
+    MemberDto m = controller.getMemberDtoById(id);
+    if (m == null) {
+      throw new NotFoundException("Member not found");
+    }
+    return m;
+  }
+
+  private ItemDto item(String id) {
+    ItemDto i = controller.getItemDtoById(id);
+    if (i == null) {
+      throw new NotFoundException("Item not found");
+    }
+    return i;
+  }
+
+  private static ItemCatagory category(String name) {
+    try {
+      return ItemCatagory.valueOf(name);
+    } catch (IllegalArgumentException e) {
+      throw new IllegalArgumentException("Unknown category: " + name);
+    }
+  }
+
+  private static ContractStatus status(String name) {
+    try {
+      return ContractStatus.valueOf(name.toUpperCase());
+    } catch (IllegalArgumentException e) {
+      throw new IllegalArgumentException("Unknown status: " + name);
+    }
+  }
+
+  /**
+   * Path segments, query parameters and lazily read body of one exchange.
+   */
+  private static final class Request {
+    final String method;
+    final String[] path;
+    private final Map<String, String> query = new HashMap<>();
+    private final HttpExchange exchange;
+
+    Request(HttpExchange exchange) {
+      this.exchange = exchange;
+      this.method = exchange.getRequestMethod();
+      String raw = exchange.getRequestURI().getRawPath();
+      String trimmed = raw.replaceAll("^/+|/+$", "");
+      String[] parts = trimmed.isEmpty() ? new String[0] : trimmed.split("/+");
+      for (int i = 0; i < parts.length; i++) {
+        parts[i] = URLDecoder.decode(parts[i], StandardCharsets.UTF_8);
+      }
+      this.path = parts;
+      String rawQuery = exchange.getRequestURI().getRawQuery();
+      if (rawQuery != null) {
+        for (String pair : rawQuery.split("&")) {
+          int eq = pair.indexOf('=');
+          String key = eq < 0 ? pair : pair.substring(0, eq);
+          String value = eq < 0 ? "" : pair.substring(eq + 1);
+          query.put(URLDecoder.decode(key, StandardCharsets.UTF_8),
+              URLDecoder.decode(value, StandardCharsets.UTF_8));
+        }
+      }
+    }
+
+    boolean is(String m) {
+      return method.equals(m);
+    }
+
+    String query(String name) {
+      String value = query.get(name);
+      return value == null || value.isEmpty() ? null : value;
+    }
+
+    String queryOrDefault(String name, String fallback) {
+      String value = query(name);
+      return value != null ? value : fallback;
+    }
+
+    String requiredQuery(String name) {
+      String value = query(name);
+      if (value == null) {
+        throw new IllegalArgumentException("Missing query parameter: " + name);
+      }
+      return value;
+    }
+
+    int pageSize() {
+      int size = number(queryOrDefault("limit", String.valueOf(DEFAULT_PAGE_SIZE)));
+      return Math.min(size, MAX_PAGE_SIZE);
+    }
+
+    Map<String, String> body() throws IOException {
+      try (InputStream in = exchange.getRequestBody()) {
+        String text = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        return text.isBlank() ? new HashMap<>() : FlatJson.parseObject(text);
+      }
+    }
+
+    String required(Map<String, String> body, String name) {
+      String value = body.get(name);
+      if (value == null) {
+        throw new IllegalArgumentException("Missing field: " + name);
+      }
+      return value;
+    }
+
+    static int number(String text) {
+      try {
+        return Integer.parseInt(text.trim());
+      } catch (NumberFormatException e) {
+        throw new IllegalArgumentException("Not a whole number: " + text);
+      }
+    }
+  }
+}
@@ -0,0 +1,148 @@
+package view;
+
+import controller.dto.ContractDto;
+import controller.dto.ItemDto;
+import controller.dto.MemberDto;
+import controller.dto.Page;
+import java.util.Collection;
+import java.util.function.BiConsumer;
+
+/**
+ * Just enough JSON for the HTTP view to write the DTOs, requests are read with FlatJson.
+ */
+final class Json {
+  private Json() {}
+
+  static String member(MemberDto m) {
+    StringBuilder sb = new StringBuilder(128);
+    member(sb, m);
+    return sb.toString();
+  }
+
+  static void member(StringBuilder sb, MemberDto m) {
+    sb.append("{\"id\":");
+    string(sb, m.getMemberId());
+    sb.append(",\"name\":");
+    string(sb, m.getName());
+    sb.append(",\"email\":");
+    string(sb, m.getEmail());
+    sb.append(",\"phone\":");
+    string(sb, m.getPhone());
+    sb.append(",\"credits\":").append(m.getCredits());
+    sb.append(",\"creationDay\":").append(m.getCreationDate()).append('}');
+  }
+
+  static String item(ItemDto i) {
+    StringBuilder sb = new StringBuilder(192);
+    item(sb, i);
+    return sb.toString();
+  }
+
+  static void item(StringBuilder sb, ItemDto i) {
+    sb.append("{\"id\":");
+    string(sb, i.getId());
+    sb.append(",\"name\":");
+    string(sb, i.getName());
+    sb.append(",\"description\":");
+    string(sb, i.getDescription());
+    sb.append(",\"category\":");
+    string(sb, i.getCategory().name());
+    sb.append(",\"costPerDay\":").append(i.getCostPerDay());
+    sb.append(",\"creationDay\":").append(i.getCreationdate());
+    sb.append(",\"owner\":{\"id\":");
+    string(sb, i.getOwner().getMemberId());
+    sb.append(",\"name\":");
+    string(sb, i.getOwner().getName());
+    sb.append("}}");
+  }
+
+  static String contract(ContractDto c) {
+    StringBuilder sb = new StringBuilder(128);
+    contract(sb, c);
+    return sb.toString();
+  }
+
+  static void contract(StringBuilder sb, ContractDto c) {
+    sb.append("{\"id\":");
+    string(sb, c.id);
+    sb.append(",\"itemName\":");
+    string(sb, c.itemName);
+    sb.append(",\"borrowerName\":");
+    string(sb, c.borrowerName);
+    sb.append(",\"startDay\":").append(c.startDay);
+    sb.append(",\"endDay\":").append(c.endDay);
+    sb.append(",\"status\":");
+    string(sb, c.status.name());
+    sb.append('}');
+  }
+
+  /**
+   * Write a page as {"items": [...], "nextCursor": ...}.
+   *
+   * @param page      --> The page.
+   * @param element   --> Writes one entry.
+   * @return          --> The JSON text.
+   */
+  static <T> String page(Page<T> page, BiConsumer<StringBuilder, T> element) {
+    StringBuilder sb = new StringBuilder(64 + 128 * page.getItems().size());
+    sb.append("{\"items\":");
+    array(sb, page.getItems(), element);
+    sb.append(",\"nextCursor\":");
+    string(sb, page.getNextCursor());
+    return sb.append('}').toString();
+  }
+
+  static <T> String array(Collection<T> values, BiConsumer<StringBuilder, T> element) {
+    StringBuilder sb = new StringBuilder(2 + 128 * values.size());
+    array(sb, values, element);
+    return sb.toString();
+  }
+
+  private static <T> void array(StringBuilder sb, Collection<T> values, BiConsumer<StringBuilder, T> element) {
+    sb.append('[');
+    boolean first = true;
+    for (T v : values) {
+      if (!first) {
+        sb.append(',');
+      }
+      element.accept(sb, v);
+      first = false;
+    }
+    sb.append(']');
+  }
+
+  static void string(StringBuilder sb, String s) {
+    if (s == null) {
+      sb.append("null");
+      return;
+    }
+    sb.append('"');
+    for (int i = 0; i < s.length(); i++) {
+      char ch = s.charAt(i);
+      switch (ch) {
+        case '"':
+          sb.append("\\\"");
+          break;
+        case '\\':
+          sb.append("\\\\");
+          break;
+        case '\n':
+          sb.append("\\n");
+          break;
+        case '\r':
+          sb.append("\\r");
+          break;
+        case '\t':
+          sb.append("\\t");
+          break;
+        default:
+          if (ch < 0x20) {
+            sb.append(String.format("\\u%04x", (int) ch));
+          } else {
+            sb.append(ch);
+          }
+      }
+    }
+    sb.append('"');
+  }
+}
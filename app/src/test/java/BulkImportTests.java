@@ -0,0 +1,141 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import controller.BulkImporter;
+import controller.ControllerManager;
+import controller.dto.ImportResult;
+import controller.dto.MemberDto;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.List;
+
+public class BulkImportTests {
+
+  private ControllerManager controller;
+
+  @BeforeEach
+  public void setup() {
+    controller = ControllerManager.createEmpty();
+  }
+
+  private ImportResult importCsv(int batchSize, String csv) throws IOException {
+    return new BulkImporter(controller, batchSize).importCsv(new StringReader(csv));
+  }
+
+  private MemberDto member(String name) {
+    return controller.listMembers().stream().filter(m -> m.getName().equals(name)).findFirst().orElseThrow();
+  }
+
+  @Test
+  public void testImportResolvesReferences() throws IOException {
+    ImportResult result = importCsv(BulkImporter.DEFAULT_BATCH_SIZE, String.join("\n",
+        "# members, items and contracts",
+        "member,a,Alice,alice@example.com,0701,0",
+        "member,b,\"Bob, Jr.\",bob@example.com,0702,100",
+        "item,drill,a,Tool,Drill,\"Says \"\"boom\"\"\",10",
+        "contract,b,drill,1,4",
+        ""));
+
+    assertTrue(result.getErrors().isEmpty(), result.getErrors().toString());
+    assertEquals(2, result.getMembers());
+    assertEquals(1, result.getItems());
+    assertEquals(1, result.getContracts());
+    assertEquals(130, member("Alice").getCredits());
+    assertEquals(70, member("Bob, Jr.").getCredits());
+    assertEquals("Says \"boom\"", controller.listItems().iterator().next().getDescription());
+  }
+
+  @Test
+  public void testBadRowsAreReportedAndSkipped() throws IOException {
+    ImportResult result = importCsv(BulkImporter.DEFAULT_BATCH_SIZE, String.join("\n",
+        "member,a,Alice,alice@example.com,0701,500",
+        "member,b,Bob,alice@example.com,0702,500",
+        "item,x,a,Spaceship,Rocket,Fast,10",
+        "item,y,nobody,Tool,Saw,Sharp,10",
+        "item,z,a,Tool,Saw,Sharp,10",
+        "contract,a,z,5,10",
+        "contract,a,z,1,6",
+        "contract,a,z,10,12",
+        "contract,a,z,3,3",
+        "stranger,1"));
+
+    assertEquals(1, result.getMembers());
+    assertEquals(1, result.getItems());
+    assertEquals(2, result.getContracts());
+    assertEquals(6, result.getErrors().size());
+    assertTrue(result.getErrors().get(0).startsWith("line 3: Unknown category"));
+    assertTrue(result.getErrors().contains("line 2: Email already exists"));
+    assertTrue(result.getErrors().contains("line 4: Owner not found"));
+    assertTrue(result.getErrors().contains("line 6: Overlaps the contract on line 7"));
+  }
+
+  @Test
+  public void testReferencesSpanBatches() throws IOException {
+    StringBuilder csv = new StringBuilder();
+    for (int i = 0; i < 25; i++) {
+      csv.append("member,m").append(i).append(",M").append(i).append(",m").append(i).append("@example.com,07")
+          .append(i).append(",100\n");
+      csv.append("item,i").append(i).append(",m").append(i).append(",Toy,Toy,Fun,1\n");
+    }
+    for (int i = 0; i < 25; i++) {
+      csv.append("contract,m").append(i).append(",i").append((i + 1) % 25).append(",0,5\n");
+    }
+    ImportResult result = importCsv(7, csv.toString());
+
+    assertTrue(result.getErrors().isEmpty(), result.getErrors().toString());
+    assertEquals(25, controller.listContracts().size());
+    assertTrue(controller.listMembers().stream().allMatch(m -> m.getCredits() == 200));
+  }
+
+  @Test
+  public void testRejectedReferencesDoNotMatchExistingIds() throws IOException {
+    String existing = controller.createMember("Zed", "zed@example.com", "0700").getMemberId();
+    String existingItem = controller.createItem(existing, model.ItemCatagory.Tool, "Hammer", "Old", 1).getId();
+    ImportResult result = importCsv(BulkImporter.DEFAULT_BATCH_SIZE, String.join("\n",
+        "member," + existing + ",Copy,zed@example.com,0799,0",
+        "member,a,Alice,alice@example.com,0701,100",
+        "item," + existingItem + "," + existing + ",Tool,Saw,Sharp,1",
+        "item,y,a,Nonsense,Saw,Sharp,1",
+        "contract,a," + existingItem + ",1,2",
+        "contract,a,y,1,2"));
+
+    assertEquals(1, result.getMembers());
+    assertEquals(0, result.getItems());
+    assertEquals(0, result.getContracts());
+    assertTrue(result.getErrors().contains("line 3: Unknown member reference: " + existing), result.getErrors()
+        .toString());
+    assertTrue(result.getErrors().contains("line 5: Unknown item reference: " + existingItem));
+    assertTrue(result.getErrors().contains("line 6: Unknown item reference: y"));
+    assertEquals(1, controller.getOwnedItemsForMember(existing).size());
+    assertTrue(controller.getContractsForItem(existingItem).isEmpty());
+  }
+
+  @Test
+  public void testImportNdjson() throws IOException {
+    ImportResult result = new BulkImporter(controller).importNdjson(new StringReader(String.join("\n",
+        "{\"type\": \"member\", \"ref\": \"a\", \"name\": \"Alice\", \"email\": \"alice@example.com\","
+            + " \"phone\": \"0701\", \"credits\": 0}",
+        "{\"type\": \"member\", \"ref\": \"b\", \"name\": \"Bob, Jr.\", \"email\": \"bob@example.com\","
+            + " \"phone\": \"0702\", \"credits\": 100}",
+        "",
+        "{\"type\": \"item\", \"ref\": \"drill\", \"owner\": \"a\", \"category\": \"Tool\", \"name\": \"Drill\","
+            + " \"description\": \"Says \\\"boom\\\"\", \"costPerDay\": 10}",
+        "{\"type\": \"item\", \"ref\": \"saw\", \"owner\": \"a\", \"category\": \"Tool\", \"name\": \"Saw\"}",
+        "{\"type\": \"contract\", \"borrower\": \"b\", \"item\": \"drill\", \"startDay\": 1, \"endDay\": 4}",
+        "{\"type\": \"contract\", \"borrower\": \"b\", \"item\": \"saw\", \"startDay\": 5, \"endDay\": 6}",
+        "{\"type\": \"boat\"}",
+        "not json")));
+
+    assertEquals(2, result.getMembers());
+    assertEquals(1, result.getItems());
+    assertEquals(1, result.getContracts());
+    // Rows applied with their batch report errors after the rows rejected while reading.
+    assertEquals(List.of("line 5: Missing field for item: description", "line 8: Unknown row type: boat",
+        "line 9: Expected '{' at 0", "line 7: Unknown item reference: saw"), result.getErrors());
+    assertEquals(130, member("Alice").getCredits());
+    assertEquals(70, member("Bob, Jr.").getCredits());
+    assertEquals("Says \"boom\"", controller.listItems().iterator().next().getDescription());
+  }
+}
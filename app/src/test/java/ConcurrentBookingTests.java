@@ -0,0 +1,299 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import controller.ControllerManager;
+import controller.NotFoundException;
+import controller.ReadView;
+import controller.dto.CreditEntry;
+import controller.dto.ContractDto;
+import controller.dto.ItemDto;
+import controller.dto.MemberDto;
+import model.ContractStatus;
+import model.ItemCatagory;
+import model.Member;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class ConcurrentBookingTests {
+
+  private static final int MEMBERS = 16;
+  private static final int ITEMS_PER_MEMBER = 2;
+  private static final int THREADS = 8;
+  private static final int BOOKINGS_PER_THREAD = 2000;
+
+  private int totalCredits(ControllerManager controller) {
+    return controller.listMembers().stream().mapToInt(MemberDto::getCredits).sum();
+  }
+
+  @Test
+  public void testConcurrentBookingsConserveCredits() throws Exception {
+    runBookings(false);
+  }
+
+  @Test
+  public void testBookingsDuringTransfersConserveCredits() throws Exception {
+    runBookings(true);
+  }
+
+  @Test
+  public void testDeletesNeverLeaveItemsWithoutOwner() throws Exception {
+    ControllerManager controller = ControllerManager.createEmpty();
+    List<String> memberIds = new ArrayList<>();
+    for (int m = 0; m < MEMBERS * 8; m++) {
+      memberIds.add(controller.createMember("Member " + m, "m" + m + "@example.com", "07" + m).getMemberId());
+    }
+    ExecutorService pool = Executors.newFixedThreadPool(2);
+    CountDownLatch start = new CountDownLatch(1);
+    Future<?> creates = pool.submit(() -> {
+      Random rnd = new Random(1);
+      start.await();
+      for (int n = 0; n < BOOKINGS_PER_THREAD; n++) {
+        try {
+          controller.createItem(memberIds.get(rnd.nextInt(memberIds.size())), ItemCatagory.Tool, "Tool " + n,
+              "Stress test item", 1);
+        } catch (IllegalArgumentException e) {
+          // The owner was deleted first.
+        }
+      }
+      return null;
+    });
+    Future<?> deletes = pool.submit(() -> {
+      start.await();
+      for (String memberId : memberIds) {
+        try {
+          controller.deleteMember(memberId);
+        } catch (IllegalStateException e) {
+          // An item was added first.
+        }
+      }
+      return null;
+    });
+    start.countDown();
+    creates.get();
+    deletes.get();
+    pool.shutdown();
+
+    for (ItemDto item : controller.listItems()) {
+      assertNotNull(controller.getMemberDtoById(item.getOwner().getMemberId()), "Item of a deleted member");
+    }
+  }
+
+  @Test
+  public void testUpdatesOfDeletedItemsFail() throws Exception {
+    ControllerManager controller = ControllerManager.createEmpty();
+    String owner = controller.createMember("Owner", "owner@example.com", "0700").getMemberId();
+    List<String> itemIds = new ArrayList<>();
+    for (int n = 0; n < BOOKINGS_PER_THREAD; n++) {
+      itemIds.add(controller.createItem(owner, ItemCatagory.Tool, "Tool " + n, "Stress test item", 1).getId());
+    }
+    ExecutorService pool = Executors.newFixedThreadPool(2);
+    CountDownLatch start = new CountDownLatch(1);
+    Future<?> updates = pool.submit(() -> {
+      start.await();
+      for (String itemId : itemIds) {
+        try {
+          controller.updateItemInfo(itemId, "Renamed", null, 2);
+        } catch (NotFoundException e) {
+          // The delete came first.
+        }
+      }
+      return null;
+    });
+    Future<?> deletes = pool.submit(() -> {
+      start.await();
+      for (String itemId : itemIds) {
+        controller.deleteItem(itemId);
+      }
+      return null;
+    });
+    start.countDown();
+    updates.get();
+    deletes.get();
+    pool.shutdown();
+
+    assertTrue(controller.listItems().isEmpty());
+    assertTrue(controller.searchItems("renamed", null, 10).isEmpty());
+    assertThrows(NotFoundException.class, () -> controller.updateItemInfo(itemIds.get(0), "Again", null, null));
+  }
+
+  @Test
+  public void testViewsDuringDayAdvancesSeeStatusesOfTheirDay() throws Exception {
+    ControllerManager controller = ControllerManager.createEmpty();
+    List<String> memberIds = new ArrayList<>();
+    List<String> itemIds = new ArrayList<>();
+    for (int m = 0; m < MEMBERS; m++) {
+      Member member = controller.createMember("Member " + m, "m" + m + "@example.com", "07" + m);
+      controller.setCredits(member.getMemberId(), 5000);
+      memberIds.add(member.getMemberId());
+      itemIds.add(controller.createItem(member.getMemberId(), ItemCatagory.Tool, "Tool " + m, "", 1).getId());
+    }
+    ExecutorService pool = Executors.newFixedThreadPool(4);
+    CountDownLatch start = new CountDownLatch(1);
+    CountDownLatch done = new CountDownLatch(2);
+    AtomicInteger wrongStatus = new AtomicInteger();
+    List<Future<?>> futures = new ArrayList<>();
+    for (int t = 0; t < 2; t++) {
+      final long seed = t;
+      futures.add(pool.submit(() -> {
+        Random rnd = new Random(seed);
+        start.await();
+        try {
+          for (int b = 0; b < BOOKINGS_PER_THREAD; b++) {
+            int startDay = controller.getCurrentDay() + rnd.nextInt(4);
+            try {
+              controller.createContract(memberIds.get(rnd.nextInt(memberIds.size())),
+                  itemIds.get(rnd.nextInt(itemIds.size())), startDay, startDay + 1 + rnd.nextInt(3));
+            } catch (IllegalArgumentException e) {
+              // Overlapping period, expected under contention.
+            }
+          }
+        } finally {
+          done.countDown();
+        }
+        return null;
+      }));
+    }
+    futures.add(pool.submit(() -> {
+      start.await();
+      while (done.getCount() > 0) {
+        controller.advanceDay(1);
+      }
+      return null;
+    }));
+    // Every contract a view sees has the status of the view's day.
+    futures.add(pool.submit(() -> {
+      start.await();
+      while (done.getCount() > 0) {
+        try (ReadView view = controller.openReadView()) {
+          int day = view.getCurrentDay();
+          for (ContractDto c : view.listContracts(null)) {
+            ContractStatus expected = day < c.startDay ? ContractStatus.SCHEDULED
+                : day < c.endDay ? ContractStatus.ACTIVE : ContractStatus.COMPLEATED;
+            if (c.status != expected) {
+              wrongStatus.incrementAndGet();
+            }
+          }
+        }
+      }
+      return null;
+    }));
+    start.countDown();
+    for (Future<?> f : futures) {
+      f.get();
+    }
+    pool.shutdown();
+
+    assertTrue(controller.getCurrentDay() > 0);
+    assertEquals(0, wrongStatus.get());
+  }
+
+  private void runBookings(boolean transfer) throws Exception {
+    ControllerManager controller = ControllerManager.createEmpty();
+    List<String> memberIds = new ArrayList<>();
+    List<String> itemIds = new ArrayList<>();
+    for (int m = 0; m < MEMBERS; m++) {
+      Member member = controller.createMember("Member " + m, "m" + m + "@example.com", "07" + m);
+      controller.setCredits(member.getMemberId(), 5000);
+      memberIds.add(member.getMemberId());
+      for (int i = 0; i < ITEMS_PER_MEMBER; i++) {
+        itemIds.add(controller.createItem(member.getMemberId(), ItemCatagory.Tool, "Tool " + m + "-" + i,
+            "Stress test item", 1 + i).getId());
+      }
+    }
+    int creditsBefore = totalCredits(controller);
+
+    ExecutorService pool = Executors.newFixedThreadPool(THREADS + 2);
+    CountDownLatch start = new CountDownLatch(1);
+    CountDownLatch done = new CountDownLatch(THREADS);
+    AtomicInteger booked = new AtomicInteger();
+    AtomicInteger tornReads = new AtomicInteger();
+    List<Future<?>> futures = new ArrayList<>();
+    for (int t = 0; t < THREADS; t++) {
+      final long seed = t;
+      futures.add(pool.submit(() -> {
+        Random rnd = new Random(seed);
+        start.await();
+        try {
+          for (int b = 0; b < BOOKINGS_PER_THREAD; b++) {
+            String borrower = memberIds.get(rnd.nextInt(memberIds.size()));
+            String item = itemIds.get(rnd.nextInt(itemIds.size()));
+            int startDay = rnd.nextInt(2000);
+            try {
+              controller.createContract(borrower, item, startDay, startDay + 1 + rnd.nextInt(5));
+              booked.incrementAndGet();
+            } catch (IllegalArgumentException e) {
+              // Overlapping period or insufficient credits, expected under contention.
+            }
+          }
+        } finally {
+          done.countDown();
+        }
+        return null;
+      }));
+    }
+    // Every read view sees either all of a booking or none of it.
+    futures.add(pool.submit(() -> {
+      start.await();
+      while (done.getCount() > 0) {
+        try (ReadView view = controller.openReadView()) {
+          if (view.listMembers(null).stream().mapToInt(MemberDto::getCredits).sum() != creditsBefore) {
+            tornReads.incrementAndGet();
+          }
+        }
+      }
+      return null;
+    }));
+    if (transfer) {
+      futures.add(pool.submit(() -> {
+        Random rnd = new Random(-1);
+        start.await();
+        for (int n = 0; n < BOOKINGS_PER_THREAD; n++) {
+          controller.transferItem(itemIds.get(rnd.nextInt(itemIds.size())),
+              memberIds.get(rnd.nextInt(memberIds.size())));
+        }
+        return null;
+      }));
+    }
+    start.countDown();
+    for (Future<?> f : futures) {
+      f.get();
+    }
+    pool.shutdown();
+    assertTrue(pool.awaitTermination(10, TimeUnit.SECONDS));
+
+    assertTrue(booked.get() > 0);
+    assertEquals(0, tornReads.get());
+    assertEquals(creditsBefore, totalCredits(controller));
+    assertTrue(controller.reconcileCredits().isEmpty());
+    // The striped ledger still hands out one sequence without gaps.
+    List<CreditEntry> entries = controller.getCreditEntries(0, Integer.MAX_VALUE);
+    for (int i = 0; i < entries.size(); i++) {
+      assertEquals(i, entries.get(i).getSequence());
+    }
+    assertEquals(booked.get(), controller.listContracts().size());
+    assertEquals(booked.get(), Arrays.stream(ContractStatus.values()).mapToInt(controller::countContracts).sum());
+    assertTrue(controller.listMembers().stream().allMatch(m -> m.getCredits() >= 0));
+    for (String itemId : itemIds) {
+      String owner = controller.getItemDtoById(itemId).getOwner().getMemberId();
+      for (String memberId : memberIds) {
+        assertEquals(memberId.equals(owner), controller.getOwnedItemsForMember(memberId).stream()
+            .anyMatch(i -> i.getId().equals(itemId)));
+      }
+      List<ContractDto> contracts = new ArrayList<>(controller.getContractsForItem(itemId));
+      contracts.sort(Comparator.comparingInt(c -> c.startDay));
+      for (int i = 1; i < contracts.size(); i++) {
+        assertTrue(contracts.get(i - 1).endDay <= contracts.get(i).startDay, "Overlapping contracts");
+      }
+    }
+  }
+}
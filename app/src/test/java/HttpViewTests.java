@@ -0,0 +1,106 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import controller.ControllerManager;
+import controller.dto.MemberDto;
+import model.ItemCatagory;
+import model.Member;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import view.HttpView;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+
+public class HttpViewTests {
+
+  private ControllerManager controller;
+  private HttpView server;
+  private HttpClient client;
+
+  @BeforeEach
+  public void setup() throws IOException {
+    controller = ControllerManager.createEmpty();
+    server = new HttpView(controller, 0);
+    server.start();
+    client = HttpClient.newHttpClient();
+  }
+
+  @AfterEach
+  public void tearDown() {
+    server.stop();
+  }
+
+  private HttpResponse<String> send(String method, String path, String body) throws Exception {
+    HttpRequest.BodyPublisher publisher = body == null
+        ? HttpRequest.BodyPublishers.noBody() : HttpRequest.BodyPublishers.ofString(body);
+    HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + server.getPort() + path))
+        .method(method, publisher).build();
+    return client.send(request, HttpResponse.BodyHandlers.ofString());
+  }
+
+  @Test
+  public void testCreateAndReadMember() throws Exception {
+    HttpResponse<String> created = send("POST", "/members",
+        "{\"name\": \"Alice \\\"A\\\"\", \"email\": \"alice@example.com\", \"phone\": \"0701\"}");
+    assertEquals(201, created.statusCode());
+    MemberDto alice = controller.listMembers().iterator().next();
+    assertEquals("Alice \"A\"", alice.getName());
+    assertTrue(created.body().contains("\"name\":\"Alice \\\"A\\\"\""), created.body());
+
+    HttpResponse<String> read = send("GET", "/members/" + alice.getMemberId(), null);
+    assertEquals(200, read.statusCode());
+    assertEquals(created.body(), read.body());
+
+    HttpResponse<String> page = send("GET", "/members?limit=10", null);
+    assertTrue(page.body().startsWith("{\"items\":[{\"id\":\"" + alice.getMemberId()), page.body());
+    assertTrue(page.body().endsWith("\"nextCursor\":null}"), page.body());
+  }
+
+  @Test
+  public void testBookingOverHttp() throws Exception {
+    Member lender = controller.createMember("Lender", "lender@example.com", "0701");
+    Member borrower = controller.createMember("Borrower", "borrower@example.com", "0702");
+    controller.setCredits(borrower.getMemberId(), 100);
+    String itemId = controller.createItem(lender.getMemberId(), ItemCatagory.Tool, "Drill", "Loud", 10).getId();
+
+    HttpResponse<String> booked = send("POST", "/contracts", "{\"borrowerId\":\"" + borrower.getMemberId()
+        + "\",\"itemId\":\"" + itemId + "\",\"startDay\":1,\"endDay\":3}");
+    assertEquals(201, booked.statusCode(), booked.body());
+    assertEquals(80, controller.getMemberDtoById(borrower.getMemberId()).getCredits());
+
+    HttpResponse<String> contracts = send("GET", "/items/" + itemId + "/contracts", null);
+    assertTrue(contracts.body().contains("\"borrowerName\":\"Borrower\""), contracts.body());
+    assertEquals("{\"count\":1}", send("GET", "/contracts/count?status=scheduled", null).body());
+
+    HttpResponse<String> taken = send("POST", "/contracts", "{\"borrowerId\":\"" + borrower.getMemberId()
+        + "\",\"itemId\":\"" + itemId + "\",\"startDay\":2,\"endDay\":2}");
+    assertEquals(409, taken.statusCode(), taken.body());
+  }
+
+  @Test
+  public void testErrorStatusCodes() throws Exception {
+    Member owner = controller.createMember("Owner", "owner@example.com", "0701");
+    controller.createItem(owner.getMemberId(), ItemCatagory.Tool, "Saw", "Sharp", 5);
+
+    assertEquals(404, send("GET", "/members/nobody", null).statusCode());
+    assertEquals(404, send("GET", "/nothing/here", null).statusCode());
+    assertEquals(400, send("POST", "/members", "{\"name\": \"No email\"}").statusCode());
+    assertEquals(400, send("POST", "/members", "not json").statusCode());
+    assertEquals(400, send("PUT", "/members/" + owner.getMemberId() + "/credits", "{\"credits\": \"many\"}")
+        .statusCode());
+    assertEquals(409, send("DELETE", "/members/" + owner.getMemberId(), null).statusCode());
+    assertEquals(409, send("POST", "/members",
+        "{\"name\": \"Copy\", \"email\": \"owner@example.com\", \"phone\": \"0709\"}").statusCode());
+    assertEquals(404, send("GET", "/items/nothing", null).statusCode());
+    assertNotNull(controller.getMemberDtoById(owner.getMemberId()));
+  }
+
+  @Test
+  public void testListensOnLoopbackByDefault() {
+    assertTrue(server.getAddress().getAddress().isLoopbackAddress());
+  }
+}
@@ -1,13 +1,20 @@
 import static org.junit.jupiter.api.Assertions.*;
 
 import controller.ControllerManager;
+import controller.ReadView;
 import controller.dto.*;
 import model.Item;
+import model.Member;
+import model.ContractStatus;
 import model.ItemCatagory;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.util.ArrayList;
+import java.util.EnumMap;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
 
 public class LendingSystemTests {
 
@@ -59,6 +66,16 @@ public class LendingSystemTests {
     assertEquals("allan@enigma.com", newM.getEmail());
   }
 
+  // 1.1b Id formats
+  @Test
+  public void testGeneratedIdFormats() {
+    assertTrue(m1.getMemberId().matches("[A-Z0-9]{6}"));
+    assertTrue(i1.getId().matches("[0-9]{8}"));
+    assertNotEquals(i1.getId(), i2.getId());
+    ContractDto c = controller.createContractDtoAndGeDto(m2.getMemberId(), i2.getId(), 1, 4);
+    assertTrue(c.id.matches("[A-Z0-9]{6}"));
+  }
+
   // 1.2 Duplicate Email/Phone
   @Test
   public void testDuplicateEmailAndPhone() {
@@ -124,6 +141,16 @@ public class LendingSystemTests {
         () -> controller.createContract(m2.getMemberId(), i2.getId(), 6, 6));
   }
 
+  // 3.7 Adjacent periods
+  @Test
+  public void testContractAdjacentPeriods() {
+    assertNotNull(controller.createContract(m2.getMemberId(), i2.getId(), 7, 9));
+    assertNotNull(controller.createContract(m2.getMemberId(), i2.getId(), 3, 5));
+    assertThrows(IllegalArgumentException.class,
+        () -> controller.createContract(m2.getMemberId(), i2.getId(), 2, 10));
+    assertEquals(3, controller.getContractsForItem(i2.getId()).size());
+  }
+
   // 4.1 Advance Time
   @Test
   public void testAdvanceTime() {
@@ -131,4 +158,419 @@ public class LendingSystemTests {
     MemberDto m3Updated = controller.getMemberDtoById(m3.getMemberId());
     assertEquals(70, m3Updated.getCredits());
   }
+
+  // 4.2 Expired contracts are cleaned up
+  @Test
+  public void testAdvanceTimeRemovesExpiredContracts() {
+    controller.advanceDay(7);
+    assertEquals(1, controller.listContracts().size());
+    controller.advanceDay(1);
+    assertTrue(controller.listContracts().isEmpty());
+    assertTrue(controller.getContractsForItem(i2.getId()).isEmpty());
+  }
+
+  // Listings can be paged and streamed
+  @Test
+  public void testPagedListings() {
+    for (int i = 0; i < 5; i++) {
+      controller.createMember("Extra " + i, "extra" + i + "@example.com", "07100000" + i);
+    }
+    List<String> all = controller.streamMembers().map(MemberDto::getMemberId).collect(Collectors.toList());
+    assertEquals(controller.listMembers().size(), all.size());
+
+    List<String> paged = new ArrayList<>();
+    Page<MemberDto> page = controller.listMembers(null, 3);
+    paged.addAll(page.getItems().stream().map(MemberDto::getMemberId).collect(Collectors.toList()));
+    while (page.hasNext()) {
+      assertEquals(3, page.getItems().size());
+      page = controller.listMembers(page.getNextCursor(), 3);
+      paged.addAll(page.getItems().stream().map(MemberDto::getMemberId).collect(Collectors.toList()));
+    }
+    assertEquals(all, paged);
+    assertFalse(controller.listItems(null, 100).hasNext());
+    assertThrows(IllegalArgumentException.class, () -> controller.listContracts(null, 0));
+  }
+
+  // Unchanged entities keep their DTO
+  @Test
+  public void testDtoReusedUntilChanged() {
+    assertSame(controller.getMemberDtoById(m1.getMemberId()), controller.getMemberDtoById(m1.getMemberId()));
+    ItemDto before = controller.getItemDtoById(i1.getId());
+    assertSame(before, controller.getItemDtoById(i1.getId()));
+
+    controller.setCredits(m1.getMemberId(), 123);
+    ItemDto afterOwnerChange = controller.getItemDtoById(i1.getId());
+    assertNotSame(before, afterOwnerChange);
+    assertEquals(123, afterOwnerChange.getOwner().getCredits());
+
+    controller.updateItemInfo(i1.getId(), "Renamed", null, null);
+    assertEquals("Renamed", controller.getItemDtoById(i1.getId()).getName());
+  }
+
+  // A read view keeps showing the state it was opened on
+  @Test
+  public void testReadViewIsolation() {
+    ReadView view = controller.openReadView();
+    int contracts = view.listContracts(null).size();
+    int dayBefore = view.getCurrentDay();
+
+    ContractDto booked = controller.createContractDtoAndGeDto(m2.getMemberId(), i2.getId(), 20, 22);
+    controller.updateMember(m2.getMemberId(), "Robert", m2.getEmail(), m2.getPhone());
+    controller.transferItem(i1.getId(), m3.getMemberId());
+    controller.deleteItem(i2.getId());
+    controller.advanceDay(3);
+
+    assertEquals(dayBefore, view.getCurrentDay());
+    assertEquals(contracts, view.listContracts(null).size());
+    assertNull(view.getContract(booked.id));
+    assertEquals("Bob", view.getMember(m2.getMemberId()).getName());
+    assertEquals(100, view.getMember(m2.getMemberId()).getCredits());
+    assertEquals(m1.getMemberId(), view.getItem(i1.getId()).getOwner().getMemberId());
+    assertEquals(2, view.getOwnedItems(m1.getMemberId()).size());
+    assertEquals(1, view.getContractsForItem(i2.getId()).size());
+    view.close();
+
+    try (ReadView now = controller.openReadView()) {
+      assertTrue(now.getVersion() > view.getVersion());
+      assertEquals(dayBefore + 3, now.getCurrentDay());
+      assertEquals("Robert", now.getMember(m2.getMemberId()).getName());
+      assertEquals(80, now.getMember(m2.getMemberId()).getCredits());
+      assertNull(now.getItem(i2.getId()));
+      assertTrue(now.getOwnedItems(m1.getMemberId()).isEmpty());
+      assertTrue(now.getOwnedItems(m3.getMemberId()).stream().anyMatch(i -> i.getId().equals(i1.getId())));
+      assertEquals(m3.getMemberId(), now.getItem(i1.getId()).getOwner().getMemberId());
+      assertTrue(now.getContractsForItem(i2.getId()).isEmpty());
+    }
+  }
+
+  // Contracts by borrower and lender
+  @Test
+  public void testContractsForBorrowerAndLender() {
+    int lent = controller.getContractsForLender(m1.getMemberId()).size();
+    ContractDto c = controller.createContractDtoAndGeDto(m2.getMemberId(), i2.getId(), 20, 22);
+
+    assertTrue(controller.getContractsForBorrower(m2.getMemberId()).stream().anyMatch(x -> x.id.equals(c.id)));
+    assertEquals(lent + 1, controller.getContractsForLender(m1.getMemberId()).size());
+    assertTrue(controller.getContractsForLender(m2.getMemberId()).stream().noneMatch(x -> x.id.equals(c.id)));
+
+    controller.advanceDay(23);
+    assertTrue(controller.getContractsForBorrower(m2.getMemberId()).isEmpty());
+    assertTrue(controller.getContractsForLender(m1.getMemberId()).isEmpty());
+  }
+
+  // Items can change owner
+  @Test
+  public void testTransferItem() {
+    controller.transferItem(i1.getId(), m2.getMemberId());
+    assertEquals(1, controller.getOwnedItemsForMember(m1.getMemberId()).size());
+    assertTrue(controller.getOwnedItemsForMember(m2.getMemberId()).stream().anyMatch(i -> i.getId().equals(i1.getId())));
+    assertEquals(m2.getMemberId(), controller.getItemDtoById(i1.getId()).getOwner().getMemberId());
+
+    // The new owner is paid for later bookings.
+    int m2Credits = controller.getMemberDtoById(m2.getMemberId()).getCredits();
+    controller.createContract(m3.getMemberId(), i1.getId(), 30, 31);
+    assertEquals(m2Credits + 50, controller.getMemberDtoById(m2.getMemberId()).getCredits());
+
+    assertThrows(IllegalStateException.class, () -> controller.deleteMember(m2.getMemberId()));
+    assertNotNull(controller.getMemberDtoById(m2.getMemberId()));
+    assertThrows(IllegalArgumentException.class, () -> controller.transferItem(i1.getId(), "missing"));
+  }
+
+  // Search free items by category, price and period
+  @Test
+  public void testSearchAvailableItems() {
+    for (int cost = 1; cost <= 6; cost++) {
+      controller.createItem(m2.getMemberId(), ItemCatagory.Tool, "Tool " + cost, "For search", cost);
+    }
+    controller.createItem(m2.getMemberId(), ItemCatagory.Toy, "Toy", "Other category", 1);
+    String booked = controller.listItems().stream().filter(i -> i.getName().equals("Tool 2")).findFirst()
+        .orElseThrow().getId();
+    controller.createContract(m3.getMemberId(), booked, 10, 14);
+
+    List<String> names = new ArrayList<>();
+    Page<ItemDto> page = controller.searchAvailableItems(ItemCatagory.Tool, 0, 5, 12, 13, null, 2);
+    names.addAll(page.getItems().stream().map(ItemDto::getName).collect(Collectors.toList()));
+    while (page.hasNext()) {
+      page = controller.searchAvailableItems(ItemCatagory.Tool, 0, 5, 12, 13, page.getNextCursor(), 2);
+      names.addAll(page.getItems().stream().map(ItemDto::getName).collect(Collectors.toList()));
+    }
+    assertEquals(List.of("Tool 1", "Tool 3", "Tool 4", "Tool 5"), names);
+
+    controller.updateItemInfo(booked, null, null, 50);
+    assertTrue(controller.searchAvailableItems(ItemCatagory.Tool, 40, 60, 20, 21, null, 10).getItems().stream()
+        .anyMatch(i -> i.getId().equals(booked)));
+    controller.deleteItem(booked);
+    assertTrue(controller.searchAvailableItems(ItemCatagory.Tool, 40, 60, 20, 21, null, 10).getItems().isEmpty());
+  }
+
+  // Items are found by id and by category through ItemManager's indexes
+  @Test
+  public void testLookupItemsByIdAndCategory() {
+    Map<ItemCatagory, List<String>> byCategory = new EnumMap<>(ItemCatagory.class);
+    for (ItemCatagory category : ItemCatagory.values()) {
+      for (int n = 0; n < 3; n++) {
+        String id = controller.createItem(m2.getMemberId(), category, category + " " + n, "Indexed", 900 + n).getId();
+        byCategory.computeIfAbsent(category, c -> new ArrayList<>()).add(id);
+      }
+    }
+    for (ItemCatagory category : ItemCatagory.values()) {
+      for (String id : byCategory.get(category)) {
+        assertEquals(category, controller.getItemDtoById(id).getCategory());
+      }
+      assertEquals(byCategory.get(category), controller.searchAvailableItems(category, 900, 999, 0, 1, null, 10)
+          .getItems().stream().map(ItemDto::getId).toList());
+    }
+
+    String gone = byCategory.get(ItemCatagory.Tool).get(1);
+    controller.deleteItem(gone);
+    assertNull(controller.getItemDtoById(gone));
+    assertEquals(List.of(byCategory.get(ItemCatagory.Tool).get(0), byCategory.get(ItemCatagory.Tool).get(2)),
+        controller.searchAvailableItems(ItemCatagory.Tool, 900, 999, 0, 1, null, 10).getItems().stream()
+            .map(ItemDto::getId).toList());
+  }
+
+  // Every change made through a Member.Credits reaches the ledger it was built with
+  @Test
+  public void testCreditsRecordEveryChangeInTheirLedger() {
+    List<String> entries = new ArrayList<>();
+    Member.Ledger<String> ledger = new Member.Ledger<>() {
+      @Override
+      public void append(String memberId, String kind, int amount) {
+        entries.add(memberId + " " + kind + " " + amount);
+      }
+
+      @Override
+      public void transfer(String fromId, String toId, int amount) {
+        entries.add(fromId + " -> " + toId + " " + amount);
+      }
+    };
+    Member.Credits<String> credits = new Member.Credits<>(ledger);
+    // Any number of them can exist, each with its own ledger.
+    Member.Credits<String> other = new Member.Credits<>(ledger);
+    Member a = new Member("A", "Ann", "ann@example.com", "01", 0, 10);
+    Member b = new Member("B", "Ben", "ben@example.com", "02", 0, 0);
+
+    credits.add(a, "bonus", 5);
+    credits.deduce(a, "paid", 3);
+    other.set(b, "set", 20);
+    credits.transfer(a, b, 12);
+    assertThrows(IllegalStateException.class, () -> credits.deduce(a, "paid", 1));
+
+    assertEquals(0, a.getCredits());
+    assertEquals(32, b.getCredits());
+    assertEquals(List.of("A bonus 5", "A paid -3", "B set 20", "A -> B 12"), entries);
+  }
+
+  // Statuses move with time
+  @Test
+  public void testContractStatusBuckets() {
+    int scheduled = controller.countContracts(ContractStatus.SCHEDULED);
+    ContractDto c = controller.createContractDtoAndGeDto(m2.getMemberId(), i2.getId(), 20, 22);
+    assertEquals(ContractStatus.SCHEDULED, c.status);
+    assertEquals(scheduled + 1, controller.countContracts(ContractStatus.SCHEDULED));
+
+    controller.advanceDay(20);
+    assertEquals(1, controller.countContracts(ContractStatus.ACTIVE));
+    assertEquals(c.id, controller.listContracts(ContractStatus.ACTIVE, null, 10).getItems().get(0).id);
+    assertEquals(0, controller.countContracts(ContractStatus.SCHEDULED));
+
+    controller.advanceDay(2);
+    assertEquals(ContractStatus.COMPLEATED, controller.getContractsForItem(i2.getId()).iterator().next().status);
+    assertEquals(1, controller.countContracts(ContractStatus.COMPLEATED));
+    assertEquals(0, controller.countContracts(ContractStatus.ACTIVE));
+
+    controller.advanceDay(1);
+    for (ContractStatus s : ContractStatus.values()) {
+      assertEquals(0, controller.countContracts(s));
+      assertTrue(controller.listContracts(s, null, 10).getItems().isEmpty());
+    }
+  }
+
+  // Verbose member listing in one pass
+  @Test
+  public void testMemberReportMatchesPerMemberLookups() {
+    controller.transferItem(i1.getId(), m3.getMemberId());
+    controller.deleteMember(m2.getMemberId());
+
+    List<MemberReport> report = controller.getMemberReport();
+    assertEquals(controller.listMembers().stream().map(MemberDto::getMemberId).collect(Collectors.toList()),
+        report.stream().map(r -> r.getMember().getMemberId()).collect(Collectors.toList()));
+    for (MemberReport r : report) {
+      String memberId = r.getMember().getMemberId();
+      assertEquals(controller.getOwnedItemsForMember(memberId).stream().map(ItemDto::getId).collect(Collectors.toList()),
+          r.getItems().stream().map(o -> o.getItem().getId()).collect(Collectors.toList()));
+      for (MemberReport.OwnedItem owned : r.getItems()) {
+        assertSame(r.getMember(), owned.getItem().getOwner());
+        assertEquals(controller.getContractsForItem(owned.getItem().getId()).stream().map(c -> c.id)
+            .collect(Collectors.toList()), owned.getContracts().stream().map(c -> c.id).collect(Collectors.toList()));
+      }
+    }
+    MemberReport alice = report.stream().filter(r -> r.getMember().getName().equals("Alice")).findFirst().orElseThrow();
+    assertEquals(List.of("I2"), alice.getItems().stream().map(o -> o.getItem().getName()).collect(Collectors.toList()));
+    assertEquals(1, alice.getItems().get(0).getContracts().size());
+  }
+
+  // Credit ledger
+  @Test
+  public void testCreditLedgerAccountsForEveryMovement() {
+    List<CreditEntry> alice = controller.getCreditStatement(m1.getMemberId(), 100);
+    assertEquals(m1.getCredits(), alice.get(0).getBalance());
+    for (int i = 1; i < alice.size(); i++) {
+      assertEquals(alice.get(i).getBalance(), alice.get(i - 1).getBalance() - alice.get(i - 1).getAmount());
+    }
+    assertEquals(alice.get(alice.size() - 1).getAmount(), alice.get(alice.size() - 1).getBalance());
+
+    controller.createContract(m2.getMemberId(), i1.getId(), 20, 21);
+    CreditEntry paid = controller.getCreditStatement(m2.getMemberId(), 1).get(0);
+    CreditEntry received = controller.getCreditStatement(m1.getMemberId(), 1).get(0);
+    assertEquals(CreditEntry.Kind.PAID, paid.getKind());
+    assertEquals(-50, paid.getAmount());
+    assertEquals(50, paid.getBalance());
+    assertEquals(CreditEntry.Kind.RECEIVED, received.getKind());
+    assertEquals(paid.getSequence() + 1, received.getSequence());
+    assertEquals(List.of(paid.getMemberId(), received.getMemberId()), controller.getCreditEntries(paid.getSequence(), 5)
+        .stream().map(CreditEntry::getMemberId).collect(Collectors.toList()));
+    assertTrue(controller.reconcileCredits().isEmpty());
+  }
+
+  // Contracts keep borrower and item as booked, items keep their periods sorted
+  @Test
+  public void testContractsKeepPartiesAsBookedAndFreePeriodsOnExpiry() {
+    ContractDto c = controller.createContractDtoAndGeDto(m2.getMemberId(), i1.getId(), 30, 31);
+    controller.updateMember(m2.getMemberId(), "Robert", m2.getEmail(), m2.getPhone());
+    controller.updateItemInfo(i1.getId(), "Drill", null, null);
+    ContractDto listed = controller.getContractsForItem(i1.getId()).stream()
+        .filter(d -> d.id.equals(c.id)).findFirst().orElseThrow();
+    assertEquals("Bob", listed.borrowerName);
+    assertEquals("I1", listed.itemName);
+
+    controller.setCredits(m3.getMemberId(), 10_000);
+    for (int day : new int[] {40, 20, 35, 50}) {
+      controller.createContract(m3.getMemberId(), i1.getId(), day, day + 2);
+    }
+    assertThrows(IllegalArgumentException.class, () -> controller.createContract(m3.getMemberId(), i1.getId(), 36, 41));
+    controller.createContract(m3.getMemberId(), i1.getId(), 37, 40);
+    controller.advanceDay(36);
+    // 20-22 and 30-31 expired, 35-37 is active and the rest stays booked.
+    assertEquals(4, controller.getItemById(i1.getId()).getContracts().size());
+    assertThrows(IllegalArgumentException.class, () -> controller.createContract(m3.getMemberId(), i1.getId(), 39, 41));
+    controller.createContract(m3.getMemberId(), i1.getId(), 42, 50);
+  }
+
+  @Test
+  public void testSearchItemsByWords() {
+    String bob = m2.getMemberId();
+    String saw = controller.createItem(bob, ItemCatagory.Tool, "Circular saw", "Cuts wood", 5).getId();
+    String blade = controller.createItem(bob, ItemCatagory.Tool, "Spare blade", "For the circular saw", 2).getId();
+    String bike = controller.createItem(bob, ItemCatagory.Sport, "Saw-tooth bike", "Mountain bike", 8).getId();
+
+    List<String> ids = controller.searchItems("SAW", null, 10).stream().map(ItemDto::getId).toList();
+    // Words in the name rank above words in the description, ties in creation order.
+    assertEquals(List.of(saw, bike, blade), ids);
+    assertEquals(List.of(bike), controller.searchItems("saw", ItemCatagory.Sport, 10).stream()
+        .map(ItemDto::getId).toList());
+    assertEquals(List.of(saw), controller.searchItems("circ saw", null, 1).stream().map(ItemDto::getId).toList());
+    assertEquals(List.of(blade), controller.searchItems("spa circular", null, 10).stream()
+        .map(ItemDto::getId).toList());
+
+    controller.updateItemInfo(saw, "Jigsaw", null, null);
+    controller.deleteItem(bike);
+    assertEquals(List.of(blade), controller.searchItems("saw", null, 10).stream().map(ItemDto::getId).toList());
+    assertEquals(List.of(saw), controller.searchItems("jig", null, 10).stream().map(ItemDto::getId).toList());
+    assertTrue(controller.searchItems("mountain", null, 10).isEmpty());
+    assertThrows(IllegalArgumentException.class, () -> controller.searchItems(" - ", null, 10));
+  }
+
+  @Test
+  public void testShortSearchWordsMatchWholeWords() {
+    String bob = m2.getMemberId();
+    String tv = controller.createItem(bob, ItemCatagory.Tool, "TV stand", "Oak", 5).getId();
+    String tvs = controller.createItem(bob, ItemCatagory.Tool, "Tvstand", "Pine", 5).getId();
+
+    assertEquals(List.of(tv), controller.searchItems("tv", null, 10).stream().map(ItemDto::getId).toList());
+    assertEquals(List.of(tv), controller.searchItems("tv stand", null, 10).stream().map(ItemDto::getId).toList());
+    assertEquals(List.of(tvs), controller.searchItems("tvs", null, 10).stream().map(ItemDto::getId).toList());
+  }
+
+  @Test
+  public void testSearchAfterMostItemsAreDeleted() {
+    String bob = m2.getMemberId();
+    List<String> kept = new ArrayList<>();
+    for (int i = 0; i < 1500; i++) {
+      String id = controller.createItem(bob, ItemCatagory.Tool, "Mallet " + i, "Heavy", 5).getId();
+      if (i % 3 == 0) {
+        kept.add(id);
+      } else {
+        controller.deleteItem(id);
+      }
+    }
+    String last = controller.createItem(bob, ItemCatagory.Tool, "Mallet drill", "Heavy", 5).getId();
+    kept.add(last);
+
+    List<String> ids = controller.searchItems("mallet", ItemCatagory.Tool, 2000).stream().map(ItemDto::getId).toList();
+    // Ties stay in creation order across the rebuild.
+    assertEquals(kept, ids);
+    assertEquals(List.of(last), controller.searchItems("mallet dri", null, 10).stream().map(ItemDto::getId).toList());
+  }
+
+  @Test
+  public void testFindMembersByPrefix() {
+    String ann = controller.createMember("Anna Berg", "Anna@Example.com", "0801234").getMemberId();
+    String andy = controller.createMember("andy Holm", "andy@example.org", "0809999").getMemberId();
+    controller.createMember("Bertil", "bertil@example.com", "0311234");
+
+    assertEquals(List.of(andy, ann), controller.findMembersByName("AN", 10).stream()
+        .map(MemberDto::getMemberId).toList());
+    assertEquals(1, controller.findMembersByName("an", 1).size());
+    assertEquals(m3.getMemberId(), controller.findMembersByName("moronica", 10).get(0).getMemberId());
+    assertEquals(List.of(ann), controller.findMembersByEmail("anna@", 10).stream()
+        .map(MemberDto::getMemberId).toList());
+    assertEquals(List.of(ann, andy), controller.findMembersByPhone("080", 10).stream()
+        .map(MemberDto::getMemberId).toList());
+
+    controller.updateMember(ann, "Bea Berg", "bea@example.com", "0311111");
+    controller.deleteMember(andy);
+    assertTrue(controller.findMembersByName("an", 10).isEmpty());
+    assertTrue(controller.findMembersByPhone("080", 10).isEmpty());
+    assertEquals(List.of(ann), controller.findMembersByEmail("be", 1).stream()
+        .map(MemberDto::getMemberId).toList());
+    assertThrows(IllegalArgumentException.class, () -> controller.findMembersByName("a", 0));
+  }
+
+  @Test
+  public void testReadViewsKeepTheContractStatusOfTheirDay() {
+    int today = controller.getCurrentDay();
+    String id = controller.createContract(m2.getMemberId(), i2.getId(), today + 1, today + 3).getContractId();
+    ReadView before = controller.openReadView();
+    controller.advanceDay(1);
+    try (ReadView active = controller.openReadView()) {
+      assertEquals(ContractStatus.SCHEDULED, before.getContract(id).status);
+      assertEquals(ContractStatus.ACTIVE, active.getContract(id).status);
+      controller.advanceDay(2);
+      assertEquals(ContractStatus.ACTIVE, active.getContract(id).status);
+      assertTrue(active.getContractsForItem(i2.getId()).stream()
+          .allMatch(c -> !c.id.equals(id) || c.status == ContractStatus.ACTIVE));
+    }
+    before.close();
+    try (ReadView ended = controller.openReadView()) {
+      assertEquals(ContractStatus.COMPLEATED, ended.getContract(id).status);
+    }
+  }
+
+  @Test
+  public void testHandedOutModelsAreCopies() {
+    model.Member member = controller.getMemberById(m1.getMemberId());
+    member.setName("Mallory");
+    Item item = controller.getItemById(i1.getId());
+    item.setCostPerDay(1);
+    int scheduled = controller.countContracts(ContractStatus.SCHEDULED);
+    int booked = controller.getItemById(i2.getId()).getContracts().size();
+    model.Contract contract = controller.createContract(m2.getMemberId(), i2.getId(), 1, 2);
+    contract.setStatus(ContractStatus.COMPLEATED);
+
+    assertEquals("Alice", controller.getMemberDtoById(m1.getMemberId()).getName());
+    assertEquals(50, controller.getItemDtoById(i1.getId()).getCostPerDay());
+    assertEquals(scheduled + 1, controller.countContracts(ContractStatus.SCHEDULED));
+    assertEquals(booked + 1, controller.getItemById(i2.getId()).getContracts().size());
+  }
 }
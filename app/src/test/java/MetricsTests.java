@@ -0,0 +1,111 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import controller.ControllerManager;
+import controller.Metrics;
+import controller.Operation;
+import controller.dto.OperationStats;
+import model.ContractStatus;
+import model.Item;
+import model.ItemCatagory;
+import model.Member;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+public class MetricsTests {
+
+  private ControllerManager controller;
+  private Metrics metrics;
+
+  @BeforeEach
+  public void setup() {
+    controller = ControllerManager.createEmpty();
+    metrics = controller.getMetrics();
+    metrics.setTimingInterval(1);
+  }
+
+  @Test
+  public void testCallsFailuresAndLatenciesAreRecorded() {
+    Member m = controller.createMember("Alice", "alice@example.com", "0701");
+    controller.createMember("Bob", "bob@example.com", "0702");
+    assertThrows(IllegalArgumentException.class, () -> controller.createMember("Eve", "alice@example.com", "0703"));
+    for (int i = 0; i < 5; i++) {
+      controller.getMemberById(m.getMemberId());
+    }
+
+    OperationStats created = metrics.getStats(Operation.CREATE_MEMBER);
+    assertEquals("createMember", created.getOperation());
+    assertEquals(3, created.getCalls());
+    assertEquals(1, created.getFailures());
+    assertEquals(3, created.getTimed());
+    assertTrue(created.getP50Nanos() > 0);
+    assertTrue(created.getP50Nanos() <= created.getP99Nanos());
+    assertTrue(created.getP99Nanos() <= created.getMaxNanos());
+    assertEquals(5, metrics.getStats(Operation.GET_MEMBER).getCalls());
+    assertEquals(0, metrics.getStats(Operation.ADVANCE_DAY).getCalls());
+
+    controller.streamMembers().count();
+    controller.streamItems().count();
+    controller.streamContracts().count();
+    controller.openReadView().close();
+    controller.listMembers();
+    assertEquals(1, metrics.getStats(Operation.STREAM_MEMBERS).getCalls());
+    assertEquals(1, metrics.getStats(Operation.STREAM_ITEMS).getCalls());
+    assertEquals(1, metrics.getStats(Operation.STREAM_CONTRACTS).getCalls());
+    // Listings open their view internally, only the explicit call counts.
+    assertEquals(1, metrics.getStats(Operation.OPEN_READ_VIEW).getCalls());
+  }
+
+  @Test
+  public void testOnlyEveryNthCallIsTimed() {
+    metrics.setTimingInterval(4);
+    for (int i = 0; i < 100; i++) {
+      controller.getCurrentDay();
+    }
+    OperationStats stats = metrics.getStats(Operation.GET_CURRENT_DAY);
+    assertEquals(100, stats.getCalls());
+    assertTrue(stats.getTimed() >= 25 && stats.getTimed() < 100, "timed " + stats.getTimed());
+    assertThrows(IllegalArgumentException.class, () -> metrics.setTimingInterval(3));
+  }
+
+  @Test
+  public void testGaugesAndReport() {
+    Member owner = controller.createMember("Alice", "alice@example.com", "0701");
+    Member borrower = controller.createMember("Bob", "bob@example.com", "0702");
+    Item drill = controller.createItem(owner.getMemberId(), ItemCatagory.Tool, "Drill", "Power drill", 10);
+    Item saw = controller.createItem(owner.getMemberId(), ItemCatagory.Tool, "Saw", "Hand saw", 5);
+    controller.deleteItem(saw.getId());
+    controller.setCredits(borrower.getMemberId(), 500);
+    controller.createContract(borrower.getMemberId(), drill.getId(), 0, 2);
+    controller.createContract(borrower.getMemberId(), drill.getId(), 3, 4);
+
+    assertEquals(2, metrics.getMembers());
+    assertEquals(1, metrics.getItems());
+    assertEquals(2, metrics.getContracts());
+    assertEquals(1, metrics.getContracts(ContractStatus.ACTIVE));
+    assertEquals(1, metrics.getContracts(ContractStatus.SCHEDULED));
+
+    String report = metrics.report();
+    assertTrue(report.startsWith("Members 2, items 1, contracts 2"), report);
+    assertTrue(report.contains("createContract"), report);
+    assertFalse(report.contains("advanceDay"), report);
+  }
+
+  @Test
+  public void testBeansExposeOperationsAndGauges() throws Exception {
+    MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+    metrics.registerBeans();
+    try {
+      controller.createMember("Alice", "alice@example.com", "0701");
+      ObjectName created = new ObjectName("lending:type=Operation,name=createMember");
+      assertEquals(1L, server.getAttribute(created, "Calls"));
+      assertEquals(1, server.getAttribute(new ObjectName("lending:type=State"), "Members"));
+    } finally {
+      metrics.unregisterBeans();
+    }
+    assertFalse(server.isRegistered(new ObjectName("lending:type=State")));
+  }
+}
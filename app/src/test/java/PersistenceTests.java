@@ -0,0 +1,236 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import controller.BulkImporter;
+import controller.ControllerManager;
+import controller.FilePersistenceManager;
+import controller.dto.ContractDto;
+import controller.dto.ItemDto;
+import controller.dto.MemberDto;
+import model.Item;
+import model.ItemCatagory;
+import model.Member;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+public class PersistenceTests {
+
+  private Path dir;
+
+  @BeforeEach
+  public void setup() throws IOException {
+    dir = Files.createTempDirectory("lending");
+  }
+
+  @AfterEach
+  public void cleanup() throws IOException {
+    try (Stream<Path> files = Files.walk(dir)) {
+      for (Path p : files.sorted(Comparator.reverseOrder()).collect(Collectors.toList())) {
+        Files.deleteIfExists(p);
+      }
+    }
+  }
+
+  private ControllerManager reopen(int checkpointInterval) throws IOException {
+    ControllerManager controller = ControllerManager.createEmpty();
+    FilePersistenceManager storage = new FilePersistenceManager(controller, dir, checkpointInterval, false);
+    storage.loadSampleData();
+    storage.close();
+    return controller;
+  }
+
+  private String describe(ControllerManager controller) {
+    StringBuilder sb = new StringBuilder("day " + controller.getCurrentDay() + "\n");
+    controller.listMembers().stream().sorted(Comparator.comparing(MemberDto::getMemberId)).forEach(m ->
+        sb.append(m.getMemberId()).append(' ').append(m.getName()).append(' ').append(m.getEmail())
+            .append(' ').append(m.getCredits()).append('\n'));
+    controller.listItems().stream().sorted(Comparator.comparing(ItemDto::getId)).forEach(i ->
+        sb.append(i.getId()).append(' ').append(i.getName()).append(' ').append(i.getDescription())
+            .append(' ').append(i.getCostPerDay()).append(' ').append(i.getOwner().getMemberId()).append('\n'));
+    controller.listContracts().stream().sorted(Comparator.comparing((ContractDto c) -> c.id)).forEach(c ->
+        sb.append(c.id).append(' ').append(c.startDay).append(' ').append(c.endDay).append(' ')
+            .append(c.status).append('\n'));
+    return sb.toString();
+  }
+
+  private void makeChanges(ControllerManager controller) {
+    Member alice = controller.getMemberById(controller.listMembers().stream()
+        .filter(m -> m.getName().equals("Alice")).findFirst().orElseThrow().getMemberId());
+    Member carol = controller.createMember("Carol\tTab", "carol@example.com", "0704444444");
+    controller.setCredits(carol.getMemberId(), 300);
+    Item kayak = controller.createItem(alice.getMemberId(), ItemCatagory.Sport, "Kayak", "Two seats\nred", 15);
+    controller.createContract(carol.getMemberId(), kayak.getId(), 2, 6);
+    controller.updateItemInfo(kayak.getId(), null, "One seat", 20);
+    controller.updateMember(carol.getMemberId(), "Carol", "carol@example.org", "0704444444");
+    controller.advanceDay(3);
+    controller.transferItem(kayak.getId(), carol.getMemberId());
+    controller.createContract(alice.getMemberId(), kayak.getId(), 8, 9);
+    Item spare = controller.createItem(carol.getMemberId(), ItemCatagory.Other, "Spare", "Unused", 1);
+    controller.deleteItem(spare.getId());
+  }
+
+  @Test
+  public void testFirstStartLoadsSampleData() throws IOException {
+    ControllerManager restored = reopen(1000);
+    assertEquals(describe(ControllerManager.createWithHardCodedData()), describe(restored));
+  }
+
+  @Test
+  public void testJournalReplayRestoresState() throws IOException {
+    ControllerManager controller = ControllerManager.createEmpty();
+    try (FilePersistenceManager storage = new FilePersistenceManager(controller, dir, 1000, false)) {
+      storage.loadSampleData();
+      makeChanges(controller);
+    }
+    String before = describe(controller);
+
+    ControllerManager restored = reopen(1000);
+    assertEquals(before, describe(restored));
+    // Ids handed out after a restart must not collide with restored ones.
+    Member dave = restored.createMember("Dave", "dave@example.com", "0705555555");
+    assertEquals(5, restored.listMembers().size());
+    assertNotNull(dave.getMemberId());
+  }
+
+  @Test
+  public void testConcurrentChangesReplayInOrder() throws Exception {
+    assertConcurrentChangesRestored(100_000);
+  }
+
+  @Test
+  public void testCheckpointsDuringChangesRestoreState() throws Exception {
+    // Checkpoints run in the background every 50 changes, while bookings keep coming.
+    assertConcurrentChangesRestored(50);
+  }
+
+  private void assertConcurrentChangesRestored(int checkpointInterval) throws Exception {
+    ControllerManager controller = ControllerManager.createEmpty();
+    try (FilePersistenceManager storage = new FilePersistenceManager(controller, dir, checkpointInterval, false)) {
+      storage.open();
+      List<String> members = new ArrayList<>();
+      List<String> items = new ArrayList<>();
+      for (int m = 0; m < 8; m++) {
+        String id = controller.createMember("M" + m, "m" + m + "@example.com", "07" + m).getMemberId();
+        members.add(id);
+        for (int i = 0; i < 4; i++) {
+          items.add(controller.createItem(id, ItemCatagory.Tool, "T" + m + i, "", 1 + i).getId());
+        }
+      }
+      ExecutorService pool = Executors.newFixedThreadPool(3);
+      List<Future<?>> futures = new ArrayList<>();
+      for (int t = 0; t < 2; t++) {
+        final int seed = t;
+        futures.add(pool.submit(() -> {
+          Random rnd = new Random(seed);
+          for (int n = 0; n < 2000; n++) {
+            String borrower = members.get(rnd.nextInt(members.size()));
+            try {
+              if (n % 3 == 0) {
+                controller.setCredits(borrower, rnd.nextInt(500));
+              } else {
+                int start = rnd.nextInt(1000);
+                controller.createContract(borrower, items.get(rnd.nextInt(items.size())), start, start + 1);
+              }
+            } catch (IllegalArgumentException e) {
+              // Taken, deleted or not enough credits.
+            }
+          }
+          return null;
+        }));
+      }
+      futures.add(pool.submit(() -> {
+        for (int i = 0; i < items.size(); i += 3) {
+          controller.deleteItem(items.get(i));
+        }
+        return null;
+      }));
+      for (Future<?> f : futures) {
+        f.get();
+      }
+      pool.shutdown();
+    }
+    String before = describe(controller);
+    assertEquals(before, describe(reopen(checkpointInterval)));
+  }
+
+  @Test
+  public void testCheckpointTruncatesJournal() throws IOException {
+    ControllerManager controller = ControllerManager.createEmpty();
+    try (FilePersistenceManager storage = new FilePersistenceManager(controller, dir, 5, false)) {
+      storage.loadSampleData();
+      makeChanges(controller);
+      controller.advanceDay(1);
+    }
+    String before = describe(controller);
+
+    assertTrue(Files.exists(dir.resolve("snapshot.bin")));
+    try (Stream<Path> files = Files.list(dir)) {
+      List<String> journals = files.map(p -> p.getFileName().toString())
+          .filter(n -> n.startsWith("journal-")).collect(Collectors.toList());
+      assertEquals(1, journals.size());
+    }
+    assertEquals(before, describe(reopen(5)));
+  }
+
+  @Test
+  public void testSnapshotKeepsContractsOfDeletedBorrower() throws IOException {
+    ControllerManager controller = ControllerManager.createEmpty();
+    try (FilePersistenceManager storage = new FilePersistenceManager(controller, dir, 1000, false)) {
+      storage.loadSampleData();
+      makeChanges(controller);
+      Member erin = controller.createMember("Erin", "erin@example.com", "0706666666");
+      controller.setCredits(erin.getMemberId(), 50);
+      String i2 = controller.listItems().stream().filter(i -> i.getName().equals("I2")).findFirst()
+          .orElseThrow().getId();
+      controller.createContract(erin.getMemberId(), i2, 10, 12);
+      controller.deleteMember(erin.getMemberId());
+      storage.checkpoint();
+    }
+    String before = describe(controller);
+
+    ControllerManager restored = reopen(1000);
+    assertEquals(before, describe(restored));
+    assertTrue(restored.listContracts().stream().anyMatch(c -> c.borrowerName.equals("Erin")));
+  }
+
+  @Test
+  public void testTornRecordIsIgnored() throws IOException {
+    ControllerManager controller = ControllerManager.createEmpty();
+    try (FilePersistenceManager storage = new FilePersistenceManager(controller, dir, 1000, false)) {
+      storage.loadSampleData();
+    }
+    String before = describe(controller);
+    Files.writeString(dir.resolve("journal-0.log"), "MEMBER_CREATED\tHALF", java.nio.file.StandardOpenOption.APPEND);
+
+    assertEquals(before, describe(reopen(1000)));
+  }
+
+  @Test
+  public void testBulkImportIsJournaled() throws IOException {
+    ControllerManager controller = ControllerManager.createEmpty();
+    try (FilePersistenceManager storage = new FilePersistenceManager(controller, dir, 1000, false)) {
+      storage.loadSampleData();
+      new BulkImporter(controller, 2).importCsv(new StringReader(String.join("\n",
+          "member,c,Carol,carol@example.com,0704444444,40",
+          "item,k,c,Sport,Kayak,Red,15",
+          "contract,c,k,1,3")));
+    }
+    String before = describe(controller);
+
+    assertEquals(before, describe(reopen(1000)));
+  }
+}
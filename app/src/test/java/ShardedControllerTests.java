@@ -0,0 +1,165 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import controller.ShardedController;
+import controller.dto.ContractDto;
+import controller.dto.MemberDto;
+import model.Contract;
+import model.ItemCatagory;
+import model.Member;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class ShardedControllerTests {
+
+  private static final int SHARDS = 4;
+
+  private ShardedController sharded;
+  private List<Member> members;
+
+  @BeforeEach
+  public void setup() {
+    sharded = new ShardedController(SHARDS);
+    members = new ArrayList<>();
+    for (int m = 0; m < 2 * SHARDS; m++) {
+      Member member = sharded.createMember("Member " + m, "m" + m + "@example.com", "07" + m);
+      sharded.setCredits(member.getMemberId(), 1000);
+      members.add(member);
+    }
+  }
+
+  @AfterEach
+  public void tearDown() {
+    sharded.close();
+  }
+
+  private int totalCredits() {
+    return sharded.listMembers().stream().mapToInt(MemberDto::getCredits).sum();
+  }
+
+  // First member on another shard than the given one.
+  private Member onOtherShard(Member member) {
+    for (Member m : members) {
+      if (sharded.shardOfMember(m.getMemberId()) != sharded.shardOfMember(member.getMemberId())) {
+        return m;
+      }
+    }
+    throw new AssertionError("All members on one shard");
+  }
+
+  @Test
+  public void testMembersAndItemsSpreadOverShards() {
+    int[] perShard = new int[SHARDS];
+    for (Member m : members) {
+      perShard[sharded.shardOfMember(m.getMemberId())]++;
+      String itemId = sharded.createItem(m.getMemberId(), ItemCatagory.Tool, "Drill", "", 5).getId();
+      assertEquals(m.getMemberId(), sharded.getItemDtoById(itemId).getOwner().getMemberId());
+    }
+    for (int n : perShard) {
+      assertEquals(2, n);
+    }
+    assertEquals(members.size(), sharded.listMembers().size());
+    assertEquals(members.size(), sharded.listItems().size());
+    assertEquals(members.get(3).getName(), sharded.getMemberDtoById(members.get(3).getMemberId()).getName());
+    assertThrows(IllegalArgumentException.class,
+        () -> sharded.createMember("Copy", "m0@example.com", "0999"));
+    assertThrows(IllegalArgumentException.class, () -> sharded.getMemberById("not an id"));
+  }
+
+  @Test
+  public void testCrossShardBookingMovesCredits() {
+    Member lender = members.get(0);
+    Member borrower = onOtherShard(lender);
+    String itemId = sharded.createItem(lender.getMemberId(), ItemCatagory.Tool, "Drill", "", 10).getId();
+
+    Contract c = sharded.createContract(borrower.getMemberId(), itemId, 5, 8);
+    assertEquals(30, c.getTotalCost());
+    assertEquals(970, sharded.getMemberDtoById(borrower.getMemberId()).getCredits());
+    assertEquals(1000 + 100 + 30, sharded.getMemberDtoById(lender.getMemberId()).getCredits());
+    List<ContractDto> borrowed = sharded.getContractsForBorrower(borrower.getMemberId());
+    assertEquals(1, borrowed.size());
+    assertEquals(c.getContractId(), borrowed.get(0).id);
+    assertEquals(1, sharded.getContractsForLender(lender.getMemberId()).size());
+
+    // Overlapping period, then too expensive: nothing is charged or held.
+    assertThrows(IllegalArgumentException.class, () -> sharded.createContract(borrower.getMemberId(), itemId, 7, 9));
+    assertThrows(IllegalArgumentException.class,
+        () -> sharded.createContract(borrower.getMemberId(), itemId, 10, 200));
+    assertEquals(970, sharded.getMemberDtoById(borrower.getMemberId()).getCredits());
+    sharded.createContract(borrower.getMemberId(), itemId, 10, 12);
+    assertEquals(950, sharded.getMemberDtoById(borrower.getMemberId()).getCredits());
+
+    sharded.advanceDay(100);
+    assertEquals(100, sharded.getCurrentDay());
+    assertTrue(sharded.listContracts().isEmpty());
+  }
+
+  @Test
+  public void testAdvanceOneShardRefusesMovesNone() {
+    sharded.advanceDay(5);
+    assertThrows(IllegalArgumentException.class, () -> sharded.advanceDay(Integer.MAX_VALUE));
+    assertEquals(5, sharded.getCurrentDay());
+
+    // Every shard is still on day 5.
+    for (Member m : members) {
+      assertEquals(5, sharded.createItem(m.getMemberId(), ItemCatagory.Tool, "Tool", "", 1).getCreationDay());
+    }
+    sharded.advanceDay(1);
+    assertEquals(6, sharded.getCurrentDay());
+  }
+
+  @Test
+  public void testConcurrentBookingsConserveCreditsAcrossShards() throws Exception {
+    List<String> itemIds = new ArrayList<>();
+    for (Member m : members) {
+      itemIds.add(sharded.createItem(m.getMemberId(), ItemCatagory.Tool, "Tool", "", 3).getId());
+    }
+    int creditsBefore = totalCredits();
+
+    ExecutorService pool = Executors.newFixedThreadPool(4);
+    AtomicInteger booked = new AtomicInteger();
+    List<Future<?>> futures = new ArrayList<>();
+    for (int t = 0; t < 4; t++) {
+      final long seed = t;
+      futures.add(pool.submit(() -> {
+        Random rnd = new Random(seed);
+        for (int b = 0; b < 1000; b++) {
+          String borrower = members.get(rnd.nextInt(members.size())).getMemberId();
+          String item = itemIds.get(rnd.nextInt(itemIds.size()));
+          int startDay = rnd.nextInt(500);
+          try {
+            sharded.createContract(borrower, item, startDay, startDay + 1 + rnd.nextInt(5));
+            booked.incrementAndGet();
+          } catch (IllegalArgumentException e) {
+            // Overlapping period or insufficient credits, expected under contention.
+          }
+        }
+        return null;
+      }));
+    }
+    for (Future<?> f : futures) {
+      f.get();
+    }
+    pool.shutdown();
+
+    assertTrue(booked.get() > 0);
+    assertEquals(creditsBefore, totalCredits());
+    List<ContractDto> contracts = sharded.listContracts();
+    assertEquals(booked.get(), contracts.size());
+    for (String itemId : itemIds) {
+      List<ContractDto> forItem = new ArrayList<>(sharded.getContractsForItem(itemId));
+      forItem.sort((a, b) -> Integer.compare(a.startDay, b.startDay));
+      for (int i = 1; i < forItem.size(); i++) {
+        assertTrue(forItem.get(i - 1).endDay <= forItem.get(i).startDay, "Overlapping contracts");
+      }
+    }
+  }
+}
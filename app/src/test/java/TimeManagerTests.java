@@ -0,0 +1,119 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import model.DayTask;
+import model.TimeManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+public class TimeManagerTests {
+
+  private TimeManager time;
+  private List<Integer> ran;
+
+  @BeforeEach
+  public void setup() {
+    time = new TimeManager();
+    ran = new ArrayList<>();
+  }
+
+  private DayTask once() {
+    return day -> {
+      assertTrue(day <= time.getCurrentDay());
+      ran.add(day);
+      return DayTask.DONE;
+    };
+  }
+
+  @Test
+  public void testTasksRunInDayOrderWhenTheirDayComes() {
+    for (int day : new int[] {70, 5, 4096, 64, 63, 1_000_000, 5, 262_144}) {
+      time.schedule(day, once());
+    }
+    time.advanceDay(4);
+    assertTrue(ran.isEmpty());
+    time.advanceDay(1);
+    assertEquals(List.of(5, 5), ran);
+    time.advanceDay(10_000);
+    assertEquals(List.of(5, 5, 63, 64, 70, 4096), ran);
+    time.advanceDay(2_000_000);
+    assertEquals(List.of(5, 5, 63, 64, 70, 4096, 262_144, 1_000_000), ran);
+    assertEquals(0, time.getScheduledTasks());
+  }
+
+  @Test
+  public void testRepeatingTaskAndPastDays() {
+    time.schedule(1000, day -> {
+      ran.add(day);
+      return day + 1000;
+    });
+    time.advanceDay(10_500);
+    assertEquals(10, ran.size());
+    assertEquals(10_000, (int) ran.get(9));
+    assertEquals(1, time.getScheduledTasks());
+
+    ran.clear();
+    time.schedule(3, once());
+    assertEquals(List.of(3), ran);
+    assertThrows(IllegalStateException.class, () -> time.schedule(0, day -> day));
+  }
+
+  @Test
+  public void testMatchesSortedReference() {
+    Random rnd = new Random(7);
+    TreeMap<Integer, Integer> expected = new TreeMap<>();
+    for (int round = 0; round < 200; round++) {
+      for (int i = 0; i < 50; i++) {
+        int day = time.getCurrentDay() + 1 + rnd.nextInt(1 << (1 + rnd.nextInt(24)));
+        time.schedule(day, once());
+        expected.merge(day, 1, Integer::sum);
+      }
+      time.advanceDay(1 + rnd.nextInt(1 << (1 + rnd.nextInt(20))));
+      List<Integer> due = new ArrayList<>();
+      expected.headMap(time.getCurrentDay(), true).forEach((day, n) -> {
+        for (int i = 0; i < n; i++) {
+          due.add(day);
+        }
+      });
+      expected.headMap(time.getCurrentDay(), true).clear();
+      assertEquals(due, ran);
+      ran.clear();
+    }
+    assertEquals(expected.values().stream().mapToInt(n -> n).sum(), time.getScheduledTasks());
+  }
+
+  @Test
+  public void testScheduleDoesNotWaitForAnAdvance() throws Exception {
+    CountDownLatch running = new CountDownLatch(1);
+    CountDownLatch scheduled = new CountDownLatch(1);
+    time.schedule(1, day -> {
+      running.countDown();
+      try {
+        assertTrue(scheduled.await(10, TimeUnit.SECONDS));
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      return DayTask.DONE;
+    });
+    Thread advancer = new Thread(() -> time.advanceDay(1));
+    advancer.start();
+    assertTrue(running.await(10, TimeUnit.SECONDS));
+
+    // The advancing thread holds the wheel until the schedule below returns.
+    List<Thread> ranOn = new ArrayList<>();
+    time.schedule(1, day -> {
+      ranOn.add(Thread.currentThread());
+      return DayTask.DONE;
+    });
+    scheduled.countDown();
+    advancer.join();
+    assertEquals(List.of(advancer), ranOn);
+    assertEquals(0, time.getScheduledTasks());
+  }
+}
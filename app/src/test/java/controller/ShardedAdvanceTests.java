@@ -0,0 +1,63 @@
+package controller;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import controller.dto.MemberDto;
+import java.util.List;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+// In the controller package to give one shard a day task that fails.
+public class ShardedAdvanceTests {
+
+  private static final int SHARDS = 3;
+
+  private ShardedController sharded;
+
+  @BeforeEach
+  public void setup() {
+    sharded = new ShardedController(SHARDS, k -> {
+      ControllerManager c = ControllerManager.createEmpty(CounterIdGenerator.forMembers(k, SHARDS),
+          CounterIdGenerator.forItems(k, SHARDS), CounterIdGenerator.forContracts(k, SHARDS));
+      if (k == 1) {
+        c.getTimeManager().schedule(10, day -> {
+          throw new IllegalStateException("Task failed");
+        });
+      }
+      return c;
+    });
+    for (int m = 0; m < SHARDS; m++) {
+      sharded.createMember("Member " + m, "m" + m + "@example.com", "07" + m);
+    }
+  }
+
+  @AfterEach
+  public void tearDown() {
+    sharded.close();
+  }
+
+  @Test
+  public void testShardFailingToAdvanceRefusesChanges() {
+    sharded.advanceDay(5);
+    assertEquals(5, sharded.getCurrentDay());
+
+    IllegalStateException e = assertThrows(IllegalStateException.class, () -> sharded.advanceDay(5));
+    assertEquals("Task failed", e.getCause().getMessage());
+    assertEquals(5, sharded.getCurrentDay());
+    assertThrows(IllegalStateException.class, () -> sharded.createMember("Late", "late@example.com", "0799"));
+    assertThrows(IllegalStateException.class, () -> sharded.advanceDay(1));
+
+    // Reads still work.
+    List<MemberDto> listed = sharded.listMembers();
+    assertEquals(SHARDS, listed.size());
+  }
+
+  @Test
+  public void testDaysThatDoNotReachTheTaskStillAdvance() {
+    for (int day = 1; day < 10; day++) {
+      sharded.advanceDay(1);
+    }
+    assertEquals(9, sharded.getCurrentDay());
+  }
+}